@@ -0,0 +1,70 @@
+package search;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Compares Solver.solve, which builds its board, worklists and trail afresh, with
+* solving in a reused SolveArena. Run through BenchmarkRunner: the GC
+* profiler's gc.alloc.rate.norm for arena should be 0 B/op, which is the check
+* that steady-state solving allocates nothing.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArenaBenchmark {
+
+	@Param({"csp", "csp+degree+lcv:all", "gac+mrv"})
+	public String options;
+
+	@Param({"evil", "corpus"})
+	public String puzzles;
+
+	private SolverOptions solverOptions;
+	private List<int[][]> boards;
+	private SolveArena arena;
+	private int[][] solution;
+
+	@Setup(Level.Trial)
+	public void load(){
+		solverOptions = Strategies.options(options);
+		if(puzzles.equals("corpus")){
+			boards = Puzzles.hardCorpus(50, 431L);
+		}
+		else{
+			boards = List.<int[][]>of(Puzzles.load(puzzles));
+		}
+		arena = new SolveArena(csp.PeerIndex.SUDOKU, solverOptions);
+		solution = new int[9][9];
+	}
+
+	@Benchmark
+	public void solve(Blackhole bh){
+		for(int i = 0; i < boards.size(); i++){
+			bh.consume(Solver.solve(boards.get(i), solverOptions, null));
+		}
+	}
+
+	@Benchmark
+	public void arena(Blackhole bh){
+		for(int i = 0; i < boards.size(); i++){
+			bh.consume(arena.solve(boards.get(i), solution, SolveBudget.UNLIMITED, null));
+		}
+	}
+}
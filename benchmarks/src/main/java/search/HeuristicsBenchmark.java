@@ -0,0 +1,65 @@
+package search;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Compares the variable and value ordering heuristics: rescanning MRV against
+* the incremental buckets, with and without degree tie-breaking and least
+* constraining value ordering, on each constraint model. Reports the search
+* nodes counted over each iteration next to the time per solve (see
+* InferenceBenchmark.Work).
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicsBenchmark {
+
+	@Param({"csp", "gac"})
+	public String model;
+
+	@Param({"scan", "mrv", "degree", "lcv", "degree+lcv"})
+	public String heuristics;
+
+	@Param({"hard", "evil", "corpus"})
+	public String puzzles;
+
+	private SolverOptions options;
+	private List<int[][]> boards;
+
+	@Setup(Level.Trial)
+	public void load(){
+		options = Strategies.options(heuristics.equals("scan") ? model : model + "+" + heuristics);
+		if(puzzles.equals("corpus")){
+			boards = Puzzles.hardCorpus(50, 431L);
+		}
+		else{
+			boards = List.<int[][]>of(Puzzles.load(puzzles));
+		}
+	}
+
+	@Benchmark
+	public void solve(InferenceBenchmark.Work work, Blackhole bh){
+		for(int[][] board : boards){
+			SearchStats stats = new SearchStats();
+			bh.consume(Solver.solve(board, options, stats));
+			work.nodes += stats.getNodes();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package search;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Weighs each constraint model and inference rule's propagation cost against
+* the search nodes it saves: solves a bundled puzzle or the hard corpus with one
+* model and set of rules, and
+* reports the search nodes and inferred values counted over each iteration next
+* to the time per solve.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InferenceBenchmark {
+
+	@Param({"csp", "gac"})
+	public String model;
+
+	@Param({"none", "hidden-single", "naked-pair", "hidden-pair", "pointing", "box-line",
+			"naked-triple", "hidden-triple", "all"})
+	public String rules;
+
+	@Param({"easy", "medium", "hard", "evil", "corpus"})
+	public String puzzles;
+
+	private SolverOptions options;
+	private List<int[][]> boards;
+
+	/*
+	* Search work, totalled by JMH over each iteration.
+	*/
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Work {
+		public long nodes;
+		public long inferred;
+
+		@Setup(Level.Iteration)
+		public void clear(){
+			nodes = 0;
+			inferred = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void load(){
+		options = Strategies.options(model + ":" + rules);
+		if(puzzles.equals("corpus")){
+			boards = Puzzles.hardCorpus(50, 431L);
+		}
+		else{
+			boards = List.<int[][]>of(Puzzles.load(puzzles));
+		}
+	}
+
+	@Benchmark
+	public void solve(Work work, Blackhole bh){
+		for(int[][] board : boards){
+			SearchStats stats = new SearchStats();
+			bh.consume(Solver.solve(board, options, stats));
+			work.nodes += stats.getNodes();
+			work.inferred += stats.getValuesInferred();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package search;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import generator.PuzzleGenerator;
+import io.PuzzFormat;
+
+/**
+* Loads the bundled puzzles for the benchmarks and generates a larger hard
+* corpus.
+*/
+final class Puzzles {
+
+	//how many generated puzzles compete for each place in the hard corpus
+	private static final int CANDIDATES_PER_PUZZLE = 8;
+
+	private Puzzles(){
+	}
+
+	/*
+	* Reads one of the bundled puzzles/*.puzz files from the classpath.
+	* @param name the file name without extension, e.g. "evil"
+	* @return the puzzle, with 0 for every unknown value
+	*/
+	static int[][] load(String name){
+		InputStream in = Puzzles.class.getResourceAsStream("/puzzles/" + name + ".puzz");
+		if(in == null){
+			throw new IllegalArgumentException("No bundled puzzle \"" + name + "\"");
+		}
+		try(InputStreamReader reader = new InputStreamReader(in, StandardCharsets.US_ASCII)){
+			return PuzzFormat.read(reader);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	* Builds a corpus of hard puzzles: PuzzleGenerator makes minimal 9x9 puzzles
+	* with a unique solution, several for every place in the corpus, and the ones
+	* that take plain CSP search the most nodes are kept. Each is a different
+	* puzzle, not a relabeling of another, so the solver cannot coast on warm
+	* branch history.
+	* @param count the number of puzzles
+	* @param seed the random seed, so runs are repeatable
+	* @return the corpus, hardest first
+	*/
+	static List<int[][]> hardCorpus(int count, long seed){
+		List<int[][]> candidates = new ArrayList<int[][]>(count * CANDIDATES_PER_PUZZLE);
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator().generate(seed, count * CANDIDATES_PER_PUZZLE)){
+			candidates.add(puzzle.getPuzzle());
+		}
+
+		long[] nodes = new long[candidates.size()];
+		List<Integer> order = new ArrayList<Integer>(candidates.size());
+		for(int i = 0; i < candidates.size(); i++){
+			SearchStats stats = new SearchStats();
+			Solver.solve(candidates.get(i), stats);
+			nodes[i] = stats.getNodes();
+			order.add(i);
+		}
+		order.sort(Comparator.comparingLong((Integer i) -> -nodes[i]).thenComparingInt(i -> i));
+
+		List<int[][]> corpus = new ArrayList<int[][]>(count);
+		for(int i = 0; i < count; i++){
+			corpus.add(candidates.get(order.get(i)));
+		}
+		return corpus;
+	}
+}
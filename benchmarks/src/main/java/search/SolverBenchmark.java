@@ -0,0 +1,115 @@
+package search;
+import csp.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* Measures the csp and search hot paths on each bundled puzzle: the AC-3
+* pre-pass, a single arc revision, MRV variable selection, child expansion, and
+* a whole Solver.solve. Run through BenchmarkRunner to get allocation rates.
+*/
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+	@Param({"easy", "medium", "hard", "evil"})
+	public String puzzle;
+
+	private int[][] original;
+	private int[] initial;        //the puzzle's domains before AC-3
+	private int[] consistent;     //the puzzle's domains after AC-3
+	private int[] scratch;
+	private Node root;
+	private int mrvRow;
+	private int mrvCol;
+	private ArcQueue queue;
+
+	@Setup(Level.Trial)
+	public void load(){
+		original = Puzzles.load(puzzle);
+		initial = Variable.fromInts(original);
+		queue = new ArcQueue();
+		consistent = Solver.AC3(queue, initial);
+		root = new Node(consistent);
+
+		//the variable search would branch on; (0,0) if AC-3 already solved it
+		int var = Solver.minimumRemainingValue(consistent);
+		mrvRow = var < 0 ? 0 : var / 9;
+		mrvCol = var < 0 ? 0 : var % 9;
+		scratch = new int[initial.length];
+	}
+
+	@Benchmark
+	public int[] ac3(){
+		return Solver.AC3(queue, initial);
+	}
+
+	@Benchmark
+	public void removeValues(Blackhole bh){
+		//revise every arc once against the unpropagated board
+		System.arraycopy(initial, 0, scratch, 0, initial.length);
+		PeerIndex peers = queue.index();
+		for(int arc = 0; arc < peers.arcs(); arc++){
+			bh.consume(Solver.removeValues(peers.source(arc), peers.target(arc), scratch));
+		}
+	}
+
+	@Benchmark
+	public int minimumRemainingValue(){
+		return Solver.minimumRemainingValue(consistent);
+	}
+
+	@Benchmark
+	public Node[] getChildren(){
+		return root.getChildren(mrvRow, mrvCol);
+	}
+
+	@Benchmark
+	public int[][] solve(){
+		return Solver.solve(original);
+	}
+
+
+	/**
+	* End-to-end solving over a corpus of generated hard puzzles (see
+	* Puzzles.hardCorpus).
+	*/
+	@State(Scope.Thread)
+	public static class Corpus {
+		@Param({"200"})
+		public int size;
+
+		List<int[][]> puzzles;
+
+		@Setup(Level.Trial)
+		public void generate(){
+			puzzles = Puzzles.hardCorpus(size, 431L);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void solveHardCorpus(Corpus corpus, Blackhole bh){
+		for(int[][] p : corpus.puzzles){
+			bh.consume(Solver.solve(p));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package cache;
+
+/**
+* A snapshot of a SolutionCache's counters.
+*/
+public final class CacheStats {
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long uncanonical;
+	private final long size;
+
+	CacheStats(long hits, long misses, long evictions, long uncanonical, long size){
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.uncanonical = uncanonical;
+		this.size = size;
+	}
+
+	/*
+	* @return lookups answered from the cache, including isomorphic puzzles
+	*/
+	public long getHits(){
+		return hits;
+	}
+
+	/*
+	* @return lookups that had to run the solver
+	*/
+	public long getMisses(){
+		return misses;
+	}
+
+	/*
+	* @return entries dropped to stay within capacity
+	*/
+	public long getEvictions(){
+		return evictions;
+	}
+
+	/*
+	* @return lookups keyed on the raw board because it could not be canonicalized
+	*/
+	public long getUncanonical(){
+		return uncanonical;
+	}
+
+	/*
+	* @return entries currently cached
+	*/
+	public long getSize(){
+		return size;
+	}
+
+	/*
+	* @return hits / (hits + misses), or 0 before the first lookup
+	*/
+	public double getHitRate(){
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public String toString(){
+		return "hits=" + hits + " misses=" + misses + " evictions=" + evictions
+				+ " uncanonical=" + uncanonical + " size=" + size;
+	}
+}
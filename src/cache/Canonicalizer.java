@@ -0,0 +1,362 @@
+package cache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* Finds the canonical form of a board: the lexicographically smallest board
+* (row by row, 0 for unknown) among all boards reachable by Sudoku symmetries,
+* where the digits are always relabeled 1, 2, 3, ... in order of first
+* appearance. Isomorphic puzzles therefore share one canonical form.
+*
+* The search builds the result one row at a time, from every transpose and
+* stack order. It keeps only the partial boards that tie for the smallest
+* prefix, and extends those with the rows their band structure still allows.
+* The order of columns within a stack is settled lazily: columns that are
+* blank in every row so far stay interchangeable, and each new row sorts them
+* into its smallest order, branching only on the order of digits that get new
+* labels (see RowPlacer). Very symmetric boards, such as very sparse ones and
+* full grids, can keep too many ties alive; after MAX_STATES the search gives
+* up rather than stall the caller.
+*
+* Only 4x4 and 9x9 boards are canonicalized; larger box orders have too many
+* column orders to search. Neither are boards that repeat a digit in a row or
+* column: they have no solution, and are cached as they are.
+*/
+public final class Canonicalizer {
+
+	public static final int MAX_STATES = 2000;
+	public static final int MAX_BOX_SIZE = 3;
+
+	//every order of n things, for n up to the box order
+	private static final int[][][] PERMS = new int[MAX_BOX_SIZE + 1][][];
+
+	static {
+		for(int n = 1; n <= MAX_BOX_SIZE; n++){
+			PERMS[n] = permutations(n).toArray(new int[0][]);
+		}
+	}
+
+	private Canonicalizer(){
+	}
+
+	/*
+	* Finds the transform to the canonical form of a board.
+	* @param board an N by N board, with 0 for unknown values
+	* @return a transform t with t.apply(board) the canonical form, or null if the
+	*			board is not 4x4 or 9x9, repeats a digit in a row or column, or is
+	*			too symmetric to canonicalize cheaply
+	*/
+	public static Transform canonicalize(int[][] board){
+		int size = board.length;
+		int n = (int) Math.round(Math.sqrt(size));
+		if(n * n != size || n < 2 || n > MAX_BOX_SIZE){
+			return null;
+		}
+		for(int[] row : board){
+			if(row.length != size){
+				return null;
+			}
+			for(int v : row){
+				if(v < 0 || v > size){
+					return null;
+				}
+			}
+		}
+		for(int i = 0; i < size; i++){
+			int inRow = 0;
+			int inCol = 0;
+			for(int j = 0; j < size; j++){
+				int r = board[i][j] == 0 ? 0 : 1 << board[i][j];
+				int c = board[j][i] == 0 ? 0 : 1 << board[j][i];
+				if((inRow & r) != 0 || (inCol & c) != 0){
+					return null;
+				}
+				inRow |= r;
+				inCol |= c;
+			}
+		}
+
+		//an empty board is its own canonical form, under every symmetry
+		boolean empty = true;
+		for(int[] row : board){
+			for(int v : row){
+				empty &= v == 0;
+			}
+		}
+		if(empty){
+			int[] identity = new int[size];
+			int[] labels = new int[size + 1];
+			for(int i = 0; i < size; i++){
+				identity[i] = i;
+				labels[i + 1] = i + 1;
+			}
+			return new Transform(false, identity, identity, labels);
+		}
+
+		int[][] transposed = new int[size][size];
+		for(int r = 0; r < size; r++){
+			for(int c = 0; c < size; c++){
+				transposed[c][r] = board[r][c];
+			}
+		}
+
+		//start from every transpose and stack order, with each stack's columns
+		//still interchangeable
+		List<State> states = new ArrayList<State>();
+		for(int t = 0; t < 2; t++){
+			for(int[] stacks : PERMS[n]){
+				State s = new State(t == 1, new int[size], size);
+				for(int c = 0; c < size; c++){
+					s.cols[c] = stacks[c / n] * n + c % n;
+					s.joined[c] = c % n != 0;
+				}
+				states.add(s);
+			}
+		}
+
+		//each row finishes the current band, or starts any unused band
+		RowPlacer placer = new RowPlacer(n);
+		for(int k = 0; k < size; k++){
+			placer.start();
+			for(State s : states){
+				int[][] grid = s.transpose ? transposed : board;
+				for(int r = 0; r < size; r++){
+					boolean allowed = k % n != 0 ? r / n == s.rows[k - 1] / n : (s.usedBands & (1 << (r / n))) == 0;
+					if(allowed && (s.usedRows & (1 << r)) == 0 && !placer.place(s, k, r, grid[r])){
+						return null;
+					}
+				}
+			}
+			states = placer.next;
+		}
+
+		return states.get(0).toTransform();
+	}
+
+	/*
+	* Places source rows as row k of the result, keeping the states whose row k
+	* ties for the smallest. Within each run of interchangeable columns a row is
+	* smallest with its zeros first, then the digits that already have labels in
+	* label order, then the digits that get new labels; those come out as the
+	* same values in any order, but give different labels, so every order of
+	* them is tried. A choice is dropped as soon as the row falls behind.
+	*/
+	private static final class RowPlacer {
+		final int n;
+		final int size;
+		List<State> next;
+		int[] best; //row k of the states in next
+
+		//the placement in progress
+		State state;
+		int k;
+		int r;
+		int[] row;
+		final int[] cols;
+		final int[] label;
+		final int[] values;
+		final int[][] fresh; //the columns of new digits, per run start
+		int nextLabel;
+
+		RowPlacer(int n){
+			this.n = n;
+			size = n * n;
+			cols = new int[size];
+			label = new int[size + 1];
+			values = new int[size];
+			fresh = new int[size][n];
+		}
+
+		void start(){
+			next = new ArrayList<State>();
+			best = null;
+		}
+
+		/*
+		* Places a source row under a state.
+		* @return false if there are more than MAX_STATES ties
+		*/
+		boolean place(State state, int k, int r, int[] row){
+			this.state = state;
+			this.k = k;
+			this.r = r;
+			this.row = row;
+			System.arraycopy(state.label, 0, label, 0, label.length);
+			nextLabel = state.nextLabel;
+			return run(0);
+		}
+
+		/*
+		* Orders the run of interchangeable columns starting at a position, then
+		* the runs after it.
+		* @param from the first position of the run
+		* @return false if there are more than MAX_STATES ties
+		*/
+		private boolean run(int from){
+			if(from == size){
+				return finish();
+			}
+			int to = from + 1;
+			while(to < size && state.joined[to]){
+				to++;
+			}
+
+			//zeros, then labeled digits in label order, then new digits
+			int p = from;
+			for(int i = from; i < to; i++){
+				if(row[state.cols[i]] == 0){
+					cols[p++] = state.cols[i];
+				}
+			}
+			int labeled = p;
+			for(int i = from; i < to; i++){
+				int c = state.cols[i];
+				if(row[c] != 0 && label[row[c]] != 0){
+					int j = p++;
+					while(j > labeled && label[row[cols[j - 1]]] > label[row[c]]){
+						cols[j] = cols[j - 1];
+						j--;
+					}
+					cols[j] = c;
+				}
+			}
+			for(int i = from; i < p; i++){
+				values[i] = label[row[cols[i]]];
+			}
+			int count = to - p;
+			if(count == 0){
+				return behind(to) || run(to);
+			}
+
+			int[] news = fresh[from];
+			for(int i = from, j = 0; i < to; i++){
+				int c = state.cols[i];
+				if(row[c] != 0 && label[row[c]] == 0){
+					news[j++] = c;
+				}
+			}
+			for(int[] perm : PERMS[count]){
+				for(int j = 0; j < count; j++){
+					cols[p + j] = news[perm[j]];
+					label[row[cols[p + j]]] = nextLabel++;
+					values[p + j] = label[row[cols[p + j]]];
+				}
+				boolean ok = behind(to) || run(to);
+				for(int j = 0; j < count; j++){
+					label[row[news[j]]] = 0;
+				}
+				nextLabel -= count;
+				if(!ok){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/*
+		* Tells whether the row so far is already worse than best.
+		* @param end the number of positions placed
+		*/
+		private boolean behind(int end){
+			if(best == null){
+				return false;
+			}
+			for(int c = 0; c < end; c++){
+				if(values[c] != best[c]){
+					return values[c] > best[c];
+				}
+			}
+			return false;
+		}
+
+		private boolean finish(){
+			int cmp = best == null ? -1 : Arrays.compare(values, best);
+			if(cmp > 0){
+				return true;
+			}
+			if(cmp < 0){
+				best = values.clone();
+				next.clear();
+			}
+			next.add(state.then(k, r, n, cols, row, label, nextLabel));
+			return next.size() <= MAX_STATES;
+		}
+	}
+
+	/*
+	* A partial canonical board: the rows chosen so far, the digit labels they
+	* have handed out, and a column order of which some runs are still free.
+	*/
+	private static final class State {
+		final boolean transpose;
+		final int[] cols;
+		final boolean[] joined; //joined[c]: position c may still swap with position c - 1
+		final int[] rows;
+		final int[] label;
+		int nextLabel = 1;
+		int usedRows;
+		int usedBands;
+
+		State(boolean transpose, int[] cols, int size){
+			this.transpose = transpose;
+			this.cols = cols;
+			this.joined = new boolean[size];
+			this.rows = new int[size];
+			this.label = new int[size + 1];
+		}
+
+		/*
+		* Makes the state with a source row placed as row k of the result. Its
+		* blank columns stay interchangeable; the others are settled.
+		* @param r the source row
+		* @param cols the column order it was placed in
+		* @param row its values
+		* @param label the labels after placing it
+		* @param nextLabel the next free label
+		* @return the new state
+		*/
+		State then(int k, int r, int n, int[] cols, int[] row, int[] label, int nextLabel){
+			State s = new State(transpose, cols.clone(), rows.length);
+			for(int c = 1; c < cols.length; c++){
+				s.joined[c] = joined[c] && row[cols[c]] == 0 && row[cols[c - 1]] == 0;
+			}
+			System.arraycopy(rows, 0, s.rows, 0, rows.length);
+			s.rows[k] = r;
+			System.arraycopy(label, 0, s.label, 0, label.length);
+			s.nextLabel = nextLabel;
+			s.usedRows = usedRows | 1 << r;
+			s.usedBands = usedBands | 1 << (r / n);
+			return s;
+		}
+
+		Transform toTransform(){
+			//digits that never appear take the remaining labels in increasing order
+			for(int v = 1; v < label.length; v++){
+				if(label[v] == 0){
+					label[v] = nextLabel++;
+				}
+			}
+			return new Transform(transpose, rows, cols, label);
+		}
+	}
+
+	private static List<int[]> permutations(int n){
+		List<int[]> perms = new ArrayList<int[]>();
+		permute(new int[n], 0, 0, perms);
+		return perms;
+	}
+
+	private static void permute(int[] p, int k, int used, List<int[]> out){
+		if(k == p.length){
+			out.add(p.clone());
+			return;
+		}
+		for(int i = 0; i < p.length; i++){
+			if((used & (1 << i)) == 0){
+				p[k] = i;
+				permute(p, k + 1, used | (1 << i), out);
+			}
+		}
+	}
+}
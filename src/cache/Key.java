@@ -0,0 +1,36 @@
+package cache;
+import java.util.Arrays;
+
+/**
+* A compact, immutable cache key: a board packed 4 bits per cell (5 for boards
+* larger than 15x15) into longs, plus whether it is a canonical form or a raw
+* board that could not be canonicalized.
+*/
+final class Key {
+	private final long[] words;
+	private final int hash;
+
+	Key(int[][] board, boolean canonical){
+		int size = board.length;
+		int bits = size <= 15 ? 4 : 5;
+		words = new long[(size * size * bits + 63) / 64 + 1];
+		words[words.length - 1] = ((long) size << 1) | (canonical ? 1 : 0);
+		for(int i = 0; i < size * size; i++){
+			long v = board[i / size][i % size];
+			int bit = i * bits;
+			words[bit >> 6] |= v << (bit & 63);
+			if((bit & 63) + bits > 64){
+				words[(bit >> 6) + 1] |= v >>> (64 - (bit & 63));
+			}
+		}
+		hash = Arrays.hashCode(words);
+	}
+
+	public boolean equals(Object other){
+		return other instanceof Key && ((Key) other).hash == hash && Arrays.equals(((Key) other).words, words);
+	}
+
+	public int hashCode(){
+		return hash;
+	}
+}
@@ -0,0 +1,231 @@
+package cache;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import search.SolveBudget;
+import search.SolveResult;
+import search.SolverStrategy;
+
+/**
+* A solver strategy that remembers solutions. Puzzles are keyed by their
+* canonical form (see Canonicalizer), so a puzzle that is a relabeled, permuted
+* or transposed copy of one solved before is answered from the cache, with the
+* cached solution mapped back through the inverse transform.
+*
+* An exact repeat of a puzzle is looked up by its raw board first, which skips
+* canonicalization; solutions are stored under both keys.
+*
+* Only answers are cached: a solution, or a proof that there is none. A solve
+* that ran out of budget is passed on to the caller and tried again next time.
+*
+* The cache holds at most a fixed number of entries, evicting the least recently
+* used. It is split into independently locked segments so concurrent callers
+* rarely wait on each other.
+*/
+public class SolutionCache implements SolverStrategy {
+
+	public static final int DEFAULT_CAPACITY = 100000;
+	private static final int SEGMENTS = 16;
+
+	//the cached value of a puzzle without a solution
+	private static final byte[] NO_SOLUTION = new byte[0];
+
+	private final SolverStrategy solver;
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder uncanonical = new LongAdder();
+
+	/*
+	* Creates a cache of the default capacity in front of a solver.
+	* @param solver the solver to run on a miss
+	*/
+	public SolutionCache(SolverStrategy solver){
+		this(solver, DEFAULT_CAPACITY);
+	}
+
+	/*
+	* Creates a cache in front of a solver.
+	* @param solver the solver to run on a miss
+	* @param capacity the most puzzles remembered at once
+	*/
+	public SolutionCache(SolverStrategy solver, int capacity){
+		this.solver = solver;
+		int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+		for(int i = 0; i < SEGMENTS; i++){
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original).getSolution();
+	}
+
+	/*
+	* Answers a puzzle from the cache, or solves it within the solver's own
+	* limits on a miss.
+	* @param original the puzzle, with 0 for every unknown value
+	* @return how the solve ended; a hit is SOLVED or UNSATISFIABLE after 0 nodes
+	*/
+	public SolveResult trySolve(int[][] original){
+		return lookup(original, null);
+	}
+
+	/*
+	* Answers a puzzle from the cache, or solves it within a budget on a miss.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of a solve on a miss
+	* @return how the solve ended; a hit is SOLVED or UNSATISFIABLE after 0 nodes
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		return lookup(original, budget);
+	}
+
+	/*
+	* Answers a puzzle from the cache, or solves it on a miss.
+	* @param budget the limits of a solve on a miss, or null for the solver's own
+	*/
+	private SolveResult lookup(int[][] original, SolveBudget budget){
+		int size = original.length;
+		if(!isBoard(original)){
+			//not a board the cache can key; let the solver report the problem
+			return solve(original, budget);
+		}
+
+		//an exact repeat is found without paying for canonicalization
+		Key raw = new Key(original, false);
+		byte[] cached = segment(raw).get(raw);
+		if(cached != null){
+			hits.increment();
+			return cached == NO_SOLUTION ? SolveResult.unsatisfiable(0) : SolveResult.solved(unpack(cached, size), 0);
+		}
+
+		Transform transform = Canonicalizer.canonicalize(original);
+		Key key = null;
+		if(transform == null){
+			uncanonical.increment();
+		}
+		else{
+			key = new Key(transform.apply(original), true);
+			cached = segment(key).get(key);
+			if(cached != null){
+				hits.increment();
+				int[][] solution = cached == NO_SOLUTION ? null : transform.invert(unpack(cached, size));
+				segment(raw).put(raw, solution == null ? NO_SOLUTION : pack(solution));
+				return solution == null ? SolveResult.unsatisfiable(0) : SolveResult.solved(solution, 0);
+			}
+		}
+
+		misses.increment();
+		SolveResult result = solve(original, budget);
+		if(result.getStatus() == SolveResult.Status.EXHAUSTED){
+			//the budget ran out, which says nothing about the puzzle
+			return result;
+		}
+		int[][] solution = result.getSolution();
+		segment(raw).put(raw, solution == null ? NO_SOLUTION : pack(solution));
+		if(key != null){
+			segment(key).put(key, solution == null ? NO_SOLUTION : pack(transform.apply(solution)));
+		}
+		return result;
+	}
+
+	/*
+	* Checks that a board is square, of a supported size, and holds only values
+	* 0..N, so that its key cannot collide with another board's.
+	*/
+	private static boolean isBoard(int[][] board){
+		int size = board.length;
+		int boxSize = (int) Math.round(Math.sqrt(size));
+		if(boxSize * boxSize != size || boxSize < 2 || boxSize > 5){
+			return false;
+		}
+		for(int[] row : board){
+			if(row.length != size){
+				return false;
+			}
+			for(int v : row){
+				if(v < 0 || v > size){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private SolveResult solve(int[][] original, SolveBudget budget){
+		return budget == null ? solver.trySolve(original) : solver.trySolve(original, budget);
+	}
+
+	private Segment segment(Key key){
+		return segments[(key.hashCode() & 0x7fffffff) % SEGMENTS];
+	}
+
+	/*
+	* @return a snapshot of the hit, miss and eviction counters
+	*/
+	public CacheStats getStats(){
+		long size = 0;
+		for(Segment segment : segments){
+			size += segment.size();
+		}
+		return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), uncanonical.sum(), size);
+	}
+
+	public String toString(){
+		return "cached-" + solver;
+	}
+
+	private static byte[] pack(int[][] board){
+		int size = board.length;
+		byte[] packed = new byte[size * size];
+		for(int i = 0; i < packed.length; i++){
+			packed[i] = (byte) board[i / size][i % size];
+		}
+		return packed;
+	}
+
+	private static int[][] unpack(byte[] packed, int size){
+		int[][] board = new int[size][size];
+		for(int i = 0; i < packed.length; i++){
+			board[i / size][i % size] = packed[i];
+		}
+		return board;
+	}
+
+
+	/*
+	* One independently locked LRU map.
+	*/
+	private final class Segment {
+		private final LinkedHashMap<Key, byte[]> map;
+
+		Segment(int capacity){
+			map = new LinkedHashMap<Key, byte[]>(16, 0.75f, true){
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest){
+					if(size() > capacity){
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized byte[] get(Key key){
+			return map.get(key);
+		}
+
+		synchronized void put(Key key, byte[] value){
+			map.put(key, value);
+		}
+
+		synchronized int size(){
+			return map.size();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package cache;
+
+/**
+* A Sudoku symmetry: an optional transpose, then a row and a column permutation
+* that keep bands and stacks together, then a relabeling of the digits. Every
+* such transform maps valid boards to valid boards, and can be undone.
+*/
+public final class Transform {
+	private final boolean transpose;
+	private final int[] rows;    //row r of the result is row rows[r] of the (transposed) source
+	private final int[] cols;    //col c of the result is col cols[c] of the (transposed) source
+	private final int[] relabel; //relabel[v] is the digit v becomes; relabel[0] == 0
+	private final int[] unlabel; //the inverse of relabel
+
+	Transform(boolean transpose, int[] rows, int[] cols, int[] relabel){
+		this.transpose = transpose;
+		this.rows = rows;
+		this.cols = cols;
+		this.relabel = relabel;
+		unlabel = new int[relabel.length];
+		for(int v = 0; v < relabel.length; v++){
+			unlabel[relabel[v]] = v;
+		}
+	}
+
+	/*
+	* Applies the transform to a board.
+	* @param board an N by N board, with 0 for unknown values
+	* @return the transformed board
+	*/
+	public int[][] apply(int[][] board){
+		int size = rows.length;
+		int[][] out = new int[size][size];
+		for(int r = 0; r < size; r++){
+			for(int c = 0; c < size; c++){
+				int v = transpose ? board[cols[c]][rows[r]] : board[rows[r]][cols[c]];
+				out[r][c] = relabel[v];
+			}
+		}
+		return out;
+	}
+
+	/*
+	* Undoes the transform: invert(apply(board)) equals board.
+	* @param board an N by N board in transformed form
+	* @return the board in original form
+	*/
+	public int[][] invert(int[][] board){
+		int size = rows.length;
+		int[][] out = new int[size][size];
+		for(int r = 0; r < size; r++){
+			for(int c = 0; c < size; c++){
+				int v = unlabel[board[r][c]];
+				if(transpose){
+					out[cols[c]][rows[r]] = v;
+				}
+				else{
+					out[rows[r]][cols[c]] = v;
+				}
+			}
+		}
+		return out;
+	}
+}
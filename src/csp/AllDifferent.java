@@ -0,0 +1,312 @@
+package csp;
+
+/**
+* The n-ary model of a sudoku board: one AllDifferent constraint per unit (row,
+* column and box, see PeerIndex), 3N constraints in all instead of the
+* thousands of pairwise difference constraints. Each constraint is made
+* generalized arc-consistent with Regin's matching-based filtering: a value is
+* kept in a variable's domain only if some assignment of distinct values to the
+* whole unit uses it.
+*
+* Filtering a unit keeps a maximum matching of its cells to its values. The
+* matching is kept between calls and only the cells whose matched value was
+* pruned are re-matched, so most calls repair a few edges instead of building a
+* matching from scratch. Domains only grow when search backtracks, so a matching
+* that was valid stays valid and needs no undo.
+*
+* An AllDifferent belongs to one solve and is not thread safe.
+*/
+public final class AllDifferent {
+
+  /* Returned by propagate when some unit cannot take all its values. */
+  public static final int CONTRADICTION = -1;
+
+  private final PeerIndex index;
+  private final int size;
+  private final int[] matched;  //matched[unit*N+i] = the value of the unit's i-th cell, or 0
+  private final int[] owner;    //owner[unit*(N+1)+v] = 1 + the position holding v, or 0
+
+  //the queue of units to filter, each held at most once
+  private final int[] units;
+  private final boolean[] queued;
+  private int head;
+  private int count;
+
+  //scratch space for matching and Tarjan's strongly connected components
+  private int visited;
+  private final int[] order;
+  private final int[] low;
+  private final int[] component;
+  private final int[] stack;
+  private int stackSize;
+  private int counter;
+  private int components;
+
+  private long dequeued;
+  private long pruned;
+
+  /*
+  * Creates the constraints of a board, with empty matchings.
+  * @param index the units of the board
+  */
+  public AllDifferent(PeerIndex index){
+    this.index = index;
+    size = index.size();
+    matched = new int[index.units() * size];
+    owner = new int[index.units() * (size + 1)];
+    units = new int[index.units()];
+    queued = new boolean[index.units()];
+    order = new int[size];
+    low = new int[size];
+    component = new int[size];
+    stack = new int[size];
+  }
+
+  /*
+  * @return the units of the board these constraints are for
+  */
+  public PeerIndex index(){
+    return index;
+  }
+
+  /*
+  * Queues every constraint of the board for filtering.
+  */
+  public void addAll(){
+    for(int unit = 0; unit < units.length; unit++){
+      add(unit);
+    }
+  }
+
+  /*
+  * Queues the three constraints on a variable whose domain changed.
+  * @param cell the cell index of the variable
+  */
+  public void changed(int cell){
+    add(index.row(cell));
+    add(size + index.col(cell));
+    add(2 * size + index.box(cell));
+  }
+
+  /*
+  * Empties the queue, e.g. after a contradiction.
+  */
+  public void clear(){
+    while(count > 0){
+      poll();
+    }
+    head = 0;
+  }
+
+  /*
+  * Readies the constraints for another board of the same size: empties the
+  * queue and zeroes the counters. The matchings are kept as a warm start, since
+  * filtering drops every matched edge the new board does not allow.
+  */
+  public void reset(){
+    clear();
+    dequeued = 0;
+    pruned = 0;
+  }
+
+  /*
+  * @return the number of constraints taken off the queue so far
+  */
+  public long dequeued(){
+    return dequeued;
+  }
+
+  /*
+  * @return the number of filterings so far that removed a value
+  */
+  public long pruned(){
+    return pruned;
+  }
+
+  /*
+  * Filters the queued constraints until the queue is empty. A constraint that
+  * narrows a variable queues the variable's other two constraints. Works on
+  * the board in place.
+  * @param variables the board
+  * @param trail records the old domain of every narrowed variable, or null
+  * @return the number of values removed, or CONTRADICTION
+  */
+  public int propagate(int[] variables, Trail trail){
+    int removed = 0;
+    while(count > 0){
+      int unit = poll();
+      dequeued++;
+      int r = filter(unit, variables, trail);
+      if(r < 0){
+        clear();
+        return CONTRADICTION;
+      }
+      if(r > 0){
+        pruned++;
+        removed += r;
+      }
+    }
+    return removed;
+  }
+
+
+  /*
+  * Makes one unit generalized arc-consistent.
+  * @return the number of values removed, or CONTRADICTION
+  */
+  private int filter(int unit, int[] variables, Trail trail){
+    int base = unit * size;
+    int valueBase = unit * (size + 1);
+
+    //drop the matched edges whose value has been pruned since the last call
+    for(int i = 0; i < size; i++){
+      int v = matched[base + i];
+      if(v != 0 && !Variable.contains(variables[index.unitCell(unit, i)], v)){
+        matched[base + i] = 0;
+        owner[valueBase + v] = 0;
+      }
+    }
+
+    //re-match the cells that lost their value; every cell must get one
+    for(int i = 0; i < size; i++){
+      if(matched[base + i] == 0){
+        visited = 0;
+        if(!augment(unit, i, variables)){
+          return CONTRADICTION;
+        }
+      }
+    }
+
+    //an unmatched edge x=v is consistent iff x and the cell matched to v lie on
+    //an alternating cycle, i.e. in the same strongly connected component of the
+    //graph with an edge x -> y whenever y's matched value is in x's domain
+    counter = 0;
+    components = 0;
+    stackSize = 0;
+    for(int i = 0; i < size; i++){
+      order[i] = -1;
+    }
+    for(int i = 0; i < size; i++){
+      if(order[i] < 0){
+        connect(unit, i, variables);
+      }
+    }
+
+    int removed = 0;
+    for(int x = 0; x < size; x++){
+      int cell = index.unitCell(unit, x);
+      int domain = variables[cell];
+      int unsupported = 0;
+      int others = Variable.remove(domain, matched[base + x]);
+      while(others != 0){
+        int v = Variable.getSingle(others);
+        others = Variable.remove(others, v);
+        if(component[owner[valueBase + v] - 1] != component[x]){
+          unsupported |= Variable.single(v);
+        }
+      }
+      if(unsupported != 0){
+        if(trail != null){
+          trail.push(cell, domain);
+        }
+        variables[cell] = domain & ~unsupported;
+        removed += Variable.size(unsupported);
+
+        //the cell's other units may lose support too
+        if(index.row(cell) != unit){
+          add(index.row(cell));
+        }
+        if(size + index.col(cell) != unit){
+          add(size + index.col(cell));
+        }
+        if(2 * size + index.box(cell) != unit){
+          add(2 * size + index.box(cell));
+        }
+      }
+    }
+    return removed;
+  }
+
+  /*
+  * Looks for an augmenting path from an unmatched cell (Kuhn's algorithm).
+  * @param unit the unit
+  * @param x the position of the cell in the unit
+  * @return true if the cell was matched
+  */
+  private boolean augment(int unit, int x, int[] variables){
+    int valueBase = unit * (size + 1);
+    int candidates = variables[index.unitCell(unit, x)] & ~visited;
+    while(candidates != 0){
+      int v = Variable.getSingle(candidates);
+      candidates = Variable.remove(candidates, v);
+      visited |= Variable.single(v);
+      int y = owner[valueBase + v] - 1;
+      if(y < 0 || augment(unit, y, variables)){
+        matched[unit * size + x] = v;
+        owner[valueBase + v] = x + 1;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+  * Tarjan's strongly connected components, from one position of a unit.
+  * @param unit the unit
+  * @param x the position of the cell in the unit
+  */
+  private void connect(int unit, int x, int[] variables){
+    int valueBase = unit * (size + 1);
+    order[x] = counter;
+    low[x] = counter;
+    counter++;
+    stack[stackSize++] = x;
+    component[x] = -1; //on the stack
+
+    int others = Variable.remove(variables[index.unitCell(unit, x)], matched[unit * size + x]);
+    while(others != 0){
+      int v = Variable.getSingle(others);
+      others = Variable.remove(others, v);
+      int y = owner[valueBase + v] - 1;
+      if(order[y] < 0){
+        connect(unit, y, variables);
+        low[x] = Math.min(low[x], low[y]);
+      }
+      else if(component[y] < 0){
+        low[x] = Math.min(low[x], order[y]);
+      }
+    }
+
+    if(low[x] == order[x]){
+      int y;
+      do{
+        y = stack[--stackSize];
+        component[y] = components;
+      } while(y != x);
+      components++;
+    }
+  }
+
+  private void add(int unit){
+    if(!queued[unit]){
+      queued[unit] = true;
+      int tail = head + count;
+      if(tail >= units.length){
+        tail -= units.length;
+      }
+      units[tail] = unit;
+      count++;
+    }
+  }
+
+  private int poll(){
+    int unit = units[head];
+    queued[unit] = false;
+    head++;
+    if(head == units.length){
+      head = 0;
+    }
+    count--;
+    return unit;
+  }
+}
@@ -0,0 +1,99 @@
+package csp;
+
+/**
+* The AC-3 worklist: a ring buffer of arc numbers (see PeerIndex) that holds
+* each arc at most once. Adding an arc that is already waiting is a no-op, so
+* the buffer can never hold more than ARCS entries and never grows.
+*
+* A queue is reusable across AC-3 runs on boards of its index's size but is
+* not thread safe; each solve uses its own.
+*/
+public final class ArcQueue {
+  private final PeerIndex index;
+  private final int[] arcs;
+  private final boolean[] queued;
+  private int head;
+  private int size;
+
+  /*
+  * Creates an empty queue with room for every arc of a 9x9 board.
+  */
+  public ArcQueue(){
+    this(PeerIndex.SUDOKU);
+  }
+
+  /*
+  * Creates an empty queue with room for every arc of a board.
+  * @param index the peers and arcs of the board
+  */
+  public ArcQueue(PeerIndex index){
+    this.index = index;
+    arcs = new int[index.arcs()];
+    queued = new boolean[index.arcs()];
+  }
+
+  /*
+  * @return the peers and arcs of the board this queue is for
+  */
+  public PeerIndex index(){
+    return index;
+  }
+
+  /*
+  * Adds an arc to the back of the queue unless it is already queued.
+  * @param arc the arc number
+  */
+  public void add(int arc){
+    if(!queued[arc]){
+      queued[arc] = true;
+      int tail = head + size;
+      if(tail >= arcs.length){
+        tail -= arcs.length;
+      }
+      arcs[tail] = arc;
+      size++;
+    }
+  }
+
+  /*
+  * Adds every arc of the board to the queue.
+  */
+  public void addAll(){
+    for(int arc = 0; arc < arcs.length; arc++){
+      add(arc);
+    }
+  }
+
+  /*
+  * Removes the arc at the front of the queue.
+  * @return the arc number
+  */
+  public int poll(){
+    int arc = arcs[head];
+    queued[arc] = false;
+    head++;
+    if(head == arcs.length){
+      head = 0;
+    }
+    size--;
+    return arc;
+  }
+
+  /*
+  * @return true if no arcs are waiting
+  */
+  public boolean isEmpty(){
+    return size == 0;
+  }
+
+  /*
+  * Empties the queue, e.g. after AC-3 found a wipeout.
+  */
+  public void clear(){
+    while(size > 0){
+      poll();
+    }
+    head = 0;
+  }
+
+}
@@ -0,0 +1,107 @@
+package csp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+* A set of enabled inference rules (see InferenceRule), run together with AC-3
+* until neither can remove another value. An Inference is immutable, so one
+* instance is shared by every solve and thread.
+*/
+public final class Inference {
+
+  /* No rules: plain AC-3. */
+  public static final Inference NONE = new Inference(EnumSet.noneOf(InferenceRule.class));
+
+  /* Every rule. */
+  public static final Inference ALL = new Inference(EnumSet.allOf(InferenceRule.class));
+
+  private final Set<InferenceRule> enabled;
+  private final InferenceRule[] rules; //enabled rules, cheapest first
+
+  private Inference(EnumSet<InferenceRule> enabled){
+    this.enabled = Collections.unmodifiableSet(enabled);
+    this.rules = enabled.toArray(new InferenceRule[0]);
+  }
+
+  /*
+  * Creates a set of enabled rules.
+  * @param rules the rules to run
+  * @return the inference
+  */
+  public static Inference of(InferenceRule... rules){
+    EnumSet<InferenceRule> enabled = EnumSet.noneOf(InferenceRule.class);
+    enabled.addAll(Arrays.asList(rules));
+    return new Inference(enabled);
+  }
+
+  /*
+  * Parses a comma separated list of rule names, such as
+  * "hidden-single,naked-pair", or one of "all" and "none".
+  * @param names the rule names
+  * @return the inference
+  * @throws IllegalArgumentException if a name is not a rule
+  */
+  public static Inference parse(String names){
+    if(names.equals("all")){
+      return ALL;
+    }
+    if(names.equals("none") || names.isEmpty()){
+      return NONE;
+    }
+    EnumSet<InferenceRule> enabled = EnumSet.noneOf(InferenceRule.class);
+    for(String name : names.split(",")){
+      enabled.add(InferenceRule.forName(name.trim()));
+    }
+    return new Inference(enabled);
+  }
+
+  /*
+  * @return the enabled rules
+  */
+  public Set<InferenceRule> rules(){
+    return enabled;
+  }
+
+  /*
+  * @return true if no rule is enabled
+  */
+  public boolean isEmpty(){
+    return rules.length == 0;
+  }
+
+  /*
+  * Runs the enabled rules, cheapest first, until one of them removes a value.
+  * The remaining rules are left for the next round, after AC-3 has propagated
+  * that change, because the cheap rules often finish the job. When nothing is
+  * removed, the board is at a fixpoint of the rules.
+  * @param variables the board, changed in place
+  * @param queue receives the incoming arcs of every narrowed variable
+  * @param trail records the old domain of every narrowed variable, or null
+  * @return the number of values removed, or InferenceRule.CONTRADICTION
+  */
+  public int apply(int[] variables, ArcQueue queue, Trail trail){
+    for(InferenceRule rule : rules){
+      int removed = rule.apply(variables, queue, trail);
+      if(removed != 0){
+        return removed;
+      }
+    }
+    return 0;
+  }
+
+  public String toString(){
+    if(rules.length == 0){
+      return "none";
+    }
+    StringBuilder names = new StringBuilder();
+    for(InferenceRule rule : rules){
+      if(names.length() > 0){
+        names.append(',');
+      }
+      names.append(rule.ruleName());
+    }
+    return names.toString();
+  }
+}
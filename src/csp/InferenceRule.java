@@ -0,0 +1,409 @@
+package csp;
+
+/**
+* Inference rules that reason about a whole unit (a row, column or box) at once.
+* AC-3 over the binary difference constraints only finds naked singles: a fixed
+* variable's value is removed from its peers. These rules find the values that
+* a human solver would eliminate by looking at a unit as a whole.
+*
+* Each rule makes one pass over the board and works on it in place. Every domain
+* it narrows is pushed onto the trail, if there is one, and the incoming arcs of
+* the narrowed variable are put on the queue, so AC-3 can carry the change on to
+* the variable's peers. The rules are listed cheapest first.
+*/
+public enum InferenceRule {
+
+  /* A value that fits in only one cell of a unit must go in that cell. */
+  HIDDEN_SINGLE("hidden-single"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      PeerIndex index = queue.index();
+      int size = index.size();
+      int full = Variable.full(size);
+      int removed = 0;
+      for(int unit = 0; unit < index.units(); unit++){
+        //values seen in at least one cell, and in at least two cells
+        int once = 0;
+        int twice = 0;
+        for(int i = 0; i < size; i++){
+          int domain = variables[index.unitCell(unit, i)];
+          twice |= once & domain;
+          once |= domain;
+        }
+        if(once != full){
+          //some value fits nowhere in the unit
+          return CONTRADICTION;
+        }
+
+        int hidden = once & ~twice;
+        while(hidden != 0){
+          int v = Variable.getSingle(hidden);
+          hidden = Variable.remove(hidden, v);
+          int cell = find(index, variables, unit, v);
+          if(cell < 0){
+            //the cell was just fixed to another hidden value
+            return CONTRADICTION;
+          }
+          int r = narrow(cell, Variable.single(v), variables, queue, trail);
+          if(r < 0){
+            return CONTRADICTION;
+          }
+          removed += r;
+        }
+      }
+      return removed;
+    }
+  },
+
+  /* Two cells of a unit holding the same two values take both of them. */
+  NAKED_PAIR("naked-pair"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      return nakedSubsets(2, variables, queue, trail);
+    }
+  },
+
+  /* Two values that fit in the same two cells of a unit, and nowhere else, fill those cells. */
+  HIDDEN_PAIR("hidden-pair"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      return hiddenSubsets(2, variables, queue, trail);
+    }
+  },
+
+  /* A value confined to one row or column of a box cannot go elsewhere in that line. */
+  POINTING("pointing"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      PeerIndex index = queue.index();
+      int size = index.size();
+      int removed = 0;
+      for(int unit = 2 * size; unit < 3 * size; unit++){
+        for(int v = 1; v <= size; v++){
+          int row = -1;
+          int col = -1;
+          boolean sameRow = true;
+          boolean sameCol = true;
+          for(int i = 0; i < size; i++){
+            int cell = index.unitCell(unit, i);
+            if(Variable.contains(variables[cell], v)){
+              sameRow &= row < 0 || row == index.row(cell);
+              sameCol &= col < 0 || col == index.col(cell);
+              row = index.row(cell);
+              col = index.col(cell);
+            }
+          }
+          if(row < 0 || (!sameRow && !sameCol)){
+            continue;
+          }
+
+          //remove v from the rest of the line, outside the box
+          int line = sameRow ? row : size + col;
+          int box = unit - 2 * size;
+          for(int i = 0; i < size; i++){
+            int cell = index.unitCell(line, i);
+            if(index.box(cell) != box){
+              int r = narrow(cell, ~Variable.single(v), variables, queue, trail);
+              if(r < 0){
+                return CONTRADICTION;
+              }
+              removed += r;
+            }
+          }
+        }
+      }
+      return removed;
+    }
+  },
+
+  /* A value confined to one box within a row or column cannot go elsewhere in that box. */
+  BOX_LINE("box-line"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      PeerIndex index = queue.index();
+      int size = index.size();
+      int removed = 0;
+      for(int unit = 0; unit < 2 * size; unit++){
+        for(int v = 1; v <= size; v++){
+          int box = -1;
+          boolean sameBox = true;
+          for(int i = 0; i < size && sameBox; i++){
+            int cell = index.unitCell(unit, i);
+            if(Variable.contains(variables[cell], v)){
+              sameBox = box < 0 || box == index.box(cell);
+              box = index.box(cell);
+            }
+          }
+          if(box < 0 || !sameBox){
+            continue;
+          }
+
+          //remove v from the rest of the box, outside the line
+          for(int i = 0; i < size; i++){
+            int cell = index.unitCell(2 * size + box, i);
+            boolean inLine = unit < size ? index.row(cell) == unit : index.col(cell) == unit - size;
+            if(!inLine){
+              int r = narrow(cell, ~Variable.single(v), variables, queue, trail);
+              if(r < 0){
+                return CONTRADICTION;
+              }
+              removed += r;
+            }
+          }
+        }
+      }
+      return removed;
+    }
+  },
+
+  /* Three cells of a unit holding only three values between them take all three. */
+  NAKED_TRIPLE("naked-triple"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      return nakedSubsets(3, variables, queue, trail);
+    }
+  },
+
+  /* Three values that fit in only the same three cells of a unit fill those cells. */
+  HIDDEN_TRIPLE("hidden-triple"){
+    int apply(int[] variables, ArcQueue queue, Trail trail){
+      return hiddenSubsets(3, variables, queue, trail);
+    }
+  };
+
+  /* Returned by apply when some variable is left without a value. */
+  public static final int CONTRADICTION = -1;
+
+  //{positions, candidates} for the subset rules, one pair per thread, so no rule
+  //allocates while the search runs
+  private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[][]{
+      new int[PeerIndex.MAX_BOX_SIZE * PeerIndex.MAX_BOX_SIZE + 1],
+      new int[PeerIndex.MAX_BOX_SIZE * PeerIndex.MAX_BOX_SIZE + 1]});
+
+  private final String ruleName;
+
+  InferenceRule(String ruleName){
+    this.ruleName = ruleName;
+  }
+
+  /*
+  * Makes one pass of the rule over the board.
+  * @param variables the board, changed in place
+  * @param queue receives the incoming arcs of every narrowed variable
+  * @param trail records the old domain of every narrowed variable, or null
+  * @return the number of values removed, or CONTRADICTION
+  */
+  abstract int apply(int[] variables, ArcQueue queue, Trail trail);
+
+  /*
+  * @return the name used on command lines, e.g. hidden-single
+  */
+  public String ruleName(){
+    return ruleName;
+  }
+
+  /*
+  * Looks a rule up by its command line name.
+  * @param name the rule name
+  * @return the rule
+  * @throws IllegalArgumentException if there is no rule by that name
+  */
+  public static InferenceRule forName(String name){
+    for(InferenceRule rule : values()){
+      if(rule.ruleName.equals(name)){
+        return rule;
+      }
+    }
+    throw new IllegalArgumentException("Unknown inference rule \"" + name + "\"");
+  }
+
+
+  /*
+  * Intersects a variable's domain with a mask, recording the change.
+  * @param cell the cell index of the variable
+  * @param mask the values the variable may keep
+  * @return the number of values removed, or CONTRADICTION if none are left
+  */
+  private static int narrow(int cell, int mask, int[] variables, ArcQueue queue, Trail trail){
+    int old = variables[cell];
+    int domain = old & mask;
+    if(domain == old){
+      return 0;
+    }
+    if(trail != null){
+      trail.push(cell, old);
+    }
+    variables[cell] = domain;
+    if(domain == 0){
+      return CONTRADICTION;
+    }
+
+    PeerIndex index = queue.index();
+    for(int k = 0; k < index.peers(); k++){
+      queue.add(index.incoming(cell, k));
+    }
+    return Variable.size(old ^ domain);
+  }
+
+  /*
+  * @return the only cell of a unit whose domain holds v, or -1 if there is none
+  */
+  private static int find(PeerIndex index, int[] variables, int unit, int v){
+    for(int i = 0; i < index.size(); i++){
+      int cell = index.unitCell(unit, i);
+      if(Variable.contains(variables[cell], v)){
+        return cell;
+      }
+    }
+    return -1;
+  }
+
+  /*
+  * Finds k unfixed cells of a unit whose domains hold only k values between
+  * them, and removes those values from the unit's other cells.
+  */
+  private static int nakedSubsets(int k, int[] variables, ArcQueue queue, Trail trail){
+    PeerIndex index = queue.index();
+    int size = index.size();
+    int[] candidates = SCRATCH.get()[1];
+    int removed = 0;
+    for(int unit = 0; unit < index.units(); unit++){
+      //positions in the unit of the cells small enough to be in a subset
+      int n = 0;
+      for(int i = 0; i < size; i++){
+        int count = Variable.size(variables[index.unitCell(unit, i)]);
+        if(count >= 2 && count <= k){
+          candidates[n++] = i;
+        }
+      }
+      int r = nakedSubsets(k, unit, candidates, n, 0, 0, 0, 0, variables, queue, trail);
+      if(r < 0){
+        return CONTRADICTION;
+      }
+      removed += r;
+    }
+    return removed;
+  }
+
+  /*
+  * Extends a partial naked subset by the candidates from position from on.
+  * @param chosen the number of cells in the subset so far
+  * @param values the union of their domains
+  * @param members their positions in the unit, as a bitmask
+  */
+  private static int nakedSubsets(int k, int unit, int[] candidates, int n, int from, int chosen,
+      int values, int members, int[] variables, ArcQueue queue, Trail trail){
+    PeerIndex index = queue.index();
+    if(chosen == k){
+      if(Variable.size(values) < k){
+        //k cells with fewer than k values between them
+        return CONTRADICTION;
+      }
+      int removed = 0;
+      for(int i = 0; i < index.size(); i++){
+        if((members & (1 << i)) == 0){
+          int r = narrow(index.unitCell(unit, i), ~values, variables, queue, trail);
+          if(r < 0){
+            return CONTRADICTION;
+          }
+          removed += r;
+        }
+      }
+      return removed;
+    }
+
+    int removed = 0;
+    for(int c = from; c < n; c++){
+      int union = values | variables[index.unitCell(unit, candidates[c])];
+      if(Variable.size(union) <= k){
+        int r = nakedSubsets(k, unit, candidates, n, c + 1, chosen + 1, union, members | (1 << candidates[c]),
+            variables, queue, trail);
+        if(r < 0){
+          return CONTRADICTION;
+        }
+        removed += r;
+      }
+    }
+    return removed;
+  }
+
+  /*
+  * Finds k values that fit in only the same k cells of a unit, and removes every
+  * other value from those cells.
+  */
+  private static int hiddenSubsets(int k, int[] variables, ArcQueue queue, Trail trail){
+    PeerIndex index = queue.index();
+    int size = index.size();
+    int[] positions = SCRATCH.get()[0]; //positions[v] = the cells of the unit that may hold v
+    int[] candidates = SCRATCH.get()[1];
+    int removed = 0;
+    for(int unit = 0; unit < index.units(); unit++){
+      for(int v = 1; v <= size; v++){
+        positions[v] = 0;
+      }
+      for(int i = 0; i < size; i++){
+        int domain = variables[index.unitCell(unit, i)];
+        while(domain != 0){
+          int v = Variable.getSingle(domain);
+          domain = Variable.remove(domain, v);
+          positions[v] |= 1 << i;
+        }
+      }
+
+      //values rare enough to be in a subset
+      int n = 0;
+      for(int v = 1; v <= size; v++){
+        int count = Integer.bitCount(positions[v]);
+        if(count == 0){
+          return CONTRADICTION;
+        }
+        if(count >= 2 && count <= k){
+          candidates[n++] = v;
+        }
+      }
+      int r = hiddenSubsets(k, unit, positions, candidates, n, 0, 0, 0, 0, variables, queue, trail);
+      if(r < 0){
+        return CONTRADICTION;
+      }
+      removed += r;
+    }
+    return removed;
+  }
+
+  /*
+  * Extends a partial hidden subset by the candidate values from position from on.
+  * @param chosen the number of values in the subset so far
+  * @param values the values, as a domain bitmask
+  * @param cells the union of their positions in the unit, as a bitmask
+  */
+  private static int hiddenSubsets(int k, int unit, int[] positions, int[] candidates, int n, int from,
+      int chosen, int values, int cells, int[] variables, ArcQueue queue, Trail trail){
+    PeerIndex index = queue.index();
+    if(chosen == k){
+      if(Integer.bitCount(cells) < k){
+        //k values with fewer than k cells between them
+        return CONTRADICTION;
+      }
+      int removed = 0;
+      for(int i = 0; i < index.size(); i++){
+        if((cells & (1 << i)) != 0){
+          int r = narrow(index.unitCell(unit, i), values, variables, queue, trail);
+          if(r < 0){
+            return CONTRADICTION;
+          }
+          removed += r;
+        }
+      }
+      return removed;
+    }
+
+    int removed = 0;
+    for(int c = from; c < n; c++){
+      int v = candidates[c];
+      int union = cells | positions[v];
+      if(Integer.bitCount(union) <= k){
+        int r = hiddenSubsets(k, unit, positions, candidates, n, c + 1, chosen + 1, values | Variable.single(v), union,
+            variables, queue, trail);
+        if(r < 0){
+          return CONTRADICTION;
+        }
+        removed += r;
+      }
+    }
+    return removed;
+  }
+}
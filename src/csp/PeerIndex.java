@@ -0,0 +1,230 @@
+package csp;
+
+/**
+* A precomputed index of the binary difference constraints of a sudoku board,
+* stored as flat int arrays so AC-3 never has to scan the constraint list.
+*
+* A board of box order n has size N = n*n (9 for n = 3, 16 for n = 4, 25 for
+* n = 5) and N*N variables. Every variable (cell = row*N+col) has exactly
+* peers() peers: the other variables in its row, column, and box. Arc (Xi, Xj)
+* is numbered Xi*peers() + k, where Xj is the k-th peer of Xi, so the index
+* doubles as the list of all arcs() directed constraints. An index is immutable
+* and built once per box order, so it is shared by every solve.
+*
+* The index also lists the 3N units (rows, then columns, then boxes) whose
+* cells must all differ, for the rules that reason about a whole unit at once.
+*/
+public final class PeerIndex {
+  public static final int MIN_BOX_SIZE = 2;
+  public static final int MAX_BOX_SIZE = 5; //25 values still fit in an int domain
+
+  //one lazily built index per box order
+  private static final PeerIndex[] CACHE = new PeerIndex[MAX_BOX_SIZE + 1];
+
+  /* The single shared index for 9x9 boards. */
+  public static final PeerIndex SUDOKU = forBoxSize(3);
+
+  private final int boxSize;
+  private final int size;
+  private final int cells;
+  private final int peerCount;
+  private final int[] peers;    //peers[arc] = the second variable of the arc
+  private final int[] incoming; //incoming[Xi*peers()+k] = the arc (Xk, Xi) pointing back at Xi
+  private final int[] unitCells; //unitCells[unit*N+i] = the i-th cell of the unit
+
+  private PeerIndex(int boxSize){
+    this.boxSize = boxSize;
+    size = boxSize * boxSize;
+    cells = size * size;
+    peerCount = 2 * (size - 1) + (boxSize - 1) * (boxSize - 1);
+    peers = new int[cells * peerCount];
+    incoming = new int[cells * peerCount];
+    unitCells = new int[3 * size * size];
+
+    //rows, columns and boxes, each listing its cells in reading order
+    for(int i = 0; i < size; i++){
+      for(int j = 0; j < size; j++){
+        unitCells[i * size + j] = i * size + j;
+        unitCells[(size + i) * size + j] = j * size + i;
+        int row = (i / boxSize) * boxSize + j / boxSize;
+        int col = (i % boxSize) * boxSize + j % boxSize;
+        unitCells[(2 * size + i) * size + j] = row * size + col;
+      }
+    }
+
+    //collect the peers of each cell in row, column, box order without duplicates
+    for(int cell = 0; cell < cells; cell++){
+      int row = cell / size;
+      int col = cell % size;
+      int n = 0;
+      for(int other = 0; other < cells; other++){
+        int oRow = other / size;
+        int oCol = other % size;
+        if(other != cell && (oRow == row || oCol == col || box(other) == box(cell))){
+          peers[cell * peerCount + n++] = other;
+        }
+      }
+    }
+
+    //link every arc (Xi, Xj) to its reverse (Xj, Xi)
+    for(int arc = 0; arc < peers.length; arc++){
+      int cell = arc / peerCount;
+      int other = peers[arc];
+      for(int k = 0; k < peerCount; k++){
+        if(peers[other * peerCount + k] == cell){
+          incoming[arc] = other * peerCount + k;
+        }
+      }
+    }
+
+  }
+
+  /*
+  * Gets the shared index for boards of a given box order.
+  * @param boxSize the box order n, so the board is n*n by n*n
+  * @return the index
+  */
+  public static synchronized PeerIndex forBoxSize(int boxSize){
+    if(boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE){
+      throw new IllegalArgumentException("Unsupported box size " + boxSize);
+    }
+    if(CACHE[boxSize] == null){
+      CACHE[boxSize] = new PeerIndex(boxSize);
+    }
+    return CACHE[boxSize];
+  }
+
+  /*
+  * Gets the shared index for boards with a given number of rows.
+  * @param size the board size N, which must be a square (4, 9, 16 or 25)
+  * @return the index
+  */
+  public static PeerIndex forSize(int size){
+    int boxSize = (int) Math.round(Math.sqrt(size));
+    if(boxSize * boxSize != size){
+      throw new IllegalArgumentException("Board size " + size + " is not a square");
+    }
+    return forBoxSize(boxSize);
+  }
+
+  /*
+  * @return the box order n
+  */
+  public int boxSize(){
+    return boxSize;
+  }
+
+  /*
+  * @return the number of rows, columns, boxes and values N
+  */
+  public int size(){
+    return size;
+  }
+
+  /*
+  * @return the number of variables N*N
+  */
+  public int cells(){
+    return cells;
+  }
+
+  /*
+  * @return the number of peers of every variable
+  */
+  public int peers(){
+    return peerCount;
+  }
+
+  /*
+  * @return the number of directed arcs
+  */
+  public int arcs(){
+    return peers.length;
+  }
+
+  /*
+  * @return the number of units 3N: rows 0..N-1, columns N..2N-1, boxes 2N..3N-1
+  */
+  public int units(){
+    return 3 * size;
+  }
+
+  /*
+  * Gets the i-th cell of a unit, in reading order.
+  * @param unit the unit number
+  * @param i the position in the unit, 0 <= i < size()
+  * @return the cell index of the variable
+  */
+  public int unitCell(int unit, int i){
+    return unitCells[unit * size + i];
+  }
+
+  /*
+  * Gets the row a variable lies in.
+  * @param cell the cell index of the variable
+  * @return the row number, which is also its unit number
+  */
+  public int row(int cell){
+    return cell / size;
+  }
+
+  /*
+  * Gets the column a variable lies in.
+  * @param cell the cell index of the variable
+  * @return the column number; its unit number is size() + column
+  */
+  public int col(int cell){
+    return cell % size;
+  }
+
+  /*
+  * Gets the box a variable lies in, numbered left to right, top to bottom.
+  * @param cell the cell index of the variable
+  * @return the box number
+  */
+  public int box(int cell){
+    int row = cell / size;
+    int col = cell % size;
+    return (row / boxSize) * boxSize + col / boxSize;
+  }
+
+  /*
+  * Gets the first variable of an arc, the one whose domain gets revised.
+  * @param arc the arc number
+  * @return the cell index of the variable
+  */
+  public int source(int arc){
+    return arc / peerCount;
+  }
+
+  /*
+  * Gets the second variable of an arc, the one the first is checked against.
+  * @param arc the arc number
+  * @return the cell index of the variable
+  */
+  public int target(int arc){
+    return peers[arc];
+  }
+
+  /*
+  * Gets the k-th peer of a variable.
+  * @param cell the cell index of the variable
+  * @param k the peer number, 0 <= k < peers()
+  * @return the cell index of the peer
+  */
+  public int peer(int cell, int k){
+    return peers[cell * peerCount + k];
+  }
+
+  /*
+  * Gets the arc from the k-th peer of a variable back to that variable. These
+  * are the arcs to revisit when the variable's domain shrinks.
+  * @param cell the cell index of the variable
+  * @param k the peer number, 0 <= k < peers()
+  * @return the arc number of (peer, cell)
+  */
+  public int incoming(int cell, int k){
+    return incoming[cell * peerCount + k];
+  }
+
+}
@@ -0,0 +1,92 @@
+package csp;
+
+/**
+* An undo log of domain changes for search that works on a single board in
+* place. Before a domain is narrowed its old value is pushed; backtracking pops
+* entries back to a saved mark, restoring every domain changed since then.
+*
+* Each entry removes at least one value from a domain, so along one search path
+* there can be at most cells*size entries and the trail never grows.
+*/
+public final class Trail {
+  private final int[] cells;
+  private final int[] domains;
+  private int size;
+
+  /*
+  * Creates an empty trail with room for every domain change on one path of a
+  * 9x9 board.
+  */
+  public Trail(){
+    this(PeerIndex.SUDOKU);
+  }
+
+  /*
+  * Creates an empty trail with room for every domain change on one path.
+  * @param index the peers and arcs of the board
+  */
+  public Trail(PeerIndex index){
+    cells = new int[index.cells() * index.size()];
+    domains = new int[cells.length];
+  }
+
+  /*
+  * Records the domain a variable had before it is changed.
+  * @param cell the cell index of the variable
+  * @param oldDomain its domain before the change
+  */
+  public void push(int cell, int oldDomain){
+    cells[size] = cell;
+    domains[size] = oldDomain;
+    size++;
+  }
+
+  /*
+  * Gets a mark to undo back to later.
+  * @return the current number of entries
+  */
+  public int mark(){
+    return size;
+  }
+
+  /*
+  * Gets the variable of an entry.
+  * @param i the entry number, 0 <= i < mark()
+  * @return the cell index of the variable that entry changed
+  */
+  public int cell(int i){
+    return cells[i];
+  }
+
+  /*
+  * Restores the domain changed by the latest entry and removes the entry.
+  * @param variables the board the change was made to
+  * @return the cell index of the restored variable
+  */
+  public int pop(int[] variables){
+    size--;
+    variables[cells[size]] = domains[size];
+    return cells[size];
+  }
+
+  /*
+  * Drops every entry without restoring anything, to reuse the trail for
+  * another board.
+  */
+  public void clear(){
+    size = 0;
+  }
+
+  /*
+  * Restores every domain changed since the mark was taken.
+  * @param mark a value returned by mark()
+  * @param variables the board the changes were made to
+  */
+  public void undo(int mark, int[] variables){
+    while(size > mark){
+      size--;
+      variables[cells[size]] = domains[size];
+    }
+  }
+
+}
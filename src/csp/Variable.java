@@ -1,77 +1,114 @@
 package csp;
-import java.util.ArrayList;
 
 /**
-* A variable in a CSP that takes on an integer value between 1 and 9.
+* A variable in a CSP that takes on an integer value between 1 and N, where N is
+* the board size (9 for a standard board, up to 25).
 * The value of the variable may be specified by the original problem.
+*
+* A variable's domain is stored as a bitmask in a plain int: bit v is set iff
+* the value v is still in the domain (bit 0 is unused). A whole board is then
+* just an int[] of domains indexed by row*N+col, so copying a board or pruning a
+* value never allocates or boxes.
 */
-public class Variable {
-  public ArrayList<Integer> domain; //list of entire domain of Variable
+public final class Variable {
 
-  /*
-  * Constructor for creating a variable with the domain {1-9}.
-  * @param row the variable's row number
-  * @param col the variable's column number
-  */
-  public Variable(){
-    domain = new ArrayList<Integer>();
-    domain.add(1);
-    domain.add(2);
-    domain.add(3);
-    domain.add(4);
-    domain.add(5);
-    domain.add(6);
-    domain.add(7);
-    domain.add(8);
-    domain.add(9);
+  /* The domain {1-9}. */
+  public static final int FULL = full(9);
 
+  private Variable(){
   }
 
   /*
-  * Constructor for creating a variable with the domain specified by the input ArrayList.
-  * @param inputDomain the domain set this variable to.
+  * Creates the domain {1-size}.
+  * @param size the board size N
+  * @return the full domain
   */
-  public Variable(ArrayList<Integer> inputDomain){
-    domain = new ArrayList<Integer>();
-    for(int i = 0; i < inputDomain.size(); i++){
-      domain.add(inputDomain.get(i));
-    }
+  public static int full(int size){
+    return ((1 << (size + 1)) - 1) & ~1;
   }
 
   /*
-  * Constructor for creating a variable with a domain of a single given value.
+  * Creates a domain of a single given value.
   * @param v the known domain value
+  * @return the domain {v}
   */
-  public Variable(int v){
-    domain = new ArrayList<Integer>();
-    domain.add(v);
+  public static int single(int v){
+    return 1 << v;
   }
 
+  /*
+  * Gets the number of values in the domain.
+  * @param domain the domain bitmask
+  * @return the domain size
+  */
+  public static int size(int domain){
+    return Integer.bitCount(domain);
+  }
 
   /*
-  * Gets the only value from the domain.
+  * Gets the smallest value from the domain. For a fixed variable this is its
+  * only value.
+  * @param domain the domain bitmask
   * @return the int domain value
   */
-  public int getSingle(){
-    return domain.get(0);
+  public static int getSingle(int domain){
+    return Integer.numberOfTrailingZeros(domain);
   }
 
+  /*
+  * Determines if the domain holds exactly one value.
+  * @param domain the domain bitmask
+  * @return true if the domain size is 1
+  */
+  public static boolean isSingle(int domain){
+    return domain != 0 && (domain & (domain - 1)) == 0;
+  }
 
   /*
-  * Determines if the domain of this variable is equal to that of another Variable
-  * @param other another variable to compare this one to.
-  * @return true if Values have the same domain, otherwise false. 
+  * Determines if a value is in the domain.
+  * @param domain the domain bitmask
+  * @param v the value to look for
+  * @return true if v is in the domain
   */
-  public boolean equalDomain(Variable other){
-    if(domain.size() != other.domain.size()){
-      return false;
-    }
-    for(int i = 0; i < domain.size(); i++){
-      if(domain.get(i) != other.domain.get(i)){
-        return false;
+  public static boolean contains(int domain, int v){
+    return (domain & (1 << v)) != 0;
+  }
+
+  /*
+  * Removes a value from the domain.
+  * @param domain the domain bitmask
+  * @param v the value to remove
+  * @return the domain without v
+  */
+  public static int remove(int domain, int v){
+    return domain & ~(1 << v);
+  }
+
+  /*
+  * Builds a board of domains from an N by N board of ints, where 0 marks an
+  * unknown variable that gets the full {1-N} domain.
+  * @param original the int board
+  * @return the board of domains, indexed by row*N+col
+  * @throws IllegalArgumentException if the board is not square or holds a
+  *     value outside 0..N
+  */
+  public static int[] fromInts(int[][] original){
+    int size = original.length;
+    int full = full(size);
+    int[] domains = new int[size * size];
+    for(int row = 0; row < size; row++){
+      if(original[row].length != size){
+        throw new IllegalArgumentException("Board is not square");
+      }
+      for(int col = 0; col < size; col++){
+        int v = original[row][col];
+        if(v < 0 || v > size){
+          throw new IllegalArgumentException("Value " + v + " out of range at " + row + "," + col);
+        }
+        domains[row * size + col] = v != 0 ? single(v) : full;
       }
     }
-    return true;
+    return domains;
   }
 
 }
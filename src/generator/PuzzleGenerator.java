@@ -0,0 +1,325 @@
+package generator;
+import csp.Inference;
+import csp.InferenceRule;
+import csp.PeerIndex;
+import csp.Variable;
+import io.PuzzFormat;
+import io.PuzzleArchiveWriter;
+import io.PuzzleWriter;
+import io.SolvePipeline;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import search.DancingLinks;
+import search.Solver;
+import search.SolverOptions;
+
+/**
+* Generates random puzzles with exactly one solution. Each puzzle starts as a
+* random complete grid: the boxes on the main diagonal do not constrain each
+* other, so each is filled with a random permutation, and Dancing Links
+* completes the rest. Clues are then removed one at a time in random order,
+* and any removal that would let the puzzle have a second solution is put back,
+* until every clue left is needed or the minimum clue count is reached.
+*
+* Puzzle i of a run is generated from its own random stream, split off the run's
+* seed by index, so a run gives the same puzzles however many threads take part.
+* Puzzles are generated a window at a time on a fork-join pool and written in
+* order, so memory stays bounded however many are asked for.
+*
+* Usage: java generator.PuzzleGenerator <count> <output> [minClues] [boxSize] [seed]
+* where an output ending in .sda is written as an archive of puzzles with their
+* solutions, an existing directory receives one .puzz file per puzzle, and
+* anything else is written as a LineFormat file with one puzzle per line.
+*/
+public class PuzzleGenerator {
+
+	public static final int DEFAULT_WINDOW = 4096;
+
+	//hidden singles refute most removals without search, for far less than a
+	//full AllDifferent filtering costs
+	private static final SolverOptions UNIQUENESS =
+			SolverOptions.DEFAULT.withRules(Inference.of(InferenceRule.HIDDEN_SINGLE)).withSelection(SolverOptions.Selection.MRV);
+
+	private final PeerIndex index;
+	private final int minClues;
+	private final ForkJoinPool pool;
+	private final DancingLinks completer = new DancingLinks();
+
+	/*
+	* Creates a generator of 9x9 puzzles with as few clues as uniqueness allows,
+	* on the common fork-join pool.
+	*/
+	public PuzzleGenerator(){
+		this(3, 0, ForkJoinPool.commonPool());
+	}
+
+	/*
+	* Creates a generator.
+	* @param boxSize the box order n, so puzzles are n*n by n*n
+	* @param minClues stop removing clues once this many are left; 0 to remove
+	*			every clue that is not needed for uniqueness
+	* @param pool the pool whose threads generate the puzzles
+	*/
+	public PuzzleGenerator(int boxSize, int minClues, ForkJoinPool pool){
+		this.index = PeerIndex.forBoxSize(boxSize);
+		this.minClues = minClues;
+		this.pool = pool;
+	}
+
+	/*
+	* Generates one puzzle.
+	* @param seed the run's seed
+	* @param n the number of the puzzle in the run
+	* @return the puzzle and its solution
+	*/
+	public Puzzle generate(long seed, long n){
+		SplittableRandom random = new SplittableRandom(mix(seed, n));
+		int[][] solution = grid(random);
+		return new Puzzle(removeClues(solution, random), solution);
+	}
+
+	/*
+	* Generates puzzles 0..count-1 of a run in parallel.
+	* @param seed the run's seed
+	* @param count how many to generate
+	* @return the puzzles, in order
+	*/
+	public List<Puzzle> generate(long seed, int count){
+		return generate(seed, 0, count);
+	}
+
+	/*
+	* Generates a random complete grid.
+	* @param random the source of randomness
+	* @return a solved board
+	*/
+	public int[][] grid(SplittableRandom random){
+		int size = index.size();
+		int boxSize = index.boxSize();
+		int[] values = new int[size];
+		while(true){
+			int[][] board = new int[size][size];
+			for(int box = 0; box < boxSize; box++){
+				shuffle(values, random);
+				for(int i = 0; i < size; i++){
+					board[box * boxSize + i / boxSize][box * boxSize + i % boxSize] = values[i];
+				}
+			}
+
+			//on 4x4 boards some diagonals cannot be completed; draw again
+			int[][] grid = completer.solve(board);
+			if(grid != null){
+				return grid;
+			}
+		}
+	}
+
+	/*
+	* Removes clues from a solved board in random order while the puzzle keeps
+	* a unique solution.
+	* @param solution a solved board; it is not changed
+	* @param random the source of randomness
+	* @return the puzzle
+	*/
+	public int[][] removeClues(int[][] solution, SplittableRandom random){
+		int size = index.size();
+		int[][] puzzle = new int[size][];
+		for(int row = 0; row < size; row++){
+			puzzle[row] = solution[row].clone();
+		}
+
+		int[] cells = new int[index.cells()];
+		for(int i = 0; i < cells.length; i++){
+			cells[i] = i;
+		}
+		shuffleOrder(cells, random);
+
+		//the puzzle without a clue is still unique iff no solution gives that
+		//cell another value, which is a single search that usually fails fast
+		int[] domains = Variable.fromInts(puzzle);
+		int full = Variable.full(size);
+		int clues = cells.length;
+		for(int i = 0; i < cells.length && clues > minClues; i++){
+			int cell = cells[i];
+			int clue = domains[cell];
+			domains[cell] = full & ~clue;
+			if(!Solver.isSatisfiable(domains, UNIQUENESS)){
+				domains[cell] = full;
+				puzzle[cell / size][cell % size] = 0;
+				clues--;
+			}
+			else{
+				domains[cell] = clue;
+			}
+		}
+		return puzzle;
+	}
+
+	/*
+	* Generates puzzles first..first+count-1 of a run in parallel.
+	*/
+	private List<Puzzle> generate(long seed, long first, int count){
+		try{
+			return pool.submit(() -> IntStream.range(0, count)
+					.parallel()
+					.mapToObj(i -> generate(seed, first + i))
+					.collect(Collectors.toList())).get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating puzzles", e);
+		}
+		catch(ExecutionException e){
+			throw new IllegalStateException("Generating puzzles failed", e.getCause());
+		}
+	}
+
+	/*
+	* Generates puzzles a window at a time and hands each window to a sink.
+	*/
+	private void run(long seed, long count, Sink sink) throws IOException {
+		for(long first = 0; first < count; first += DEFAULT_WINDOW){
+			int n = (int) Math.min(DEFAULT_WINDOW, count - first);
+			List<Puzzle> puzzles = generate(seed, first, n);
+			for(int i = 0; i < n; i++){
+				sink.accept(first + i, puzzles.get(i));
+			}
+		}
+	}
+
+	/*
+	* Where each generated puzzle goes, in order.
+	*/
+	private interface Sink {
+		void accept(long n, Puzzle puzzle) throws IOException;
+	}
+
+	/*
+	* Fills values with a random permutation of 1..N.
+	*/
+	private static void shuffle(int[] values, SplittableRandom random){
+		for(int i = 0; i < values.length; i++){
+			values[i] = i + 1;
+		}
+		shuffleOrder(values, random);
+	}
+
+	/*
+	* Fisher-Yates shuffle in place.
+	*/
+	private static void shuffleOrder(int[] values, SplittableRandom random){
+		for(int i = values.length - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			int swap = values[i];
+			values[i] = values[j];
+			values[j] = swap;
+		}
+	}
+
+	/*
+	* Derives puzzle n's seed from the run's seed (the SplitMix64 finalizer).
+	*/
+	private static long mix(long seed, long n){
+		long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+
+	/*
+	* A generated puzzle and its unique solution.
+	*/
+	public static final class Puzzle {
+		private final int[][] puzzle;
+		private final int[][] solution;
+
+		Puzzle(int[][] puzzle, int[][] solution){
+			this.puzzle = puzzle;
+			this.solution = solution;
+		}
+
+		/*
+		* @return the puzzle, with 0 for every removed clue
+		*/
+		public int[][] getPuzzle(){
+			return puzzle;
+		}
+
+		/*
+		* @return its only solution
+		*/
+		public int[][] getSolution(){
+			return solution;
+		}
+
+		/*
+		* @return the number of clues left in the puzzle
+		*/
+		public int getClues(){
+			int clues = 0;
+			for(int[] row : puzzle){
+				for(int v : row){
+					if(v != 0){
+						clues++;
+					}
+				}
+			}
+			return clues;
+		}
+	}
+
+
+	public static void main(String[] args){
+		if(args.length < 2 || args.length > 5){
+			System.err.println("Usage: java generator.PuzzleGenerator <count> <output> [minClues] [boxSize] [seed]");
+			System.exit(-1);
+		}
+		try{
+			long count = Long.parseLong(args[0]);
+			Path output = Paths.get(args[1]);
+			int minClues = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+			int boxSize = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+			long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+			PuzzleGenerator generator = new PuzzleGenerator(boxSize, minClues, ForkJoinPool.commonPool());
+			int size = boxSize * boxSize;
+
+			long start = System.nanoTime();
+			if(args[1].endsWith(SolvePipeline.ARCHIVE_SUFFIX)){
+				try(PuzzleArchiveWriter out = new PuzzleArchiveWriter(output, size, true)){
+					generator.run(seed, count, (n, p) -> out.append(p.getPuzzle(), p.getSolution()));
+				}
+			}
+			else if(Files.isDirectory(output)){
+				generator.run(seed, count, (n, p) -> {
+					try(Writer out = Files.newBufferedWriter(output.resolve(String.format("puzzle-%06d.puzz", n)),
+							StandardCharsets.US_ASCII)){
+						PuzzFormat.write(p.getPuzzle(), out);
+					}
+				});
+			}
+			else{
+				try(PuzzleWriter out = new PuzzleWriter(output)){
+					generator.run(seed, count, (n, p) -> out.write(p.getPuzzle()));
+				}
+			}
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.err.println("Generated " + count + " puzzles in " + millis + " ms (seed " + seed + ")");
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -1,12 +1,18 @@
 package graphics;
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Graphics;
 import java.awt.Point;
 
+import javax.swing.JButton;
 import javax.swing.JFrame;
-import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+
+import search.BacktrackingStrategy;
+import search.SolverStrategy;
+import search.Strategies;
 
 public class Sudoku{
 
@@ -16,16 +22,38 @@ public class Sudoku{
      * this method should be invoked from the
      * event-dispatching thread.
      */
-    private static void createAndShowGUI(String filename) {
+    private static void createAndShowGUI(String filename, SolverStrategy strategy) {
         //Create and set up the window.
         JFrame frame = new JFrame("Sudoku");
         frame.setLocation(new Point(700, 10));
-        frame.setPreferredSize(new Dimension(500, 500));
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setResizable(false);
-        JPanel panel = new SudokuPanel(filename);
+        SudokuPanel panel = new SudokuPanel(filename, strategy);
         panel.setBackground(Color.WHITE);
-        frame.add(panel);
+        panel.setPreferredSize(new Dimension(500, 470));
+        frame.add(panel, BorderLayout.CENTER);
+
+        //Solve in the background, showing the progress until the solve ends
+        JProgressBar progress = new JProgressBar(0, 100);
+        progress.setStringPainted(true);
+        progress.setString("Solving...");
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(e -> panel.cancel());
+        JPanel status = new JPanel(new BorderLayout());
+        status.add(progress, BorderLayout.CENTER);
+        status.add(cancel, BorderLayout.EAST);
+        frame.add(status, BorderLayout.SOUTH);
+
+        SwingWorker<int[][], int[][]> worker = panel.solve(Boolean.getBoolean("sudoku.live"));
+        worker.addPropertyChangeListener(e -> {
+            if("progress".equals(e.getPropertyName())) {
+                progress.setValue((Integer) e.getNewValue());
+            }
+            else if(e.getNewValue() == SwingWorker.StateValue.DONE) {
+                cancel.setEnabled(false);
+                progress.setString(worker.isCancelled() ? "Cancelled" : panel.isSolved() ? "Solved" : "No solution");
+            }
+        });
 
         //Display the window.
         frame.pack();
@@ -33,15 +61,26 @@ public class Sudoku{
     }
 
     public static void main(String[] args) {
-    	if(args.length != 1) {
-    		System.err.println("Usage: java Sudoku <puzzle>");
+    	if(args.length < 1 || args.length > 2) {
+    		System.err.println("Usage: java [-Dsudoku.live=true] Sudoku <puzzle> [csp|gac[:rules]|dlx|sat|parallel|portfolio|routed]");
     		System.exit(-1);
     	}
+    	SolverStrategy strategy = new BacktrackingStrategy();
+    	if(args.length == 2) {
+    		try {
+    			strategy = Strategies.forName(args[1]);
+    		}
+    		catch(IllegalArgumentException e) {
+    			System.err.println(e.getMessage());
+    			System.exit(-1);
+    		}
+    	}
+    	final SolverStrategy chosen = strategy;
     	//Schedule a job for the event-dispatching thread:
         //creating and showing this application's GUI.
         javax.swing.SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                createAndShowGUI(args[0]);
+                createAndShowGUI(args[0], chosen);
             }
         });
     }
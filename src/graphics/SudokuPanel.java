@@ -4,116 +4,271 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
-import search.Solver;
+import csp.Variable;
+import io.PuzzFormat;
+import search.BacktrackingStrategy;
+import search.CancellationToken;
+import search.SearchListener;
+import search.SolveBudget;
+import search.SolverStrategy;
 
-public class SudokuPanel extends JPanel {	
+/**
+* Shows a puzzle and solves it on a background thread, so the window stays live
+* however long the search takes. The grid is drawn once into an offscreen image
+* and only redrawn when the board or the panel size changes; a repaint just
+* copies the image.
+*/
+public class SudokuPanel extends JPanel {
 	private static final int BOARD_SIZE = 9;
 	private static int MARGIN = 10;
-	private int[][] solution;
+	// The most boards a live solve shows per second
+	private static final long FRAME_NANOS = 1000000000L / 30;
+	// "1".."25", so drawing a value never builds a string
+	private static final String[] LABELS = new String[26];
+	static {
+		for(int v = 1; v < LABELS.length; v++) {
+			LABELS[v] = Integer.toString(v);
+		}
+	}
+
+	private final SolverStrategy strategy;
+	private int boardSize;
+	private int boxSize;
 	private int[][] original;
-	
+	private int[][] board;
+	private boolean solved;
+	private final Font originalValues;
+	private final Font inferredValues;
+	private FontMetrics originalMetrics;
+	private FontMetrics inferredMetrics;
+	private BufferedImage image;
+	private SolveWorker worker;
+
 	public SudokuPanel(String filename){
-		original = new int[BOARD_SIZE][BOARD_SIZE];
-		
-		try {
-			Scanner scanner = new Scanner(new File(filename));
-			while (scanner.hasNextLine()) {
-
-				// read a line, split it up
-				String line = scanner.nextLine();
-				String[] tokens = line.split(" ");
-				//System.out.println(line);
-				if(tokens.length != 3) {
-					System.err.println("Error: badly formed file");
-					System.exit(1);
-				}
+		this(filename, new BacktrackingStrategy());
+	}
 
-				int row = Integer.parseInt(tokens[0]);
-				int col = Integer.parseInt(tokens[1]);
-				int val = Integer.parseInt(tokens[2]);
-				if(row < 1 || row > BOARD_SIZE || col < 1 || col > BOARD_SIZE) {
-					System.err.println("Error: file contains invalid row/col coordinates");
-					System.exit(1);
-				}
-				if(val < 1 || val > 9) {
-					System.err.println("Error: values are out of range");
-					System.exit(1);
-				}
-				original[row-1][col-1] = val;
-			}
-			
-			// all read in--close Scanner & convert to int[][]
-			scanner.close();
+	/*
+	* Reads a puzzle to show. Call solve to start solving it.
+	* @param filename the .puzz file
+	* @param strategy the engine to solve it with
+	*/
+	public SudokuPanel(String filename, SolverStrategy strategy){
+		try {
+			original = PuzzFormat.read(Paths.get(filename));
 		}
-		catch (FileNotFoundException e) {
+		catch (NoSuchFileException e) {
 			System.err.println("Error: Could not find file \"" +filename+ "\".");
 			System.exit(1);
 		}
-		catch(NumberFormatException e) {
-			System.err.println("File contains non-integer values");
+		catch (IOException e) {
+			System.err.println("Error: Could not read file \"" +filename+ "\": " + e.getMessage());
 			System.exit(1);
 		}
-		
-		// This calls your solver method to solve the Sudoku puzzle
-		solution = Solver.solve(original);	
-		if(solution == null) {
-			solution = original;
+		catch(IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		this.strategy = strategy;
+		boardSize = original.length;
+		boxSize = (int) Math.round(Math.sqrt(boardSize));
+		board = original;
+
+		// 26pt and 22pt on a 9x9 board, shrinking with the tiles on larger boards
+		originalValues = new Font("Times Roman", Font.BOLD, 26*BOARD_SIZE/boardSize);
+		inferredValues = new Font("Times Roman", Font.PLAIN, 22*BOARD_SIZE/boardSize);
+	}
+
+	/*
+	* Starts solving the puzzle on a background thread, cancelling any solve
+	* still running. The returned worker reports the share of fixed cells as its
+	* progress and can be watched for the end of the solve.
+	* @param live true to draw the board as the search changes it, false to
+	*			draw only the solution
+	* @return the running solve
+	*/
+	public SwingWorker<int[][], int[][]> solve(boolean live) {
+		cancel();
+		worker = new SolveWorker(live);
+		worker.execute();
+		return worker;
+	}
+
+	/*
+	* Stops the running solve, if any, and keeps the board it had reached. The
+	* CSP engine stops at its next node; other engines cannot be interrupted and
+	* finish in the background with their result thrown away.
+	*/
+	public void cancel() {
+		if(worker != null && !worker.isDone()) {
+			worker.token.cancel();
+			worker.cancel(false);
 		}
 	}
-	
+
+	/*
+	* @return true once a solve has finished with a solution
+	*/
+	public boolean isSolved() {
+		return solved;
+	}
+
+	/*
+	* Shows a board and marks the cached image stale.
+	*/
+	private void setBoard(int[][] board) {
+		this.board = board;
+		image = null;
+		repaint();
+	}
+
 	public void paintComponent(Graphics g) {
-		super.paintComponent(g);	
-		Graphics2D g2 = (Graphics2D) g;
-		
-		final int TILE_WIDTH = (getWidth()-2*MARGIN)/BOARD_SIZE;
-		final int TILE_HEIGHT = (getHeight()-2*MARGIN)/BOARD_SIZE;
-		
-		FontMetrics metrics = g2.getFontMetrics();
-		int fontHeight = metrics.getHeight();
-		
-		Font originalValues = new Font("Times Roman", Font.BOLD, 26);
-		Font inferredValues = new Font("Times Roman", Font.PLAIN, 22);
-		
-		
+		super.paintComponent(g);
+		if(image == null || image.getWidth() != getWidth() || image.getHeight() != getHeight()) {
+			image = render();
+		}
+		g.drawImage(image, 0, 0, null);
+	}
+
+	/*
+	* Draws the board into a new image the size of the panel.
+	*/
+	private BufferedImage render() {
+		BufferedImage image = new BufferedImage(Math.max(getWidth(), 1), Math.max(getHeight(), 1), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = image.createGraphics();
+		g2.setColor(getBackground());
+		g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g2.setColor(getForeground());
+		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		if(originalMetrics == null) {
+			originalMetrics = g2.getFontMetrics(originalValues);
+			inferredMetrics = g2.getFontMetrics(inferredValues);
+		}
+
+		final int TILE_WIDTH = (getWidth()-2*MARGIN)/boardSize;
+		final int TILE_HEIGHT = (getHeight()-2*MARGIN)/boardSize;
+
 		int x = MARGIN, y = MARGIN;
-		for(int i = 0; i < BOARD_SIZE; i++) {
-			for(int j = 0; j < BOARD_SIZE; j++) {
+		for(int i = 0; i < boardSize; i++) {
+			for(int j = 0; j < boardSize; j++) {
 				g2.drawRect(x, y, TILE_WIDTH, TILE_HEIGHT);
-				
-				if(original[i][j] == 0) {
-					g2.setFont(inferredValues);
-				}
-				else {
-					g2.setFont(originalValues);
-				}
-				
-				int val = solution[i][j];
+
+				int val = board[i][j];
 				if(val != 0) {
-					int fontWidth = metrics.stringWidth(""+val);
+					FontMetrics metrics;
+					if(original[i][j] == 0) {
+						g2.setFont(inferredValues);
+						metrics = inferredMetrics;
+					}
+					else {
+						g2.setFont(originalValues);
+						metrics = originalMetrics;
+					}
+					int fontWidth = metrics.stringWidth(LABELS[val]);
+					int fontHeight = metrics.getHeight();
 					int fontX = x + (TILE_WIDTH-fontWidth)/2;
-					// The x,y coordinates of text is the bottom left point instead of the top left
-					// Thus to center the bottom left point I add the fontHeight
-					int fontY = y + (TILE_HEIGHT-fontHeight)/2 + fontHeight;
-					
-					g2.drawString(""+val, fontX, fontY);
+					// The x,y coordinates of text is the baseline instead of the top left
+					// Thus to center the text I add the ascent to the top of the line
+					int fontY = y + (TILE_HEIGHT-fontHeight)/2 + metrics.getAscent();
+
+					g2.drawString(LABELS[val], fontX, fontY);
 				}
-				
+
 				x += TILE_WIDTH;
 			}
 			x = MARGIN;
 			y += TILE_HEIGHT;
-		}		
-		
+		}
+
 		g2.setStroke(new BasicStroke(3));
-		g2.drawLine(MARGIN + 3*TILE_WIDTH, MARGIN+1, MARGIN+3*TILE_WIDTH, MARGIN+9*TILE_HEIGHT-1);
-		g2.drawLine(MARGIN + 6*TILE_WIDTH, MARGIN+1, MARGIN+6*TILE_WIDTH, MARGIN+9*TILE_HEIGHT-1);
-		g2.drawLine(MARGIN+1, MARGIN+3*TILE_HEIGHT, MARGIN+9*TILE_WIDTH-1, MARGIN+3*TILE_HEIGHT);
-		g2.drawLine(MARGIN+1, MARGIN+6*TILE_HEIGHT, MARGIN+9*TILE_WIDTH-1, MARGIN+6*TILE_HEIGHT);
+		for(int b = boxSize; b < boardSize; b += boxSize) {
+			g2.drawLine(MARGIN + b*TILE_WIDTH, MARGIN+1, MARGIN+b*TILE_WIDTH, MARGIN+boardSize*TILE_HEIGHT-1);
+			g2.drawLine(MARGIN+1, MARGIN+b*TILE_HEIGHT, MARGIN+boardSize*TILE_WIDTH-1, MARGIN+b*TILE_HEIGHT);
+		}
+		g2.dispose();
+		return image;
+	}
+
+	/*
+	* Solves the puzzle off the event thread. With the CSP engine it watches the
+	* search, updating the progress and, for a live solve, the board at most once
+	* every FRAME_NANOS, so drawing never slows the search down.
+	*/
+	private class SolveWorker extends SwingWorker<int[][], int[][]> implements SearchListener {
+		private final CancellationToken token = new CancellationToken();
+		private final boolean live;
+		private long lastFrame;
+
+		SolveWorker(boolean live) {
+			this.live = live;
+		}
+
+		protected int[][] doInBackground() {
+			SolveBudget budget = SolveBudget.UNLIMITED.withCancellation(token);
+			if(strategy instanceof BacktrackingStrategy) {
+				return ((BacktrackingStrategy) strategy).trySolve(original, budget, this).getSolution();
+			}
+			return strategy.trySolve(original, budget).getSolution();
+		}
+
+		public void node(int[] variables, int depth) {
+			long now = System.nanoTime();
+			if(now - lastFrame < FRAME_NANOS) {
+				return;
+			}
+			lastFrame = now;
+			int fixed = 0;
+			for(int domain : variables) {
+				if(Variable.isSingle(domain)) {
+					fixed++;
+				}
+			}
+			setProgress(fixed * 100 / variables.length);
+			if(live) {
+				int[][] snapshot = new int[boardSize][boardSize];
+				for(int i = 0; i < variables.length; i++) {
+					if(Variable.isSingle(variables[i])) {
+						snapshot[i / boardSize][i % boardSize] = Variable.getSingle(variables[i]);
+					}
+				}
+				publish(snapshot);
+			}
+		}
+
+		protected void process(List<int[][]> boards) {
+			// Only the latest board is worth drawing
+			if(!isCancelled()) {
+				setBoard(boards.get(boards.size() - 1));
+			}
+		}
+
+		protected void done() {
+			if(isCancelled()) {
+				return;
+			}
+			try {
+				int[][] solution = get();
+				solved = solution != null;
+				setBoard(solved ? solution : original);
+				if(solved) {
+					setProgress(100);
+				}
+			}
+			catch(InterruptedException | ExecutionException e) {
+				System.err.println("Error: Could not solve the puzzle: " + e.getCause());
+				setBoard(original);
+			}
+		}
 	}
 }
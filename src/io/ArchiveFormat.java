@@ -0,0 +1,48 @@
+package io;
+
+/**
+* The layout shared by PuzzleArchive and PuzzleArchiveWriter.
+*
+* An archive is a HEADER_SIZE byte header followed by fixed-size records, so
+* the header doubles as the index: record n starts at HEADER_SIZE +
+* n*recordSize. Header fields, big-endian:
+*
+*   0  magic "SDKA"
+*   4  format version (1)
+*   5  box order n of the boards (board size N = n*n)
+*   6  bits per cell: 4 while N <= 15 (so a 9x9 board takes 41 bytes), else 5
+*   7  flags: FLAG_SOLUTIONS if every record holds a solution after its puzzle
+*   8  number of records (long)
+*   16 record size in bytes (int)
+*
+* Within a board, cell i (row*N+col) occupies bits i*bits .. i*bits+bits-1
+* counted from the least significant bit of the first byte, and holds the
+* value, or 0 for unknown.
+*/
+final class ArchiveFormat {
+
+	static final int MAGIC = ('S' << 24) | ('D' << 16) | ('K' << 8) | 'A';
+	static final byte VERSION = 1;
+	static final int HEADER_SIZE = 20;
+	static final int COUNT_OFFSET = 8;
+	static final byte FLAG_SOLUTIONS = 1;
+
+	private ArchiveFormat(){
+	}
+
+	/*
+	* @param size the board size N
+	* @return the bits used per cell
+	*/
+	static int bitsPerCell(int size){
+		return size <= 15 ? 4 : 5;
+	}
+
+	/*
+	* @param size the board size N
+	* @return the bytes used per packed board
+	*/
+	static int boardBytes(int size){
+		return (size * size * bitsPerCell(size) + 7) / 8;
+	}
+}
@@ -0,0 +1,87 @@
+package io;
+import java.nio.ByteBuffer;
+
+/**
+* The one-puzzle-per-line format used by large puzzle collections: N*N
+* characters, row by row, with '0' or '.' for an unknown value. Values 1-9 are
+* written as digits and 10 and up as letters from 'A', so 81 characters make a
+* 9x9 board, 256 a 16x16 and 625 a 25x25.
+*
+* Encoding and decoding work directly on bytes, so no String is created per line.
+*/
+public final class LineFormat {
+
+	private LineFormat(){
+	}
+
+	/*
+	* Decodes one line.
+	* @param in the bytes holding the line
+	* @param offset where the line starts in the buffer
+	* @param length the length of the line without its line terminator
+	* @return the puzzle, with 0 for every unknown value
+	* @throws IllegalArgumentException if the line is not a board
+	*/
+	public static int[][] decode(ByteBuffer in, int offset, int length){
+		int size = (int) Math.round(Math.sqrt(length));
+		int boxSize = (int) Math.round(Math.sqrt(size));
+		if(size * size != length || boxSize * boxSize != size || boxSize < 2 || boxSize > 5){
+			throw new IllegalArgumentException("Line of length " + length + " is not a board");
+		}
+
+		int[][] board = new int[size][size];
+		for(int i = 0; i < length; i++){
+			int v = value(in.get(offset + i));
+			if(v < 0 || v > size){
+				throw new IllegalArgumentException("Bad character '" + (char) in.get(offset + i) + "' at column " + (i + 1));
+			}
+			board[i / size][i % size] = v;
+		}
+		return board;
+	}
+
+	/*
+	* Encodes a board as one line, followed by '\n'.
+	* @param board the board, with 0 for every unknown value
+	* @param out where to put the N*N+1 bytes
+	*/
+	public static void encode(int[][] board, ByteBuffer out){
+		int size = board.length;
+		for(int row = 0; row < size; row++){
+			for(int col = 0; col < size; col++){
+				out.put(symbol(board[row][col]));
+			}
+		}
+		out.put((byte) '\n');
+	}
+
+	/*
+	* Gets the value a character stands for.
+	* @param c the character
+	* @return the value, 0 for unknown, or -1 if it is not a value character
+	*/
+	public static int value(byte c){
+		if(c == '.' || c == '0'){
+			return 0;
+		}
+		if(c >= '1' && c <= '9'){
+			return c - '0';
+		}
+		if(c >= 'A' && c <= 'Z'){
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
+	/*
+	* Gets the character for a value.
+	* @param v the value, 0 for unknown
+	* @return the character
+	*/
+	public static byte symbol(int v){
+		if(v == 0){
+			return '.';
+		}
+		return (byte) (v <= 9 ? '0' + v : 'A' + v - 10);
+	}
+}
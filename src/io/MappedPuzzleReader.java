@@ -0,0 +1,100 @@
+package io;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* Reads a file in LineFormat through a memory-mapped window, so multi-gigabyte
+* files are scanned without copying them onto the heap and without creating a
+* String per line. Blank lines and lines starting with '#' are skipped.
+*
+* The file is mapped WINDOW bytes at a time; when a line runs past the end of
+* the window, the window is moved to start at that line.
+*/
+public final class MappedPuzzleReader implements PuzzleSource {
+
+	public static final long WINDOW = 1L << 26; //64 MB
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final long window;
+	private MappedByteBuffer buffer;
+	private long base; //file offset of the start of the buffer
+	private long line; //number of the last line read, for error messages
+
+	/*
+	* Opens a file for reading.
+	* @param path the file
+	* @throws IOException if it cannot be opened or mapped
+	*/
+	public MappedPuzzleReader(Path path) throws IOException {
+		this(path, WINDOW);
+	}
+
+	/*
+	* Opens a file for reading with a given window size.
+	* @param path the file
+	* @param window how many bytes to map at once; must exceed the longest line
+	* @throws IOException if it cannot be opened or mapped
+	*/
+	public MappedPuzzleReader(Path path, long window) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		fileSize = channel.size();
+		this.window = window;
+		map(0);
+	}
+
+	public int[][] next() throws IOException {
+		while(true){
+			int start = buffer.position();
+			int limit = buffer.limit();
+			int end = start;
+			while(end < limit && buffer.get(end) != '\n'){
+				end++;
+			}
+
+			//the line runs past the window: slide the window to the start of the line
+			if(end == limit && base + limit < fileSize){
+				if(start == 0){
+					throw new IOException("Line " + (line + 1) + " is longer than the " + window + " byte window");
+				}
+				map(base + start);
+				continue;
+			}
+			if(start == limit){
+				return null;
+			}
+
+			buffer.position(end < limit ? end + 1 : end);
+			line++;
+			int length = end - start;
+			if(length > 0 && buffer.get(end - 1) == '\r'){
+				length--;
+			}
+			if(length == 0 || buffer.get(start) == '#'){
+				continue;
+			}
+			try{
+				return LineFormat.decode(buffer, start, length);
+			}
+			catch(IllegalArgumentException e){
+				throw new IllegalArgumentException("Line " + line + ": " + e.getMessage(), e);
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	* Maps the window starting at a file offset.
+	* @param offset where the window starts
+	*/
+	private void map(long offset) throws IOException {
+		base = offset;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(window, fileSize - offset));
+	}
+}
@@ -0,0 +1,111 @@
+package io;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+* The .puzz format: one "row col val" triple per line for every given value,
+* with 1-based rows and columns. An optional first line holding only the board
+* size (4, 9, 16 or 25) introduces a board other than 9x9.
+*/
+public final class PuzzFormat {
+
+	public static final int BOARD_SIZE = 9;
+
+	private PuzzFormat(){
+	}
+
+	/*
+	* Reads a puzzle from a .puzz file.
+	* @param path the file
+	* @return the puzzle, with 0 for every unknown value
+	* @throws IOException if the file cannot be read
+	* @throws IllegalArgumentException if the file is badly formed
+	*/
+	public static int[][] read(Path path) throws IOException {
+		try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)){
+			return read(reader);
+		}
+	}
+
+	/*
+	* Reads a puzzle in .puzz format.
+	* @param in the text to read; it is read to the end but not closed
+	* @return the puzzle, with 0 for every unknown value
+	* @throws IOException if the text cannot be read
+	* @throws IllegalArgumentException if the text is badly formed
+	*/
+	public static int[][] read(Reader in) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		int boardSize = BOARD_SIZE;
+		int[][] original = null;
+		boolean first = true;
+		String line;
+		try{
+			while((line = reader.readLine()) != null){
+				if(line.isEmpty()){
+					continue;
+				}
+				String[] tokens = line.split(" ");
+
+				// an optional first line holding just the board size
+				if(first && tokens.length == 1){
+					boardSize = Integer.parseInt(tokens[0]);
+					int boxSize = (int) Math.round(Math.sqrt(boardSize));
+					if(boxSize < 2 || boxSize > 5 || boxSize * boxSize != boardSize){
+						throw new IllegalArgumentException("Error: unsupported board size " + boardSize);
+					}
+					first = false;
+					continue;
+				}
+				first = false;
+
+				if(tokens.length != 3){
+					throw new IllegalArgumentException("Error: badly formed file");
+				}
+				int row = Integer.parseInt(tokens[0]);
+				int col = Integer.parseInt(tokens[1]);
+				int val = Integer.parseInt(tokens[2]);
+				if(row < 1 || row > boardSize || col < 1 || col > boardSize){
+					throw new IllegalArgumentException("Error: file contains invalid row/col coordinates");
+				}
+				if(val < 1 || val > boardSize){
+					throw new IllegalArgumentException("Error: values are out of range");
+				}
+				if(original == null){
+					original = new int[boardSize][boardSize];
+				}
+				original[row - 1][col - 1] = val;
+			}
+		}
+		catch(NumberFormatException e){
+			throw new IllegalArgumentException("File contains non-integer values", e);
+		}
+		return original != null ? original : new int[boardSize][boardSize];
+	}
+
+	/*
+	* Writes a puzzle in .puzz format, one triple per non-zero value.
+	* @param board the puzzle, with 0 for every unknown value
+	* @param out where to write; it is not closed
+	* @throws IOException if writing fails
+	*/
+	public static void write(int[][] board, Writer out) throws IOException {
+		int size = board.length;
+		if(size != BOARD_SIZE){
+			out.write(Integer.toString(size));
+			out.write('\n');
+		}
+		for(int row = 0; row < size; row++){
+			for(int col = 0; col < size; col++){
+				if(board[row][col] != 0){
+					out.write((row + 1) + " " + (col + 1) + " " + board[row][col] + "\n");
+				}
+			}
+		}
+	}
+}
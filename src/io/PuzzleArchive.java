@@ -0,0 +1,170 @@
+package io;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* Random access to a packed binary archive (see ArchiveFormat). The records are
+* memory-mapped, so fetching record n reads only its own bytes, straight out of
+* the page cache, however large the archive is.
+*
+* Files beyond 2 GB are mapped as several chunks of whole records. Reading is
+* thread safe: the mapped buffers are only used with absolute gets.
+*/
+public final class PuzzleArchive implements Closeable {
+
+	private final FileChannel channel;
+	private final int size;
+	private final int bits;
+	private final boolean withSolutions;
+	private final long count;
+	private final int boardBytes;
+	private final int recordSize;
+	private final int recordsPerChunk;
+	private final MappedByteBuffer[] chunks;
+
+	/*
+	* Opens an archive.
+	* @param path the file
+	* @throws IOException if it cannot be read or is not an archive
+	*/
+	public PuzzleArchive(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try{
+			ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+			while(header.hasRemaining() && channel.read(header, header.position()) > 0){
+				// keep reading until the header is complete or the file ends
+			}
+			if(header.hasRemaining() || header.getInt(0) != ArchiveFormat.MAGIC){
+				throw new IOException(path + " is not a puzzle archive");
+			}
+			if(header.get(4) != ArchiveFormat.VERSION){
+				throw new IOException(path + " has unsupported archive version " + header.get(4));
+			}
+			int boxSize = header.get(5);
+			size = boxSize * boxSize;
+			bits = header.get(6);
+			withSolutions = (header.get(7) & ArchiveFormat.FLAG_SOLUTIONS) != 0;
+			count = header.getLong(ArchiveFormat.COUNT_OFFSET);
+			recordSize = header.getInt(16);
+			boardBytes = ArchiveFormat.boardBytes(size);
+			if(boxSize < 2 || boxSize > 5 || bits != ArchiveFormat.bitsPerCell(size)
+					|| recordSize != boardBytes * (withSolutions ? 2 : 1)
+					|| channel.size() < ArchiveFormat.HEADER_SIZE + count * recordSize){
+				throw new IOException(path + " has a corrupt archive header");
+			}
+
+			recordsPerChunk = Integer.MAX_VALUE / recordSize;
+			int chunkCount = (int) ((count + recordsPerChunk - 1) / recordsPerChunk);
+			chunks = new MappedByteBuffer[chunkCount];
+			for(int c = 0; c < chunkCount; c++){
+				long first = (long) c * recordsPerChunk;
+				long records = Math.min(recordsPerChunk, count - first);
+				chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+						ArchiveFormat.HEADER_SIZE + first * recordSize, records * recordSize);
+			}
+		}
+		catch(IOException | RuntimeException e){
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	* @return the number of records
+	*/
+	public long size(){
+		return count;
+	}
+
+	/*
+	* @return the board size N of every record
+	*/
+	public int boardSize(){
+		return size;
+	}
+
+	/*
+	* @return true if every record holds a solution after its puzzle
+	*/
+	public boolean hasSolutions(){
+		return withSolutions;
+	}
+
+	/*
+	* Decodes the puzzle of a record.
+	* @param n the record number, 0 <= n < size()
+	* @return the puzzle, with 0 for every unknown value
+	*/
+	public int[][] puzzle(long n){
+		return decode(n, 0, new int[size][size]);
+	}
+
+	/*
+	* Decodes the solution of a record.
+	* @param n the record number, 0 <= n < size()
+	* @return the solution, or null if the puzzle was stored without one
+	*/
+	public int[][] solution(long n){
+		if(!withSolutions){
+			throw new IllegalStateException("This archive stores puzzles only");
+		}
+		int[][] board = decode(n, boardBytes, new int[size][size]);
+		return board[0][0] == 0 ? null : board;
+	}
+
+	/*
+	* Decodes the puzzle of a record into an existing board, so scanning an
+	* archive need not allocate.
+	* @param n the record number, 0 <= n < size()
+	* @param into an N by N board to overwrite
+	* @return into
+	*/
+	public int[][] puzzle(long n, int[][] into){
+		return decode(n, 0, into);
+	}
+
+	/*
+	* Reads the records in order, as a source for SolvePipeline.
+	* @return a source over every puzzle of the archive
+	*/
+	public PuzzleSource puzzles(){
+		return new PuzzleSource(){
+			private long next;
+
+			public int[][] next(){
+				return next < count ? puzzle(next++) : null;
+			}
+
+			public void close() throws IOException {
+				PuzzleArchive.this.close();
+			}
+		};
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private int[][] decode(long n, int boardOffset, int[][] into){
+		if(n < 0 || n >= count){
+			throw new IndexOutOfBoundsException("Record " + n + " of " + count);
+		}
+		MappedByteBuffer chunk = chunks[(int) (n / recordsPerChunk)];
+		int base = (int) (n % recordsPerChunk) * recordSize + boardOffset;
+		int mask = (1 << bits) - 1;
+		for(int i = 0; i < size * size; i++){
+			int bit = i * bits;
+			int word = chunk.get(base + (bit >> 3)) & 0xFF;
+			if((bit & 7) + bits > 8){
+				word |= (chunk.get(base + (bit >> 3) + 1) & 0xFF) << 8;
+			}
+			into[i / size][i % size] = (word >> (bit & 7)) & mask;
+		}
+		return into;
+	}
+}
@@ -0,0 +1,157 @@
+package io;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+* Appends boards to a packed binary archive (see ArchiveFormat). The record
+* count in the header is filled in when the writer is closed.
+*/
+public final class PuzzleArchiveWriter implements Closeable {
+
+	private final FileChannel channel;
+	private final int size;
+	private final int bits;
+	private final boolean withSolutions;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(PuzzleWriter.BUFFER_SIZE);
+	private final byte[] packed;
+	private long count;
+
+	/*
+	* Creates (or truncates) an archive.
+	* @param path the file
+	* @param size the board size N of every record
+	* @param withSolutions true if every record also holds a solution
+	* @throws IOException if the file cannot be opened
+	*/
+	public PuzzleArchiveWriter(Path path, int size, boolean withSolutions) throws IOException {
+		int boxSize = (int) Math.round(Math.sqrt(size));
+		if(boxSize * boxSize != size || boxSize < 2 || boxSize > 5){
+			throw new IllegalArgumentException("Unsupported board size " + size);
+		}
+		this.size = size;
+		this.bits = ArchiveFormat.bitsPerCell(size);
+		this.withSolutions = withSolutions;
+		this.packed = new byte[ArchiveFormat.boardBytes(size)];
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		int recordSize = packed.length * (withSolutions ? 2 : 1);
+		buffer.putInt(ArchiveFormat.MAGIC);
+		buffer.put(ArchiveFormat.VERSION);
+		buffer.put((byte) boxSize);
+		buffer.put((byte) bits);
+		buffer.put(withSolutions ? ArchiveFormat.FLAG_SOLUTIONS : 0);
+		buffer.putLong(0L);
+		buffer.putInt(recordSize);
+	}
+
+	/*
+	* Appends a puzzle to an archive without solutions.
+	* @param puzzle the board, with 0 for every unknown value
+	* @throws IOException if writing fails
+	* @throws IllegalArgumentException if the board is not N by N or holds a
+	*			value outside 0..N
+	*/
+	public void append(int[][] puzzle) throws IOException {
+		if(withSolutions){
+			throw new IllegalStateException("This archive stores a solution with every puzzle");
+		}
+		check(puzzle);
+		put(puzzle);
+		count++;
+	}
+
+	/*
+	* Appends a puzzle and its solution to an archive with solutions.
+	* @param puzzle the board, with 0 for every unknown value
+	* @param solution its solution, or null if it has none (stored as all zeros)
+	* @throws IOException if writing fails
+	* @throws IllegalArgumentException if either board is not N by N or holds a
+	*			value outside 0..N
+	*/
+	public void append(int[][] puzzle, int[][] solution) throws IOException {
+		if(!withSolutions){
+			throw new IllegalStateException("This archive stores puzzles only");
+		}
+		//check both boards first, so a bad solution leaves no half record behind
+		check(puzzle);
+		if(solution != null){
+			check(solution);
+		}
+		put(puzzle);
+		put(solution);
+		count++;
+	}
+
+	/*
+	* @return the number of records appended so far
+	*/
+	public long size(){
+		return count;
+	}
+
+	public void close() throws IOException {
+		try{
+			drain();
+			ByteBuffer header = ByteBuffer.allocate(8);
+			header.putLong(0, count);
+			channel.write(header, ArchiveFormat.COUNT_OFFSET);
+		}
+		finally{
+			channel.close();
+		}
+	}
+
+	/*
+	* Checks that a board fits the archive, since a value wider than a cell's
+	* bits would spill into the next cell.
+	*/
+	private void check(int[][] board){
+		if(board.length != size){
+			throw new IllegalArgumentException("Expected a " + size + "x" + size + " board");
+		}
+		for(int row = 0; row < size; row++){
+			if(board[row].length != size){
+				throw new IllegalArgumentException("Expected a " + size + "x" + size + " board");
+			}
+			for(int col = 0; col < size; col++){
+				int v = board[row][col];
+				if(v < 0 || v > size){
+					throw new IllegalArgumentException("Value " + v + " out of range at " + row + "," + col);
+				}
+			}
+		}
+	}
+
+	private void put(int[][] board) throws IOException {
+		Arrays.fill(packed, (byte) 0);
+		if(board != null){
+			for(int i = 0; i < size * size; i++){
+				int v = board[i / size][i % size];
+				int bit = i * bits;
+				int word = v << (bit & 7);
+				packed[bit >> 3] |= (byte) word;
+				if((bit & 7) + bits > 8){
+					packed[(bit >> 3) + 1] |= (byte) (word >> 8);
+				}
+			}
+		}
+		if(buffer.remaining() < packed.length){
+			drain();
+		}
+		buffer.put(packed);
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,19 @@
+package io;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+* A stream of puzzles read one at a time.
+*/
+public interface PuzzleSource extends Closeable {
+
+	/*
+	* Reads the next puzzle.
+	* @return the puzzle, with 0 for every unknown value, or null at the end
+	* @throws IOException if reading fails
+	* @throws IllegalArgumentException if the input holds something that is not a puzzle;
+	*			the source has moved past it, so next may be called again
+	*/
+	int[][] next() throws IOException;
+
+}
@@ -0,0 +1,73 @@
+package io;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* Writes boards in LineFormat to a channel through one reusable direct buffer,
+* so writing a board costs no allocation and the channel sees large writes.
+*/
+public final class PuzzleWriter implements Closeable, Flushable {
+
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/*
+	* Creates (or truncates) a file to write boards to.
+	* @param path the file
+	* @throws IOException if it cannot be opened
+	*/
+	public PuzzleWriter(Path path) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/*
+	* Writes boards to a channel, which is closed along with this writer.
+	* @param channel where the bytes go
+	*/
+	public PuzzleWriter(WritableByteChannel channel){
+		this.channel = channel;
+	}
+
+	/*
+	* Writes a board as one line.
+	* @param board the board, with 0 for every unknown value
+	* @throws IOException if writing fails
+	*/
+	public void write(int[][] board) throws IOException {
+		int length = board.length * board.length + 1;
+		if(buffer.remaining() < length){
+			drain();
+		}
+		LineFormat.encode(board, buffer);
+	}
+
+	public void flush() throws IOException {
+		drain();
+	}
+
+	public void close() throws IOException {
+		try{
+			drain();
+		}
+		finally{
+			channel.close();
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,304 @@
+package io;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import search.BacktrackingStrategy;
+import search.BatchSolver;
+import search.PortfolioStrategy;
+import search.RoutingStrategy;
+import search.SolveBudget;
+import search.SolverMetrics;
+import search.SolverOptions;
+import search.SolverStrategy;
+import search.Strategies;
+
+/**
+* Headless bulk solving: reads puzzles from a source, solves them on all cores,
+* and writes one solution line per puzzle in input order. Puzzles are handled a
+* window at a time, so memory stays bounded no matter how large the input is.
+*
+* A puzzle that cannot be solved, or a line that is not a puzzle, is written as
+* a line of '.' so output lines stay aligned with input lines. The counts tell
+* apart puzzles without a solution, puzzles the budget ran out on, and puzzles
+* the solver failed on or could not read.
+*
+* Usage: java io.SolvePipeline <input> <output> [csp|gac[:rules]|dlx|sat|parallel|portfolio|routed]
+* where an input ending in .puzz is read as a single puzzle in PuzzFormat, one
+* ending in .sda as a PuzzleArchive, and anything else as a LineFormat file.
+* An output ending in .sda is written as an archive of puzzle and solution
+* pairs (the board size is taken from the first puzzle); anything else as a
+* LineFormat file of solutions.
+*/
+public class SolvePipeline {
+
+	public static final int DEFAULT_WINDOW = 4096;
+	public static final String ARCHIVE_SUFFIX = ".sda";
+
+	private final BatchSolver solver;
+	private final int window;
+	private long solved;
+	private long unsatisfiable;
+	private long exhausted;
+	private long failed;
+	//the size of the '.' line written for a line that is not a puzzle
+	private int blankSize = PuzzFormat.BOARD_SIZE;
+
+	/*
+	* Creates a pipeline.
+	* @param strategy the engine used for every puzzle
+	* @param window how many puzzles are read ahead and solved together
+	*/
+	public SolvePipeline(SolverStrategy strategy, int window){
+		this.solver = new BatchSolver(strategy, ForkJoinPool.commonPool());
+		this.window = window;
+	}
+
+	/*
+	* Solves every puzzle of a source. Neither the source nor the writer is closed.
+	* @param source the puzzles
+	* @param out where the solutions go
+	* @throws IOException if reading or writing fails
+	*/
+	public void run(PuzzleSource source, PuzzleWriter out) throws IOException {
+		run(source, (puzzle, solution) -> {
+			int size = puzzle.length;
+			out.write(solution != null ? solution : new int[size][size]);
+		});
+		out.flush();
+	}
+
+	/*
+	* Solves every puzzle of a source into an archive with solutions. Neither the
+	* source nor the archive is closed.
+	* @param source the puzzles
+	* @param out where each puzzle and its solution go
+	* @throws IOException if reading or writing fails
+	*/
+	public void run(PuzzleSource source, PuzzleArchiveWriter out) throws IOException {
+		run(source, out::append);
+	}
+
+	/*
+	* Reads, solves and writes a window at a time. A line that is not a puzzle
+	* stays in the window as null, so it is written in its place.
+	*/
+	private void run(PuzzleSource source, Sink out) throws IOException {
+		List<int[][]> batch = new ArrayList<int[][]>(window);
+		while(true){
+			int[][] puzzle;
+			try{
+				puzzle = source.next();
+				if(puzzle == null){
+					break;
+				}
+				blankSize = puzzle.length;
+			}
+			catch(IllegalArgumentException e){
+				System.err.println("Error: " + e.getMessage());
+				puzzle = null;
+			}
+			batch.add(puzzle);
+			if(batch.size() == window){
+				solveAndWrite(batch, out);
+			}
+		}
+		solveAndWrite(batch, out);
+	}
+
+	/*
+	* @return the number of puzzles solved so far
+	*/
+	public long getSolved(){
+		return solved;
+	}
+
+	/*
+	* @return the number of puzzles proved to have no solution so far
+	*/
+	public long getUnsatisfiable(){
+		return unsatisfiable;
+	}
+
+	/*
+	* @return the number of puzzles the budget ran out on so far
+	*/
+	public long getExhausted(){
+		return exhausted;
+	}
+
+	/*
+	* @return the number of puzzles the solver threw on, and of lines that were
+	*			not puzzles, so far
+	*/
+	public long getFailed(){
+		return failed;
+	}
+
+	private void solveAndWrite(List<int[][]> batch, Sink out) throws IOException {
+		List<int[][]> puzzles = new ArrayList<int[][]>(batch.size());
+		for(int[][] puzzle : batch){
+			if(puzzle != null){
+				puzzles.add(puzzle);
+			}
+		}
+		Iterator<BatchSolver.Result> results = solver.solveAll(puzzles).iterator();
+		for(int[][] puzzle : batch){
+			if(puzzle == null){
+				out.write(new int[blankSize][blankSize], null);
+				failed++;
+				continue;
+			}
+			BatchSolver.Result result = results.next();
+			out.write(result.getPuzzle(), result.getSolution());
+			if(result.getStatus() == null){
+				failed++;
+			}
+			else{
+				switch(result.getStatus()){
+					case SOLVED:
+						solved++;
+						break;
+					case UNSATISFIABLE:
+						unsatisfiable++;
+						break;
+					default:
+						exhausted++;
+						break;
+				}
+			}
+		}
+		batch.clear();
+	}
+
+	/*
+	* Where solved puzzles go, in input order.
+	*/
+	private interface Sink {
+		void write(int[][] puzzle, int[][] solution) throws IOException;
+	}
+
+	/*
+	* Opens an input file: a single .puzz puzzle, a .sda archive, or a LineFormat file.
+	* @param path the file
+	* @return its puzzles
+	*/
+	static PuzzleSource open(Path path) throws IOException {
+		if(path.toString().endsWith(ARCHIVE_SUFFIX)){
+			return new PuzzleArchive(path).puzzles();
+		}
+		if(!path.toString().endsWith(".puzz")){
+			return new MappedPuzzleReader(path);
+		}
+		int[][] puzzle = PuzzFormat.read(path);
+		return new PuzzleSource(){
+			private boolean done;
+
+			public int[][] next(){
+				if(done){
+					return null;
+				}
+				done = true;
+				return puzzle;
+			}
+
+			public void close(){
+			}
+		};
+	}
+
+	/*
+	* Solves every puzzle of a source into a new archive, sized for the first puzzle.
+	* @param source the puzzles
+	* @param path the archive to create
+	*/
+	private void runToArchive(PuzzleSource source, Path path) throws IOException {
+		//lines before the first puzzle that are not puzzles are passed on in order
+		List<IllegalArgumentException> leading = new ArrayList<IllegalArgumentException>();
+		int[][] first;
+		while(true){
+			try{
+				first = source.next();
+				break;
+			}
+			catch(IllegalArgumentException e){
+				leading.add(e);
+			}
+		}
+		int size = first == null ? PuzzFormat.BOARD_SIZE : first.length;
+		blankSize = size;
+		try(PuzzleArchiveWriter out = new PuzzleArchiveWriter(path, size, true)){
+			int[][] head = first;
+			run(new PuzzleSource(){
+				private int[][] pending = head;
+
+				public int[][] next() throws IOException {
+					if(!leading.isEmpty()){
+						throw leading.remove(0);
+					}
+					int[][] puzzle = pending != null ? pending : source.next();
+					pending = null;
+					return puzzle;
+				}
+
+				public void close(){
+				}
+			}, out);
+		}
+	}
+
+	public static void main(String[] args){
+		if(args.length < 2 || args.length > 3){
+			System.err.println("Usage: java io.SolvePipeline <input> <output> [csp|gac[:rules]|dlx|sat|parallel|portfolio|routed]");
+			System.exit(-1);
+		}
+		try{
+			String name = args.length == 3 ? args[2] : "csp";
+			//-Dsearch.stats=true counts the CSP engine's work and publishes it over JMX;
+			//-Dsearch.timeout=<ms> and -Dsearch.maxNodes=<n> give up on a puzzle past them
+			SolverMetrics metrics = null;
+			SolverStrategy strategy;
+			SolverOptions options = Strategies.options(name);
+			SolveBudget budget = SolveBudget.fromSystemProperties();
+			if(options != null && Boolean.getBoolean("search.stats")){
+				metrics = SolverMetrics.register("SolvePipeline");
+				strategy = new BacktrackingStrategy(options, budget, metrics);
+			}
+			else{
+				strategy = Strategies.forName(name, budget);
+			}
+			SolvePipeline pipeline = new SolvePipeline(strategy, DEFAULT_WINDOW);
+			long start = System.nanoTime();
+			try(PuzzleSource source = open(Paths.get(args[0]))){
+				if(args[1].endsWith(ARCHIVE_SUFFIX)){
+					pipeline.runToArchive(source, Paths.get(args[1]));
+				}
+				else{
+					try(PuzzleWriter out = new PuzzleWriter(Paths.get(args[1]))){
+						pipeline.run(source, out);
+					}
+				}
+			}
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.err.println("Solved " + pipeline.getSolved() + ", unsatisfiable " + pipeline.getUnsatisfiable()
+					+ ", out of budget " + pipeline.getExhausted() + ", failed " + pipeline.getFailed() + " in " + millis + " ms");
+			if(metrics != null){
+				System.err.println(metrics);
+			}
+			if(strategy instanceof PortfolioStrategy){
+				System.err.println(((PortfolioStrategy) strategy).winSummary());
+			}
+			if(strategy instanceof RoutingStrategy){
+				System.err.println(((RoutingStrategy) strategy).routingSummary());
+			}
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package search;
+import csp.PeerIndex;
+
+/**
+* The CSP engine: AC-3 followed by backtracking search (see Solver), optionally
+* over the AllDifferent model or with inference rules run alongside.
+*/
+public class BacktrackingStrategy implements SolverStrategy {
+
+	private final SolverOptions options;
+	private final SolveBudget budget;
+	private final SolverMetrics metrics;
+
+	//each thread's arenas for this engine's options, one per box order
+	private final ThreadLocal<SolveArena[]> arenas =
+			ThreadLocal.withInitial(() -> new SolveArena[PeerIndex.MAX_BOX_SIZE + 1]);
+
+	/*
+	* Creates the CSP engine with plain AC-3 and no instrumentation.
+	*/
+	public BacktrackingStrategy(){
+		this(SolverOptions.DEFAULT, null);
+	}
+
+	/*
+	* Creates the CSP engine, adding the counters of every solve to a total.
+	* @param metrics receives the SearchStats of each solve, or null to solve
+	*			without counting
+	*/
+	public BacktrackingStrategy(SolverMetrics metrics){
+		this(SolverOptions.DEFAULT, metrics);
+	}
+
+	/*
+	* Creates the CSP engine.
+	* @param options the constraint model and inference rules to propagate with
+	* @param metrics receives the SearchStats of each solve, or null to solve
+	*			without counting
+	*/
+	public BacktrackingStrategy(SolverOptions options, SolverMetrics metrics){
+		this(options, SolveBudget.UNLIMITED, metrics);
+	}
+
+	/*
+	* Creates the CSP engine with a limit on every solve.
+	* @param options the constraint model and inference rules to propagate with
+	* @param budget the limits each solve runs under
+	* @param metrics receives the SearchStats of each solve, or null to solve
+	*			without counting
+	*/
+	public BacktrackingStrategy(SolverOptions options, SolveBudget budget, SolverMetrics metrics){
+		this.options = options;
+		this.budget = budget;
+		this.metrics = metrics;
+	}
+
+	/*
+	* Solves a sudoku puzzle, giving up once the budget runs out. The search runs
+	* in the calling thread's SolveArena.
+	* @param original the puzzle, with 0 for every unknown value
+	* @return the solved board, or null if the puzzle has no solution or the
+	*			budget ran out first
+	*/
+	public int[][] solve(int[][] original){
+		//solve in the thread's arena, so the solution is the only allocation
+		SolveArena arena = arena(original.length);
+		int[][] solution = new int[original.length][original.length];
+		SearchStats stats = metrics != null ? new SearchStats() : null;
+		try{
+			return arena.solve(original, solution, budget, stats) == SolveResult.Status.SOLVED ? solution : null;
+		}
+		finally{
+			if(metrics != null){
+				metrics.record(stats);
+			}
+		}
+	}
+
+	/*
+	* Solves a sudoku puzzle within the budget, telling an unsatisfiable puzzle
+	* apart from one the budget was too small for. The search runs in the
+	* calling thread's SolveArena.
+	* @param original the puzzle, with 0 for every unknown value
+	* @return how the solve ended
+	*/
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Solves a sudoku puzzle within a given budget, in the calling thread's
+	* SolveArena.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve, in place of the engine's own
+	* @return how the solve ended
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		SolveArena arena = arena(original.length);
+		SearchStats stats = metrics != null ? new SearchStats() : null;
+		try{
+			return arena.trySolve(original, budget, stats);
+		}
+		finally{
+			if(metrics != null){
+				metrics.record(stats);
+			}
+		}
+	}
+
+	/*
+	* Solves a sudoku puzzle within a given budget, showing the search to a
+	* listener, e.g. to cancel it from a user interface and draw its progress.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve, in place of the engine's own
+	* @param listener is called at every search node, or null
+	* @return how the solve ended
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget, SearchListener listener){
+		if(metrics == null){
+			return Solver.solve(original, options, budget, null, listener);
+		}
+		SearchStats stats = new SearchStats();
+		try{
+			return Solver.solve(original, options, budget, stats, listener);
+		}
+		finally{
+			metrics.record(stats);
+		}
+	}
+
+	/*
+	* Gets the calling thread's arena for a board size, creating it on first use.
+	* @param size the board size N
+	* @throws IllegalArgumentException if there is no board of that size
+	*/
+	private SolveArena arena(int size){
+		PeerIndex index = PeerIndex.forSize(size);
+		SolveArena[] mine = arenas.get();
+		if(mine[index.boxSize()] == null){
+			mine[index.boxSize()] = new SolveArena(index, options);
+		}
+		return mine[index.boxSize()];
+	}
+
+	public String toString(){
+		return options.toString();
+	}
+}
@@ -0,0 +1,172 @@
+package search;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+* Solves many puzzles at once, spreading them over the cores of a fork-join pool.
+* Results come back in input order, one per puzzle, and a puzzle that fails
+* (no solution, out of budget, or an exception from the solver) does not affect
+* the others. Each puzzle is solved within the strategy's own budget.
+*
+* The solver strategies keep all per-solve state local and share only immutable
+* tables (PeerIndex, the Dancing Links template), so one strategy instance is
+* safely used by every worker thread.
+*/
+public class BatchSolver {
+
+	private final SolverStrategy strategy;
+	private final ForkJoinPool pool;
+
+	/*
+	* Creates a batch solver using the CSP engine on the common fork-join pool.
+	*/
+	public BatchSolver(){
+		this(new BacktrackingStrategy(), ForkJoinPool.commonPool());
+	}
+
+	/*
+	* Creates a batch solver.
+	* @param strategy the engine used for every puzzle
+	* @param pool the pool whose threads solve the puzzles
+	*/
+	public BatchSolver(SolverStrategy strategy, ForkJoinPool pool){
+		this.strategy = strategy;
+		this.pool = pool;
+	}
+
+	/*
+	* Solves every puzzle in the list in parallel.
+	* @param puzzles the puzzles, with 0 for every unknown value
+	* @return one result per puzzle, in the same order as the input
+	*/
+	public List<Result> solveAll(List<int[][]> puzzles){
+		//an array splits in constant time whatever kind of list was given
+		int[][][] boards = puzzles.toArray(new int[0][][]);
+		return inPool(() -> solveInParallel(boards));
+	}
+
+	/*
+	* Starts solving every puzzle in the list in parallel, without waiting for
+	* them. The list may be changed once this returns.
+	* @param puzzles the puzzles, with 0 for every unknown value
+	* @return completes with one result per puzzle, in the same order as the
+	*			input, once all are solved
+	*/
+	public CompletableFuture<List<Result>> solveAllAsync(List<int[][]> puzzles){
+		int[][][] boards = puzzles.toArray(new int[0][][]);
+		//a parallel stream started on one of the pool's threads stays in the pool
+		return CompletableFuture.supplyAsync(() -> solveInParallel(boards), pool);
+	}
+
+	/*
+	* Solves every puzzle of a stream in parallel. The stream is consumed.
+	* @param puzzles the puzzles, with 0 for every unknown value
+	* @return one result per puzzle, in the stream's encounter order
+	*/
+	public List<Result> solveAll(Stream<int[][]> puzzles){
+		return inPool(() -> puzzles
+				.parallel()
+				.map(this::solveOne)
+				.collect(Collectors.toList()));
+	}
+
+	private List<Result> solveInParallel(int[][][] boards){
+		return IntStream.range(0, boards.length)
+				.parallel()
+				.mapToObj(i -> solveOne(boards[i]))
+				.collect(Collectors.toList());
+	}
+
+	/*
+	* Solves a single puzzle, turning a failure into a result instead of an exception.
+	* @param puzzle the puzzle to solve
+	* @return its result
+	*/
+	private Result solveOne(int[][] puzzle){
+		try{
+			SolveResult result = strategy.trySolve(puzzle);
+			return new Result(puzzle, result.getStatus(), result.getSolution(), null);
+		}
+		catch(RuntimeException e){
+			return new Result(puzzle, null, null, e);
+		}
+	}
+
+	/*
+	* Runs a parallel stream pipeline on this solver's pool rather than the caller's.
+	* @param task the pipeline
+	* @return what the pipeline returned
+	*/
+	private List<Result> inPool(Callable<List<Result>> task){
+		try{
+			return pool.submit(task).get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving a batch", e);
+		}
+		catch(ExecutionException e){
+			throw new IllegalStateException("Batch solve failed", e.getCause());
+		}
+	}
+
+
+	/**
+	* The outcome of solving one puzzle of a batch.
+	*/
+	public static final class Result {
+		private final int[][] puzzle;
+		private final SolveResult.Status status;
+		private final int[][] solution;
+		private final Throwable failure;
+
+		Result(int[][] puzzle, SolveResult.Status status, int[][] solution, Throwable failure){
+			this.puzzle = puzzle;
+			this.status = status;
+			this.solution = solution;
+			this.failure = failure;
+		}
+
+		/*
+		* @return the puzzle as given
+		*/
+		public int[][] getPuzzle(){
+			return puzzle;
+		}
+
+		/*
+		* @return how the solve ended: solved, no solution, or out of budget; null
+		*			if the solver threw
+		*/
+		public SolveResult.Status getStatus(){
+			return status;
+		}
+
+		/*
+		* @return the solved board, or null if the puzzle was not solved
+		*/
+		public int[][] getSolution(){
+			return solution;
+		}
+
+		/*
+		* @return the exception the solver threw, or null if it returned normally
+		*/
+		public Throwable getFailure(){
+			return failure;
+		}
+
+		/*
+		* @return true if the puzzle was solved
+		*/
+		public boolean isSolved(){
+			return status == SolveResult.Status.SOLVED;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package search;
+
+/**
+* A flag that tells a running search to stop. The search polls it once per node,
+* so cancelling costs the searcher a single volatile read per node, and one more
+* for each parent the token is linked to.
+*/
+public class CancellationToken {
+
+	private final CancellationToken parent;
+	private volatile boolean cancelled;
+
+	/*
+	* Creates a token that is cancelled only through cancel().
+	*/
+	public CancellationToken(){
+		this(null);
+	}
+
+	/*
+	* Creates a token that is also cancelled whenever its parent is, e.g. one
+	* for the losers of a race inside a solve that can itself be cancelled.
+	* @param parent the token to follow, or null
+	*/
+	public CancellationToken(CancellationToken parent){
+		this.parent = parent;
+	}
+
+	/*
+	* Asks every search holding this token to stop as soon as it can.
+	*/
+	public void cancel(){
+		cancelled = true;
+	}
+
+	/*
+	* @return true once cancel() has been called on this token or its parent
+	*/
+	public boolean isCancelled(){
+		return cancelled || (parent != null && parent.isCancelled());
+	}
+}
@@ -0,0 +1,364 @@
+package search;
+import csp.PeerIndex;
+
+/**
+* Solves a sudoku puzzle as an exact cover problem with Knuth's Algorithm X on a
+* Dancing Links matrix.
+*
+* Every candidate (row, col, value) is a matrix row, N*N*N in all (729 for a
+* 9x9 board), and it covers four of the 4*N*N constraint columns (324): its
+* cell is filled, and its value appears once in its row, once in its column,
+* and once in its box. A solution is a set of candidate rows covering every
+* column exactly once.
+*
+* The links are stored in parallel int arrays rather than node objects. The
+* fully linked matrix is built once per box order; each solve copies it and
+* then unlinks columns in place.
+*/
+public class DancingLinks implements SolverStrategy {
+
+	private static final int ROOT = 0; //headers are 1..columns
+
+	//one lazily built matrix per box order
+	private static final Template[] TEMPLATES = new Template[PeerIndex.MAX_BOX_SIZE + 1];
+
+	private final SolveBudget budget;
+
+	/*
+	* Creates the Dancing Links engine with no limits.
+	*/
+	public DancingLinks(){
+		this(SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Creates the Dancing Links engine with a limit on every solve.
+	* @param budget the limits each solve runs under
+	*/
+	public DancingLinks(SolveBudget budget){
+		this.budget = budget;
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original, budget).getSolution();
+	}
+
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Solves a sudoku puzzle within a budget. Every column chosen is a node, and
+	* the depth is the number of candidates chosen besides the givens.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve
+	* @return how the solve ended
+	* @throws IllegalArgumentException if the board is not a boxed square or
+	*			holds a value outside 0..N
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		Matrix matrix = new Matrix(template(PeerIndex.forSize(original.length).boxSize()), budget);
+		int[][] solution = matrix.solve(original);
+		if(solution != null){
+			return SolveResult.solved(solution, matrix.nodes);
+		}
+		return matrix.limit != null ? SolveResult.exhausted(matrix.limit, matrix.nodes) : SolveResult.unsatisfiable(matrix.nodes);
+	}
+
+	public String toString(){
+		return "dlx";
+	}
+
+	/*
+	* Gets the fully linked matrix for a box order, building it on first use.
+	* @param boxSize the box order n
+	* @return the shared template
+	*/
+	private static synchronized Template template(int boxSize){
+		if(TEMPLATES[boxSize] == null){
+			TEMPLATES[boxSize] = new Template(boxSize);
+		}
+		return TEMPLATES[boxSize];
+	}
+
+
+	/*
+	* The fully linked matrix for one box order. Never changed after construction.
+	*/
+	private static final class Template {
+		final int size;
+		final int cells;
+
+		//the links of the full matrix, copied by every solve
+		final int[] left;
+		final int[] right;
+		final int[] up;
+		final int[] down;
+		final int[] count;
+
+		//which column header and which candidate every node belongs to
+		final int[] column;
+		final int[] candidate;
+
+		//the first node of every candidate row
+		final int[] first;
+
+		Template(int boxSize){
+			size = boxSize * boxSize;
+			cells = size * size;
+			int columns = 4 * cells;
+			int rows = cells * size;
+			int nodes = 1 + columns + 4 * rows;
+
+			left = new int[nodes];
+			right = new int[nodes];
+			up = new int[nodes];
+			down = new int[nodes];
+			count = new int[1 + columns];
+			column = new int[nodes];
+			candidate = new int[nodes];
+			first = new int[rows];
+
+			//link the headers in a circle through the root
+			for(int h = 0; h <= columns; h++){
+				left[h] = h == 0 ? columns : h - 1;
+				right[h] = h == columns ? 0 : h + 1;
+				up[h] = h;
+				down[h] = h;
+				column[h] = h;
+			}
+
+			int node = columns + 1;
+			int[] headers = new int[4];
+			for(int c = 0; c < rows; c++){
+				int cell = c / size;
+				int value = c % size;
+				int row = cell / size;
+				int col = cell % size;
+				int box = (row / boxSize) * boxSize + col / boxSize;
+
+				headers[0] = 1 + cell;
+				headers[1] = 1 + cells + row * size + value;
+				headers[2] = 1 + 2 * cells + col * size + value;
+				headers[3] = 1 + 3 * cells + box * size + value;
+
+				first[c] = node;
+				for(int k = 0; k < 4; k++){
+					int h = headers[k];
+					//insert the node at the bottom of its column
+					column[node] = h;
+					candidate[node] = c;
+					up[node] = up[h];
+					down[node] = h;
+					down[up[h]] = node;
+					up[h] = node;
+					count[h]++;
+
+					//and link it into the candidate's row
+					left[node] = k == 0 ? node + 3 : node - 1;
+					right[node] = k == 3 ? node - 3 : node + 1;
+					node++;
+				}
+			}
+		}
+	}
+
+
+	/*
+	* The working copy of the links for one solve.
+	*/
+	private static final class Matrix {
+		private final int size;
+		private final int[] column;
+		private final int[] candidate;
+		private final int[] first;
+
+		private final int[] left;
+		private final int[] right;
+		private final int[] up;
+		private final int[] down;
+		private final int[] count;
+
+		//the candidates chosen so far, givens first
+		private final int[] chosen;
+		private int depth;
+		private int givens;
+
+		//the budget, as in Search
+		private final CancellationToken cancel;
+		private final long maxNodes;
+		private final int maxDepth;
+		private final long deadline;
+		private final boolean timed;
+		long nodes;
+		SolveResult.Limit limit;     //why the search stopped early, or null
+
+		Matrix(Template template, SolveBudget budget){
+			size = template.size;
+			column = template.column;
+			candidate = template.candidate;
+			first = template.first;
+			left = template.left.clone();
+			right = template.right.clone();
+			up = template.up.clone();
+			down = template.down.clone();
+			count = template.count.clone();
+			chosen = new int[template.cells];
+			cancel = budget.getCancellation();
+			maxNodes = budget.getMaxNodes();
+			maxDepth = budget.getMaxDepth();
+			timed = budget.getTimeoutNanos() != Long.MAX_VALUE;
+			deadline = timed ? System.nanoTime() + budget.getTimeoutNanos() : 0;
+		}
+
+		/*
+		* Places the givens and searches for the rest.
+		* @param original the puzzle, with 0 for every unknown value
+		* @return the solved board, or null if the puzzle has no solution
+		* @throws IllegalArgumentException if the board is not square or holds a
+		*			value outside 0..N
+		*/
+		int[][] solve(int[][] original){
+			boolean[] covered = new boolean[count.length];
+			for(int row = 0; row < size; row++){
+				if(original[row].length != size){
+					throw new IllegalArgumentException("Board is not square");
+				}
+				for(int col = 0; col < size; col++){
+					int v = original[row][col];
+					if(v < 0 || v > size){
+						throw new IllegalArgumentException("Value " + v + " out of range at " + row + "," + col);
+					}
+					if(v == 0){
+						continue;
+					}
+
+					//a given whose constraints are already taken contradicts another given
+					int start = first[(row * size + col) * size + v - 1];
+					int j = start;
+					do{
+						if(covered[column[j]]){
+							return null;
+						}
+						covered[column[j]] = true;
+						cover(column[j]);
+						j = right[j];
+					}while(j != start);
+					chosen[depth++] = candidate[start];
+				}
+			}
+
+			givens = depth;
+			if(!search()){
+				return null;
+			}
+
+			int[][] solution = new int[size][size];
+			for(int i = 0; i < chosen.length; i++){
+				int cell = chosen[i] / size;
+				solution[cell / size][cell % size] = chosen[i] % size + 1;
+			}
+			return solution;
+		}
+
+		/*
+		* Algorithm X: cover the column with the fewest candidates left and try each
+		* of them in turn.
+		* @return true if every column got covered; chosen then holds the solution
+		*/
+		private boolean search(){
+			if(right[ROOT] == ROOT){
+				return true;
+			}
+			if(exhausted()){
+				return false;
+			}
+
+			//pick the column with the fewest remaining rows
+			int c = right[ROOT];
+			for(int h = right[c]; h != ROOT; h = right[h]){
+				if(count[h] < count[c]){
+					c = h;
+				}
+			}
+			if(count[c] == 0){
+				return false;
+			}
+
+			cover(c);
+			for(int r = down[c]; r != c; r = down[r]){
+				chosen[depth++] = candidate[r];
+				for(int j = right[r]; j != r; j = right[j]){
+					cover(column[j]);
+				}
+				if(search()){
+					return true;
+				}
+				for(int j = left[r]; j != r; j = left[j]){
+					uncover(column[j]);
+				}
+				depth--;
+				if(limit != null){
+					break;
+				}
+			}
+			uncover(c);
+			return false;
+		}
+
+		/*
+		* Counts a node and checks every limit of the budget.
+		* @return true if the search must stop
+		*/
+		private boolean exhausted(){
+			if(limit != null){
+				return true;
+			}
+			if(++nodes > maxNodes){
+				limit = SolveResult.Limit.NODES;
+			}
+			else if(depth - givens > maxDepth){
+				limit = SolveResult.Limit.DEPTH;
+			}
+			else if(cancel != null && cancel.isCancelled()){
+				limit = SolveResult.Limit.CANCELLED;
+			}
+			else if(timed && System.nanoTime() - deadline >= 0){
+				limit = SolveResult.Limit.DEADLINE;
+			}
+			return limit != null;
+		}
+
+		/*
+		* Removes a column and every row that has a node in it.
+		* @param c the column header
+		*/
+		private void cover(int c){
+			right[left[c]] = right[c];
+			left[right[c]] = left[c];
+			for(int i = down[c]; i != c; i = down[i]){
+				for(int j = right[i]; j != i; j = right[j]){
+					down[up[j]] = down[j];
+					up[down[j]] = up[j];
+					count[column[j]]--;
+				}
+			}
+		}
+
+		/*
+		* Puts back a column removed by cover, in exactly the reverse order.
+		* @param c the column header
+		*/
+		private void uncover(int c){
+			for(int i = up[c]; i != c; i = up[i]){
+				for(int j = left[i]; j != i; j = left[j]){
+					count[column[j]]++;
+					down[up[j]] = j;
+					up[down[j]] = j;
+				}
+			}
+			right[left[c]] = c;
+			left[right[c]] = c;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package search;
+import csp.*;
+
+/**
+* Incremental minimum-remaining-values selection. Every unfixed variable sits in
+* the bucket of its domain size, a doubly linked list threaded through int
+* arrays, and a bitmask records which buckets are non-empty, so the smallest
+* domain is found without rescanning the board.
+*
+* The buckets follow the board through the trail: every domain change the
+* search makes is pushed on the trail first, so before each selection the
+* buckets re-read the cells of the entries pushed since the last one, and
+* backtracking undoes through undo(), which re-reads each restored cell.
+*
+* With degree tie-breaking, each variable also counts its unfixed peers, and
+* among the variables of the smallest domain size the one constraining the most
+* others is chosen.
+*/
+final class MrvBuckets {
+
+	private final PeerIndex index;
+	private final boolean degree;
+	private final int[] bucket;  //bucket[cell] = the domain size the cell is filed under
+	private final int[] next;
+	private final int[] prev;
+	private final int[] head;    //head[size] = the first cell of that size, or -1
+	private final int[] unfixedPeers;
+	private int nonEmpty;        //bit s set iff bucket s holds a cell
+	private int synced;          //trail entries already accounted for
+
+	/*
+	* Files every variable of a board.
+	* @param index the peers of the board
+	* @param variables the board the search starts from
+	* @param trail the search's trail, from whose current mark changes are tracked
+	* @param degree true to break ties by the number of unfixed peers
+	*/
+	MrvBuckets(PeerIndex index, int[] variables, Trail trail, boolean degree){
+		this.index = index;
+		this.degree = degree;
+		bucket = new int[index.cells()];
+		next = new int[index.cells()];
+		prev = new int[index.cells()];
+		head = new int[index.size() + 1];
+		unfixedPeers = new int[index.cells()];
+		reset(variables, trail);
+	}
+
+	/*
+	* Empties the buckets and files every variable of a board again, to reuse
+	* them for another search.
+	* @param variables the board the search starts from
+	* @param trail the search's trail, from whose current mark changes are tracked
+	*/
+	void reset(int[] variables, Trail trail){
+		for(int s = 0; s < head.length; s++){
+			head[s] = -1;
+		}
+		nonEmpty = 0;
+		for(int cell = 0; cell < bucket.length; cell++){
+			bucket[cell] = 1;
+			unfixedPeers[cell] = 0;
+		}
+		for(int cell = 0; cell < bucket.length; cell++){
+			update(cell, variables[cell]);
+		}
+		synced = trail.mark();
+	}
+
+	/*
+	* Chooses the next variable to branch on.
+	* @param variables the current board
+	* @param trail the trail every change since the last call was pushed on
+	* @return the cell index of an unfixed variable with the smallest domain, or
+	*			-1 if every variable is fixed
+	*/
+	int select(int[] variables, Trail trail){
+		int mark = trail.mark();
+		for(int i = synced; i < mark; i++){
+			int cell = trail.cell(i);
+			update(cell, variables[cell]);
+		}
+		synced = mark;
+
+		if(nonEmpty == 0){
+			return -1;
+		}
+		int best = head[Integer.numberOfTrailingZeros(nonEmpty)];
+		if(degree){
+			for(int cell = next[best]; cell >= 0; cell = next[cell]){
+				if(unfixedPeers[cell] > unfixedPeers[best]){
+					best = cell;
+				}
+			}
+		}
+		return best;
+	}
+
+	/*
+	* Undoes the trail back to a mark, re-filing each restored variable.
+	* @param trail the search's trail
+	* @param mark a value returned by trail.mark()
+	* @param variables the board the changes were made to
+	*/
+	void undo(Trail trail, int mark, int[] variables){
+		while(trail.mark() > mark){
+			int cell = trail.pop(variables);
+			update(cell, variables[cell]);
+		}
+		if(synced > mark){
+			synced = mark;
+		}
+	}
+
+	/*
+	* Moves a variable to the bucket of its current domain size. Fixed and wiped
+	* out variables are in no bucket.
+	*/
+	private void update(int cell, int domain){
+		int size = Variable.size(domain);
+		if(size < 2){
+			size = 1;
+		}
+		int old = bucket[cell];
+		if(size == old){
+			return;
+		}
+		if(old > 1){
+			unlink(cell, old);
+		}
+		if(size > 1){
+			link(cell, size);
+		}
+		bucket[cell] = size;
+
+		//a variable becoming fixed or unfixed changes its peers' degrees
+		if(degree && (old == 1) != (size == 1)){
+			int delta = size == 1 ? -1 : 1;
+			for(int k = 0; k < index.peers(); k++){
+				unfixedPeers[index.peer(cell, k)] += delta;
+			}
+		}
+	}
+
+	private void link(int cell, int size){
+		int first = head[size];
+		next[cell] = first;
+		prev[cell] = -1;
+		if(first >= 0){
+			prev[first] = cell;
+		}
+		head[size] = cell;
+		nonEmpty |= 1 << size;
+	}
+
+	private void unlink(int cell, int size){
+		if(prev[cell] >= 0){
+			next[prev[cell]] = next[cell];
+		}
+		else{
+			head[size] = next[cell];
+			if(head[size] < 0){
+				nonEmpty &= ~(1 << size);
+			}
+		}
+		if(next[cell] >= 0){
+			prev[next[cell]] = prev[cell];
+		}
+	}
+}
@@ -1,12 +1,12 @@
 package search;
 import csp.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Node {
 
 	public static final int BOARD_SIZE = 9;
 
-	public Variable[][] variables; //the board configuration
+	public int[] variables; //the board configuration, one domain bitmask per variable
 	private Node parent;
 	//the row and column of the changed variable that led from the parent to this node.
 	private int row;
@@ -16,7 +16,7 @@ public class Node {
 	 * Create a root node with the input board and no Parent
 	 * @param var a board configuration
 	 */
-	public Node(Variable[][] var){
+	public Node(int[] var){
 		variables = var;
 		parent = null;
 		row = 0;
@@ -30,7 +30,7 @@ public class Node {
 	 * @param col the col of the changed variable between this and the parent node
 	 * @param newVariables the board for this node
 	 */
-	public Node(Node parent, int row, int col, Variable[][] newVariables){
+	public Node(Node parent, int row, int col, int[] newVariables){
 		variables = newVariables;
 		this.parent = parent;
 		this.row = row;
@@ -46,37 +46,49 @@ public class Node {
 	 * @return an array of the child nodes.
 	 */
 	public Node[] getChildren(int row, int col){
+		return getChildren(row, col, false);
+	}
+
+	/*
+	 * Creates child nodes for each element in the domain of the parent Board
+	 * at the indicated row/col, optionally least constraining value first.
+	 * @param row the row of the variable to change
+	 * @param col the col of the variable to change
+	 * @param leastConstraining true to order the children by how few unfixed
+	 *			peers could also take their value, false for smallest value first
+	 * @return an array of the child nodes.
+	 */
+	public Node[] getChildren(int row, int col, boolean leastConstraining){
 		//for the variable indicated by input row/col, for each value in its domain
 		//generate a node with the updated board.
+		int size = (int) Math.round(Math.sqrt(variables.length));
+		int index = row * size + col;
 
-		//get the variable that should be changed
-		Variable var = variables[row][col];
+		//get the domain of the variable that should be changed
+		int varDomain = variables[index];
 
-		//get the domain of the variable that should be Changed
-		ArrayList<Integer> varDomain = var.domain;
+		//create an array of nodes to hold all of the children, one per domain value
+		Node[] children = new Node[Variable.size(varDomain)];
 
-		//get the number of children to create (length of domain)
-		int numChildren = var.domain.size();
-
-		//create an array of nodes to hold all of the childre.
-		Node[] children = new Node[numChildren];
+		//the values in the order to try them
+		int[] values = new int[children.length];
+		if(leastConstraining){
+			Solver.leastConstrainingValues(PeerIndex.forSize(size), variables, index, values, 0);
+		}
+		else{
+			for(int i = 0; i < values.length; i++){
+				values[i] = Variable.getSingle(varDomain);
+				varDomain = Variable.remove(varDomain, values[i]);
+			}
+		}
 
-		for(int i = 0; i < numChildren; i++){
+		for(int i = 0; i < children.length; i++){
 			//clone the board
-			Variable[][] newVariables = new Variable[BOARD_SIZE][BOARD_SIZE];
-			for(int w = 0; w < BOARD_SIZE; w++){
-			 for (int q = 0; q < BOARD_SIZE; q++){
-				 ArrayList<Integer> oldDomain = variables[w][q].domain;
-				 newVariables[w][q] = new Variable(oldDomain);
-			 }
-			}
+			int[] newVariables = variables.clone();
 
 			//create the new child and add it to the children array
-			int d = variables[row][col].domain.get(i);
-			Variable newVar = new Variable(d);
-			newVariables[row][col] = newVar;
+			newVariables[index] = Variable.single(values[i]);
 			children[i] = new Node(this, row, col, newVariables);
-
 		}
 
 		return children;
@@ -88,12 +100,10 @@ public class Node {
 	 * @return true if the board is a solution (all variables have domain size of 1)
 	 */
 	public boolean isSolution(){
-		for(int row = 0; row < BOARD_SIZE; row++){
-			for(int col = 0; col < BOARD_SIZE; col++){
-				//if the domain is not 1 for all variables, a solution has not been found
-				if(variables[row][col].domain.size() != 1){
-					return false;
-				}
+		for(int i = 0; i < variables.length; i++){
+			//if the domain is not 1 for all variables, a solution has not been found
+			if(!Variable.isSingle(variables[i])){
+				return false;
 			}
 		}
 		return true;
@@ -103,20 +113,40 @@ public class Node {
 	 * return the board.
 	 * @return variables board
 	 */
-	public Variable[][] getVariables(){
+	public int[] getVariables(){
 		return variables;
 	}
 
+	/*
+	 * return the node this one was expanded from.
+	 * @return the parent, or null for the root
+	 */
+	public Node getParent(){
+		return parent;
+	}
+
+	/*
+	 * return the row of the variable assigned between the parent and this node.
+	 * @return the changed row
+	 */
+	public int getRow(){
+		return row;
+	}
+
+	/*
+	 * return the col of the variable assigned between the parent and this node.
+	 * @return the changed col
+	 */
+	public int getCol(){
+		return col;
+	}
+
 	/*
 	 * change the Node's variables to the input board.
 	 * @param board the new board configuration
 	 */
-	public void setBoard(Variable[][] board){
-		for(int i = 0; i < BOARD_SIZE; i++){
-			for(int j = 0; j <BOARD_SIZE; j++){
-				variables[i][j] = board[i][j];
-			}
-		}
+	public void setBoard(int[] board){
+		System.arraycopy(board, 0, variables, 0, variables.length);
 	}
 
 
@@ -126,16 +156,7 @@ public class Node {
 	 * @return true if all variables in the node's board have the same domain
 	 */
 	public boolean equalNode(Node other){
-		System.out.println("Node other: " + other);
-		for (int row = 0; row < BOARD_SIZE; row++){
-			for (int col = 0; col < BOARD_SIZE; col++){
-				System.out.println("!variables["+row+"][" +col+ "].equalDomain(other.variables[" +row +"]["+col+"]");
-				if(!variables[row][col].equalDomain(other.variables[row][col])){
-					return false;
-				}
-			}
-		}
-		return true;
+		return Arrays.equals(variables, other.variables);
 	}
 
 
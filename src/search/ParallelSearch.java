@@ -0,0 +1,284 @@
+package search;
+import csp.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* The CSP engine with the backtracking search split across a work-stealing
+* fork-join pool. After the AC-3 pre-pass, the top of the search tree is expanded
+* in parallel: every value of the MRV variable becomes its own task, which idle
+* workers steal. Below a depth threshold, or once few enough variables are left
+* unfixed, a task searches its subtree sequentially with Solver.backtracking.
+*
+* The first task to reach a solution publishes it and cancels the rest; so does
+* the first to run out of budget. A budget's timeout, cancellation and depth
+* limit apply to the whole search, but a node limit cannot be kept across
+* workers that count separately, so budgets with one are refused.
+*/
+public class ParallelSearch implements SolverStrategy {
+
+	public static final int DEFAULT_SPLIT_DEPTH = 4;
+	public static final int DEFAULT_MIN_UNFIXED = 20;
+
+	private final ForkJoinPool pool;
+	private final int splitDepth;
+	private final int minUnfixed;
+	private final SolveBudget budget;
+
+	/*
+	* Creates a parallel search on the common pool with the default thresholds.
+	*/
+	public ParallelSearch(){
+		this(SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Creates a parallel search on the common pool with the default thresholds
+	* and a limit on every solve.
+	* @param budget the limits each solve runs under
+	* @throws IllegalArgumentException if the budget has a node limit
+	*/
+	public ParallelSearch(SolveBudget budget){
+		this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH, DEFAULT_MIN_UNFIXED, budget);
+	}
+
+	/*
+	* Creates a parallel search.
+	* @param pool the pool whose workers run the subtrees
+	* @param splitDepth the depth from which subtrees are searched sequentially
+	* @param minUnfixed subtrees with fewer unfixed variables than this are
+	*			searched sequentially
+	*/
+	public ParallelSearch(ForkJoinPool pool, int splitDepth, int minUnfixed){
+		this(pool, splitDepth, minUnfixed, SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Creates a parallel search with a limit on every solve.
+	* @param pool the pool whose workers run the subtrees
+	* @param splitDepth the depth from which subtrees are searched sequentially
+	* @param minUnfixed subtrees with fewer unfixed variables than this are
+	*			searched sequentially
+	* @param budget the limits each solve runs under
+	* @throws IllegalArgumentException if the budget has a node limit
+	*/
+	public ParallelSearch(ForkJoinPool pool, int splitDepth, int minUnfixed, SolveBudget budget){
+		checkBudget(budget);
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+		this.minUnfixed = minUnfixed;
+		this.budget = budget;
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original, budget).getSolution();
+	}
+
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Solves a sudoku puzzle within a budget. The depth is counted from the
+	* board after the AC-3 pre-pass, and the nodes of every worker are added up.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve
+	* @return how the solve ended
+	* @throws IllegalArgumentException if the budget has a node limit
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		checkBudget(budget);
+		Job job = new Job(PeerIndex.forSize(original.length), budget);
+		int[] variables = Solver.AC3(new ArcQueue(job.index), Variable.fromInts(original));
+		if(variables == null){
+			return SolveResult.unsatisfiable(0);
+		}
+
+		pool.invoke(new SearchTask(job, variables, 0));
+		long nodes = job.nodes.sum();
+		if(job.solution.get() != null){
+			return SolveResult.solved(Solver.varToInt(job.solution.get()), nodes);
+		}
+		return job.limit.get() != null ? SolveResult.exhausted(job.limit.get(), nodes) : SolveResult.unsatisfiable(nodes);
+	}
+
+	public String toString(){
+		return "parallel";
+	}
+
+	private static void checkBudget(SolveBudget budget){
+		if(budget.getMaxNodes() != Long.MAX_VALUE){
+			throw new IllegalArgumentException("Parallel search cannot keep to a node limit; use a timeout instead");
+		}
+	}
+
+
+	/*
+	* What the tasks of one solve share: the budget, how the search ended, and
+	* the token that stops every task once it has.
+	*/
+	private static final class Job {
+		final PeerIndex index;
+		final SolveBudget budget;
+		final long deadline;         //System.nanoTime() to stop at
+		final boolean timed;         //false when there is no deadline
+		final CancellationToken cancel;
+		final AtomicReference<int[]> solution = new AtomicReference<int[]>();
+		final AtomicReference<SolveResult.Limit> limit = new AtomicReference<SolveResult.Limit>();
+		final LongAdder nodes = new LongAdder();
+
+		Job(PeerIndex index, SolveBudget budget){
+			this.index = index;
+			this.budget = budget;
+			timed = budget.getTimeoutNanos() != Long.MAX_VALUE;
+			deadline = timed ? System.nanoTime() + budget.getTimeoutNanos() : 0;
+			//the other tasks are stopped through this token, and so is everyone if the caller cancels
+			cancel = new CancellationToken(budget.getCancellation());
+		}
+
+		/*
+		* Checks for cancellation and the deadline, and stops every task once
+		* either is hit.
+		* @return true if the task must stop
+		*/
+		boolean expired(){
+			if(cancel.isCancelled()){
+				CancellationToken caller = budget.getCancellation();
+				if(caller != null && caller.isCancelled()){
+					stop(SolveResult.Limit.CANCELLED);
+				}
+				return true;
+			}
+			if(timed && System.nanoTime() - deadline >= 0){
+				stop(SolveResult.Limit.DEADLINE);
+				return true;
+			}
+			return false;
+		}
+
+		/*
+		* Records the limit the search stopped at, if it is the first, and stops
+		* the other tasks.
+		* @param hit the limit
+		*/
+		void stop(SolveResult.Limit hit){
+			limit.compareAndSet(null, hit);
+			cancel.cancel();
+		}
+
+		/*
+		* Publishes a solution if it is the first one, and stops the other tasks.
+		* @param board the solved board
+		*/
+		void found(int[] board){
+			if(solution.compareAndSet(null, board)){
+				cancel.cancel();
+			}
+		}
+
+		/*
+		* Makes the budget of a subtree searched sequentially: the time left, and
+		* the depth left below the subtree's root.
+		* @param depth the depth of the subtree's root
+		*/
+		SolveBudget subtree(int depth){
+			SolveBudget sub = SolveBudget.UNLIMITED.withCancellation(cancel);
+			if(timed){
+				sub = sub.withTimeout(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+			}
+			if(budget.getMaxDepth() != Integer.MAX_VALUE){
+				sub = sub.withMaxDepth(budget.getMaxDepth() - depth);
+			}
+			return sub;
+		}
+	}
+
+
+	/*
+	* Searches the subtree below one arc-consistent board.
+	*/
+	private final class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Job job;
+		private final int[] variables;
+		private final int depth;
+
+		SearchTask(Job job, int[] variables, int depth){
+			this.job = job;
+			this.variables = variables;
+			this.depth = depth;
+		}
+
+		protected void compute(){
+			if(job.expired()){
+				return;
+			}
+			job.nodes.increment();
+			if(depth > job.budget.getMaxDepth()){
+				job.stop(SolveResult.Limit.DEPTH);
+				return;
+			}
+
+			int var = Solver.minimumRemainingValue(variables);
+			if(var < 0){
+				job.found(variables);
+				return;
+			}
+
+			//small or deep subtrees are not worth splitting further
+			if(depth >= splitDepth || unfixed() < minUnfixed){
+				Search search = new Search(new ArcQueue(job.index), new Trail(job.index), null, null, null, null,
+						SolverOptions.Selection.SCAN);
+				search.limit(job.subtree(depth));
+				boolean solved = Solver.backtracking(search, variables);
+				job.nodes.add(search.nodes - 1);
+				if(solved){
+					job.found(variables);
+				}
+				else if(search.limit == SolveResult.Limit.CANCELLED){
+					//by the caller, or because another task has finished the search
+					job.expired();
+				}
+				else if(search.limit != null){
+					job.stop(search.limit);
+				}
+				return;
+			}
+
+			//one task per consistent value of the MRV variable
+			ArcQueue queue = new ArcQueue(job.index);
+			List<SearchTask> children = new ArrayList<SearchTask>();
+			int domain = variables[var];
+			while(domain != 0){
+				int d = Variable.getSingle(domain);
+				domain = Variable.remove(domain, d);
+
+				int[] child = variables.clone();
+				child[var] = Variable.single(d);
+				if(Solver.AC3(queue, child, var, null)){
+					children.add(new SearchTask(job, child, depth + 1));
+				}
+			}
+			invokeAll(children);
+		}
+
+		/*
+		* @return the number of variables whose value is not known yet
+		*/
+		private int unfixed(){
+			int count = 0;
+			for(int i = 0; i < variables.length; i++){
+				if(!Variable.isSingle(variables[i])){
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+}
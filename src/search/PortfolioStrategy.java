@@ -0,0 +1,278 @@
+package search;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Races several strategies on every puzzle and answers with the first to settle
+* it, solved or proved unsatisfiable. The losers are cancelled through a shared
+* CancellationToken as soon as there is a winner, so they stop at their next
+* poll; a strategy that cannot be stopped part way (see
+* SolverStrategy.trySolve) runs on to the end on its own thread, but its result
+* is ignored.
+*
+* No heuristic or engine wins on every grid, so racing a few different ones
+* bounds the time of each puzzle by its best entrant's, at the price of one
+* thread per entrant while the race lasts. The wins of each entrant, and their
+* mean time, are counted for tuning which entrants to keep.
+*/
+public class PortfolioStrategy implements SolverStrategy {
+
+	/* The threads of every portfolio built without its own executor. */
+	static final ExecutorService RACERS = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "portfolio");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final SolverStrategy[] entrants;
+	private final SolveBudget budget;
+	private final Executor executor;
+
+	private final LongAdder races = new LongAdder();
+	private final LongAdder undecided = new LongAdder();
+	private final LongAdder[] wins;
+	private final LongAdder[] winNanos;
+
+	/*
+	* Creates a portfolio with no limits, racing on a shared pool of daemon
+	* threads.
+	* @param entrants the strategies to race
+	* @throws IllegalArgumentException if there are none
+	*/
+	public PortfolioStrategy(List<? extends SolverStrategy> entrants){
+		this(entrants, SolveBudget.UNLIMITED, RACERS);
+	}
+
+	/*
+	* Creates a portfolio.
+	* @param entrants the strategies to race
+	* @param budget the limits every race runs under, shared by its entrants
+	* @param executor runs the entrants; it needs a thread per entrant free for
+	*			the race to be a race
+	* @throws IllegalArgumentException if there are no entrants
+	*/
+	public PortfolioStrategy(List<? extends SolverStrategy> entrants, SolveBudget budget, Executor executor){
+		if(entrants.isEmpty()){
+			throw new IllegalArgumentException("A portfolio needs at least one strategy");
+		}
+		this.entrants = entrants.toArray(new SolverStrategy[0]);
+		this.budget = budget;
+		this.executor = executor;
+		wins = new LongAdder[this.entrants.length];
+		winNanos = new LongAdder[this.entrants.length];
+		for(int i = 0; i < wins.length; i++){
+			wins[i] = new LongAdder();
+			winNanos[i] = new LongAdder();
+		}
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original, budget).getSolution();
+	}
+
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Races the entrants on a puzzle within a budget. Each entrant gets the whole
+	* budget, so the race ends at the budget's limits if no entrant settles the
+	* puzzle before.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this race
+	* @return the winner's result, or, if every entrant ran out of budget, the
+	*			last of theirs
+	* @throws RuntimeException what the last entrant threw, if every entrant
+	*			failed
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		long start = System.nanoTime();
+		races.increment();
+		Race race = new Race(budget);
+		for(int i = 0; i < entrants.length; i++){
+			int entrant = i;
+			try{
+				executor.execute(() -> race.run(entrant, original));
+			}
+			catch(RejectedExecutionException e){
+				race.finish(entrant, null, e);
+			}
+		}
+
+		SolveResult result;
+		try{
+			result = race.outcome.get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			race.cancel.cancel();
+			undecided.increment();
+			return SolveResult.exhausted(SolveResult.Limit.CANCELLED, 0);
+		}
+		catch(ExecutionException e){
+			undecided.increment();
+			Throwable cause = e.getCause();
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+		}
+
+		int winner = race.winner.get();
+		if(winner >= 0){
+			wins[winner].increment();
+			winNanos[winner].add(System.nanoTime() - start);
+		}
+		else{
+			undecided.increment();
+		}
+		return result;
+	}
+
+	/*
+	* @return the number of puzzles raced so far
+	*/
+	public long getRaces(){
+		return races.sum();
+	}
+
+	/*
+	* @return the number of races no entrant won, through the budget running out
+	*			or every entrant failing
+	*/
+	public long getUndecided(){
+		return undecided.sum();
+	}
+
+	/*
+	* @param entrant the entrant's position in the portfolio
+	* @return the number of races the entrant won
+	*/
+	public long getWins(int entrant){
+		return wins[entrant].sum();
+	}
+
+	/*
+	* @param entrant the entrant's position in the portfolio
+	* @return the mean time from the start of a race to the entrant's win, in
+	*			milliseconds, or 0 if it has not won
+	*/
+	public double getMeanWinMillis(int entrant){
+		long count = wins[entrant].sum();
+		return count == 0 ? 0 : winNanos[entrant].sum() / 1e6 / count;
+	}
+
+	/*
+	* Zeroes the race and win counts.
+	*/
+	public void resetStats(){
+		races.reset();
+		undecided.reset();
+		for(int i = 0; i < wins.length; i++){
+			wins[i].reset();
+			winNanos[i].reset();
+		}
+	}
+
+	/*
+	* @return the race count and each entrant's wins and mean winning time
+	*/
+	public String winSummary(){
+		StringBuilder summary = new StringBuilder("races=" + getRaces() + " undecided=" + getUndecided());
+		for(int i = 0; i < entrants.length; i++){
+			summary.append(' ').append(entrants[i]).append('=').append(getWins(i))
+					.append(String.format(" (%.3fms)", getMeanWinMillis(i)));
+		}
+		return summary.toString();
+	}
+
+	/*
+	* @return the entrants' names joined by '/', the name Strategies.forName
+	*			builds the portfolio from
+	*/
+	public String toString(){
+		StringBuilder name = new StringBuilder();
+		for(SolverStrategy entrant : entrants){
+			name.append(name.length() == 0 ? "" : "/").append(entrant);
+		}
+		return name.toString();
+	}
+
+
+	/*
+	* One puzzle's race.
+	*/
+	private final class Race {
+		final CancellationToken cancel;
+		final SolveBudget budget;
+		final CompletableFuture<SolveResult> outcome = new CompletableFuture<>();
+		final AtomicInteger winner = new AtomicInteger(-1);
+		final AtomicInteger running = new AtomicInteger(entrants.length);
+
+		//the last result without a winner, and the last failure
+		volatile SolveResult fallback;
+		volatile Throwable failure;
+
+		Race(SolveBudget budget){
+			//the losers are cancelled through this token, and so is everyone if the caller cancels
+			cancel = new CancellationToken(budget.getCancellation());
+			this.budget = budget.withCancellation(cancel);
+		}
+
+		/*
+		* Runs one entrant, unless the race is already over.
+		*/
+		void run(int entrant, int[][] original){
+			if(cancel.isCancelled()){
+				finish(entrant, null, null);
+				return;
+			}
+			try{
+				finish(entrant, entrants[entrant].trySolve(original, budget), null);
+			}
+			catch(RuntimeException | Error e){
+				finish(entrant, null, e);
+			}
+		}
+
+		/*
+		* Records how an entrant ended. The first to settle the puzzle wins and
+		* cancels the rest; the last to end settles a race nobody won.
+		* @param result the entrant's result, or null if it failed or never ran
+		* @param error what it threw, or null
+		*/
+		void finish(int entrant, SolveResult result, Throwable error){
+			if(result != null && result.getStatus() != SolveResult.Status.EXHAUSTED){
+				if(winner.compareAndSet(-1, entrant)){
+					cancel.cancel();
+					outcome.complete(result);
+				}
+			}
+			else if(result != null){
+				fallback = result;
+			}
+			else if(error != null){
+				failure = error;
+			}
+
+			if(running.decrementAndGet() == 0){
+				if(fallback != null){
+					outcome.complete(fallback);
+				}
+				else if(failure != null){
+					outcome.completeExceptionally(failure);
+				}
+				else{
+					outcome.complete(SolveResult.exhausted(SolveResult.Limit.CANCELLED, 0));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package search;
+
+/**
+* What Triage learned about a puzzle from singles-only propagation: the board
+* that propagation left, the features of that board, and the engine the puzzle
+* was routed to. Immutable.
+*/
+public final class PuzzleFeatures {
+
+	private final int[][] board;
+	private final int clues;
+	private final int open;
+	private final int candidates;
+	private final int completeUnits;
+	private final double logSpace;
+	private final int sweeps;
+	private final boolean contradiction;
+	private final Triage.Route route;
+
+	PuzzleFeatures(int[][] board, int clues, int open, int candidates, int completeUnits, double logSpace, int sweeps,
+			boolean contradiction, Triage.Route route){
+		this.board = board;
+		this.clues = clues;
+		this.open = open;
+		this.candidates = candidates;
+		this.completeUnits = completeUnits;
+		this.logSpace = logSpace;
+		this.sweeps = sweeps;
+		this.contradiction = contradiction;
+		this.route = route;
+	}
+
+	/*
+	* @return the puzzle with every value propagation fixed filled in; the
+	*			solution if there are no open cells left. Not a copy.
+	*/
+	int[][] getBoard(){
+		return board;
+	}
+
+	/*
+	* @return the number of givens
+	*/
+	public int getClues(){
+		return clues;
+	}
+
+	/*
+	* @return the number of cells propagation left unfixed
+	*/
+	public int getOpen(){
+		return open;
+	}
+
+	/*
+	* @return the number of candidates left over all open cells
+	*/
+	public int getCandidates(){
+		return candidates;
+	}
+
+	/*
+	* @return the mean number of candidates per open cell, or 0 if none is open
+	*/
+	public double getBranching(){
+		return open == 0 ? 0 : (double) candidates / open;
+	}
+
+	/*
+	* @return the number of rows, columns and boxes propagation completed
+	*/
+	public int getCompleteUnits(){
+		return completeUnits;
+	}
+
+	/*
+	* @return log2 of the number of boards the remaining candidates allow, a
+	*			bound on the size of the search space
+	*/
+	public double getLogSpace(){
+		return logSpace;
+	}
+
+	/*
+	* @return the number of hidden-single sweeps propagation made
+	*/
+	public int getSweeps(){
+		return sweeps;
+	}
+
+	/*
+	* @return true if propagation proved the puzzle has no solution
+	*/
+	public boolean isContradiction(){
+		return contradiction;
+	}
+
+	/*
+	* @return the engine the puzzle is routed to
+	*/
+	public Triage.Route getRoute(){
+		return route;
+	}
+
+	public String toString(){
+		return route + " clues=" + clues + " open=" + open + " candidates=" + candidates + " completeUnits=" + completeUnits
+				+ String.format(" logSpace=%.1f", logSpace) + " sweeps=" + sweeps + (contradiction ? " contradiction" : "");
+	}
+}
@@ -0,0 +1,241 @@
+package search;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Sends each puzzle to the cheapest engine likely to solve it, as a Triage
+* routes it: puzzles that singles settle never reach an engine, puzzles with a
+* small search space get light backtracking, and the rest the heavy engine.
+* Either engine starts from the board the singles left.
+*
+* The routing is checked as it runs, so its thresholds can be tuned on a real
+* corpus:
+*   - a light solve is capped at a node limit, and a puzzle that hits it is
+*     escalated to the heavy engine and counted as under-routed;
+*   - every auditEvery-th heavy puzzle is also given to the light engine under
+*     the same cap, after its result is known, and counted as over-routed if
+*     light search would have done.
+* The counts, with the puzzles and mean time of every route, are kept in
+* LongAdders, as in SolverMetrics, so concurrent solves do not contend.
+*/
+public class RoutingStrategy implements SolverStrategy {
+
+	/* The most nodes a light solve may take before it is escalated. */
+	public static final long DEFAULT_LIGHT_MAX_NODES = 1000;
+	/* How often a heavy puzzle is audited against light search. */
+	public static final int DEFAULT_AUDIT_EVERY = 64;
+
+	private final Triage triage;
+	private final SolverStrategy light;
+	private final SolverStrategy heavy;
+	private final long lightMaxNodes;
+	private final int auditEvery;
+	private final SolveBudget budget;
+
+	private final LongAdder[] routed = new LongAdder[Triage.Route.values().length];
+	private final LongAdder[] routedNanos = new LongAdder[Triage.Route.values().length];
+	private final LongAdder escalated = new LongAdder();
+	private final LongAdder audited = new LongAdder();
+	private final LongAdder overrouted = new LongAdder();
+	private final AtomicLong heavySolves = new AtomicLong();
+
+	/*
+	* Creates a router with the default triage, CSP backtracking with MRV as the
+	* light engine and the SAT engine as the heavy one, which also takes boards
+	* too large for the CSP engine.
+	* @param budget the limits of every solve
+	*/
+	public RoutingStrategy(SolveBudget budget){
+		this(new Triage(), new BacktrackingStrategy(SolverOptions.DEFAULT.withSelection(SolverOptions.Selection.MRV), null),
+				new SatStrategy(), DEFAULT_LIGHT_MAX_NODES, DEFAULT_AUDIT_EVERY, budget);
+	}
+
+	/*
+	* Creates a router.
+	* @param triage classifies each puzzle
+	* @param light the engine for puzzles with a small search space
+	* @param heavy the engine for the rest, and for escalated puzzles
+	* @param lightMaxNodes the node limit of a light solve
+	* @param auditEvery audit one in this many heavy puzzles, or 0 for none
+	* @param budget the limits of every solve; the light engine keeps to the
+	*			lower of the two node limits
+	*/
+	public RoutingStrategy(Triage triage, SolverStrategy light, SolverStrategy heavy, long lightMaxNodes, int auditEvery,
+			SolveBudget budget){
+		this.triage = triage;
+		this.light = light;
+		this.heavy = heavy;
+		this.lightMaxNodes = lightMaxNodes;
+		this.auditEvery = auditEvery;
+		this.budget = budget;
+		for(int i = 0; i < routed.length; i++){
+			routed[i] = new LongAdder();
+			routedNanos[i] = new LongAdder();
+		}
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original, budget).getSolution();
+	}
+
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Classifies a puzzle and solves it with the engine it is routed to.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve; its timeout covers the triage and
+	*			every engine run, escalation included, while an escalated puzzle
+	*			gets the whole node limit again on the heavy engine
+	* @return how the solve ended
+	* @throws IllegalArgumentException if the board is not a boxed square or
+	*			holds a value outside 0..N
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		long start = System.nanoTime();
+		PuzzleFeatures features = triage.classify(original);
+		Triage.Route route = features.getRoute();
+		int[][] board = features.getBoard();
+		SolveResult result;
+		switch(route){
+			case PROPAGATION:
+				result = features.isContradiction() ? SolveResult.unsatisfiable(0) : SolveResult.solved(board, 0);
+				break;
+			case LIGHT:
+				result = light.trySolve(board, budget.withMaxNodes(Math.min(lightMaxNodes, budget.getMaxNodes())));
+				if(result.getLimit() == SolveResult.Limit.NODES && budget.getMaxNodes() > lightMaxNodes){
+					escalated.increment();
+					long left = budget.getTimeoutNanos() == Long.MAX_VALUE ? Long.MAX_VALUE
+							: budget.getTimeoutNanos() - (System.nanoTime() - start);
+					result = left <= 0 ? SolveResult.exhausted(SolveResult.Limit.DEADLINE, result.getNodes())
+							: heavy.trySolve(board, budget.withTimeout(Duration.ofNanos(left)));
+				}
+				break;
+			default:
+				result = heavy.trySolve(board, budget);
+				break;
+		}
+		routed[route.ordinal()].increment();
+		routedNanos[route.ordinal()].add(System.nanoTime() - start);
+
+		if(route == Triage.Route.HEAVY && auditEvery > 0 && result.getStatus() != SolveResult.Status.EXHAUSTED
+				&& heavySolves.incrementAndGet() % auditEvery == 0){
+			audit(board, budget);
+		}
+		return result;
+	}
+
+	/*
+	* Tries light search on a heavy puzzle, to count the puzzles heavy search
+	* was wasted on.
+	*/
+	private void audit(int[][] board, SolveBudget budget){
+		SolveResult check;
+		try{
+			check = light.trySolve(board, SolveBudget.UNLIMITED.withMaxNodes(lightMaxNodes)
+					.withCancellation(budget.getCancellation()));
+		}
+		catch(IllegalArgumentException e){
+			//a board the light engine cannot take
+			return;
+		}
+		audited.increment();
+		if(check.getStatus() != SolveResult.Status.EXHAUSTED){
+			overrouted.increment();
+		}
+	}
+
+	/*
+	* @param route a route
+	* @return the number of puzzles sent down the route
+	*/
+	public long getRouted(Triage.Route route){
+		return routed[route.ordinal()].sum();
+	}
+
+	/*
+	* @param route a route
+	* @return the mean time of the puzzles sent down the route, triage and any
+	*			escalation included, in milliseconds
+	*/
+	public double getMeanMillis(Triage.Route route){
+		long count = getRouted(route);
+		return count == 0 ? 0 : routedNanos[route.ordinal()].sum() / 1e6 / count;
+	}
+
+	/*
+	* @return the number of light puzzles that hit the node limit and went on to
+	*			the heavy engine
+	*/
+	public long getEscalated(){
+		return escalated.sum();
+	}
+
+	/*
+	* @return the number of heavy puzzles also tried with light search
+	*/
+	public long getAudited(){
+		return audited.sum();
+	}
+
+	/*
+	* @return the number of audited heavy puzzles that light search solved or
+	*			refuted within its node limit
+	*/
+	public long getOverrouted(){
+		return overrouted.sum();
+	}
+
+	/*
+	* @return the share of light puzzles light search settled, or 1 if there
+	*			were none
+	*/
+	public double getLightAccuracy(){
+		long count = getRouted(Triage.Route.LIGHT);
+		return count == 0 ? 1 : 1 - (double) getEscalated() / count;
+	}
+
+	/*
+	* @return the share of audited heavy puzzles light search could not settle,
+	*			or 1 if none were audited
+	*/
+	public double getHeavyAccuracy(){
+		long count = getAudited();
+		return count == 0 ? 1 : 1 - (double) getOverrouted() / count;
+	}
+
+	/*
+	* Zeroes every count.
+	*/
+	public void resetStats(){
+		for(int i = 0; i < routed.length; i++){
+			routed[i].reset();
+			routedNanos[i].reset();
+		}
+		escalated.reset();
+		audited.reset();
+		overrouted.reset();
+	}
+
+	/*
+	* @return the puzzles and mean time of each route and the accuracy of the
+	*			light and heavy routes
+	*/
+	public String routingSummary(){
+		StringBuilder summary = new StringBuilder();
+		for(Triage.Route route : Triage.Route.values()){
+			summary.append(route.name().toLowerCase()).append('=').append(getRouted(route))
+					.append(String.format(" (%.3fms) ", getMeanMillis(route)));
+		}
+		return summary.append("escalated=").append(getEscalated())
+				.append(" overrouted=").append(getOverrouted()).append('/').append(getAudited())
+				.append(String.format(" lightAccuracy=%.3f heavyAccuracy=%.3f", getLightAccuracy(), getHeavyAccuracy()))
+				.toString();
+	}
+
+	public String toString(){
+		return "routed";
+	}
+}
@@ -0,0 +1,698 @@
+package search;
+import java.util.Arrays;
+
+/**
+* A conflict-driven clause learning (CDCL) SAT solver for formulas in
+* conjunctive normal form.
+*
+* Variables are numbered from 0 and a literal is 2*var for the variable and
+* 2*var+1 for its negation. The solver keeps the usual machinery:
+*
+*   - two watched literals per clause, with a blocking literal next to each
+*     watch so most satisfied clauses are skipped without being read;
+*   - first-UIP conflict analysis, with each learned clause shrunk by removing
+*     the literals its other literals' reasons already imply;
+*   - non-chronological backjumping to the second-highest level of the learned
+*     clause;
+*   - VSIDS variable activities in a binary heap, with saved phases;
+*   - Luby restarts, at which the learned clauses with the most decision levels
+*     (LBD) and least activity are thrown away once there are too many.
+*
+* A solver is built for one formula and is not thread safe.
+*/
+final class SatSolver {
+
+	private static final byte UNDEF = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+
+	private static final int NO_REASON = -1;
+	private static final int RESTART_BASE = 512;     //conflicts in the first Luby run
+	private static final double VAR_DECAY = 0.95;
+	private static final double CLAUSE_DECAY = 0.999;
+
+	private int vars;
+	private boolean contradiction;   //an empty clause was added, or found at level 0
+
+	//clauses by number; null once deleted
+	private int[][] clauses = new int[64][];
+	private boolean[] learnt = new boolean[64];
+	private int[] lbd = new int[64];
+	private double[] clauseActivity = new double[64];
+	private int clauseCount;
+	private int learntCount;
+	private double clauseInc = 1;
+
+	//watchers[lit] = (clause, blocker) pairs of the clauses watching lit
+	private int[][] watchers;
+	private int[] watcherSize;
+
+	//the assignment
+	private byte[] value;
+	private int[] level;
+	private int[] reason;
+	private boolean[] phase;         //the last value of each variable, tried first
+	private int[] trail;
+	private int trailSize;
+	private int[] levelStart;        //levelStart[d] = the trail size when level d began
+	private int decisionLevel;
+	private int propagated;          //trail entries propagated so far
+
+	//VSIDS
+	private double[] activity;
+	private double varInc = 1;
+	private int[] heap;
+	private int[] heapIndex;         //position in heap, or -1
+	private int heapSize;
+
+	//conflict analysis scratch
+	private boolean[] seen;
+	private int[] learned;
+	private int[] dropped;
+	private int[] levelStamp;
+	private int stamp;
+
+	private long conflicts;
+	private long decisions;
+	private long propagations;
+	private long restarts;
+
+	/*
+	* Creates a solver for a formula over a number of variables.
+	* @param vars the number of variables
+	*/
+	SatSolver(int vars){
+		this.vars = vars;
+		watchers = new int[2 * vars][];
+		watcherSize = new int[2 * vars];
+		for(int lit = 0; lit < 2 * vars; lit++){
+			watchers[lit] = new int[4];
+		}
+		value = new byte[vars];
+		level = new int[vars];
+		reason = new int[vars];
+		phase = new boolean[vars];
+		trail = new int[vars];
+		levelStart = new int[vars + 1];
+		activity = new double[vars];
+		heap = new int[vars];
+		heapIndex = new int[vars];
+		seen = new boolean[vars];
+		learned = new int[vars];
+		dropped = new int[vars];
+		levelStamp = new int[vars + 1];
+		for(int v = 0; v < vars; v++){
+			reason[v] = NO_REASON;
+			heapIndex[v] = -1;
+			heapInsert(v);
+		}
+	}
+
+	/*
+	* @return the literal of a variable being true
+	*/
+	static int positive(int var){
+		return 2 * var;
+	}
+
+	/*
+	* @return the literal of a variable being false
+	*/
+	static int negative(int var){
+		return 2 * var + 1;
+	}
+
+	/*
+	* Adds a clause of the formula. Must be called before solve.
+	* @param lits the literals, of which at least one must be true; not kept
+	* @return false if the formula is now known to be unsatisfiable
+	*/
+	boolean addClause(int... lits){
+		if(contradiction){
+			return false;
+		}
+		//drop false and repeated literals; a true or complementary one satisfies it
+		int[] clause = lits.clone();
+		Arrays.sort(clause);
+		int n = 0;
+		for(int i = 0; i < clause.length; i++){
+			int lit = clause[i];
+			if(litValue(lit) == TRUE || (n > 0 && clause[n - 1] == (lit ^ 1))){
+				return true;
+			}
+			if(litValue(lit) == UNDEF && (n == 0 || clause[n - 1] != lit)){
+				clause[n++] = lit;
+			}
+		}
+
+		if(n == 0){
+			contradiction = true;
+			return false;
+		}
+		if(n == 1){
+			assign(clause[0], NO_REASON);
+			if(propagate() >= 0){
+				contradiction = true;
+				return false;
+			}
+			return true;
+		}
+		attach(Arrays.copyOf(clause, n), false);
+		return true;
+	}
+
+	/*
+	* Searches for an assignment satisfying every clause.
+	* @param budget the limits of the search: its cancellation and its node
+	*			limit, counted in decisions; the depth limit does not apply
+	* @param deadline the System.nanoTime at which to give up, or Long.MAX_VALUE
+	* @return SOLVED with the model readable through isTrue, UNSATISFIABLE, or
+	*			EXHAUSTED if the budget ran out first
+	*/
+	SolveResult.Status solve(SolveBudget budget, long deadline){
+		if(contradiction){
+			return SolveResult.Status.UNSATISFIABLE;
+		}
+		int maxLearnts = Math.max(clauseCount / 3, 2000);
+		for(int run = 1; ; run++){
+			SolveResult.Status status = search(RESTART_BASE * luby(run), budget, deadline);
+			if(status != null){
+				return status;
+			}
+			restarts++;
+			backtrack(0);
+			if(learntCount > maxLearnts){
+				reduce();
+				maxLearnts += maxLearnts / 10;
+			}
+		}
+	}
+
+	/*
+	* Runs CDCL until a model, a proof of unsatisfiability, or a conflict limit.
+	* @return the outcome, or null to restart
+	*/
+	private SolveResult.Status search(long conflictLimit, SolveBudget budget, long deadline){
+		long runConflicts = 0;
+		while(true){
+			int conflict = propagate();
+			if(conflict >= 0){
+				conflicts++;
+				runConflicts++;
+				if(decisionLevel == 0){
+					contradiction = true;
+					return SolveResult.Status.UNSATISFIABLE;
+				}
+				int size = analyze(conflict);
+				backtrack(backjumpLevel(size));
+				if(size == 1){
+					assign(learned[0], NO_REASON);
+				}
+				else{
+					int c = attach(Arrays.copyOf(learned, size), true);
+					assign(learned[0], c);
+				}
+				varInc /= VAR_DECAY;
+				clauseInc /= CLAUSE_DECAY;
+				if((conflicts & 255) == 0 && expired(budget, deadline)){
+					return SolveResult.Status.EXHAUSTED;
+				}
+				continue;
+			}
+
+			if(runConflicts >= conflictLimit){
+				return null;
+			}
+			int next = pickBranchVariable();
+			if(next < 0){
+				return SolveResult.Status.SOLVED;
+			}
+			if(decisions >= budget.getMaxNodes() || ((decisions & 1023) == 0 && expired(budget, deadline))){
+				return SolveResult.Status.EXHAUSTED;
+			}
+			decisions++;
+			levelStart[++decisionLevel] = trailSize;
+			assign(phase[next] ? positive(next) : negative(next), NO_REASON);
+		}
+	}
+
+	/*
+	* Checks for cancellation and the deadline.
+	* @param deadline the System.nanoTime at which to give up, or Long.MAX_VALUE
+	*/
+	static boolean expired(SolveBudget budget, long deadline){
+		CancellationToken cancel = budget.getCancellation();
+		return (cancel != null && cancel.isCancelled()) || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+	}
+
+	/*
+	* Seeds the branching heuristic for a variable before solving: the value it
+	* is first tried with (false unless set) and a starting activity, so that
+	* variables with a higher priority are branched on first until conflicts
+	* take over.
+	* @param var the variable
+	* @param value the value to try first
+	* @param priority the starting activity, at least 0
+	*/
+	void prefer(int var, boolean value, double priority){
+		phase[var] = value;
+		activity[var] = priority;
+		if(heapIndex[var] >= 0){
+			heapUp(heapIndex[var]);
+		}
+	}
+
+	/*
+	* @return the number of branching decisions made so far
+	*/
+	long getDecisions(){
+		return decisions;
+	}
+
+	/*
+	* Determines if a variable is true in the model found by solve.
+	*/
+	boolean isTrue(int var){
+		return value[var] == TRUE;
+	}
+
+	/*
+	* Propagates every assignment on the trail through the watched literals.
+	* @return the number of a clause with every literal false, or -1
+	*/
+	private int propagate(){
+		while(propagated < trailSize){
+			int falseLit = trail[propagated++] ^ 1;
+			propagations++;
+			int[] ws = watchers[falseLit];
+			int n = watcherSize[falseLit];
+			int i = 0;
+			int j = 0;
+			while(i < n){
+				int c = ws[i];
+				int blocker = ws[i + 1];
+				i += 2;
+				if(litValue(blocker) == TRUE){
+					ws[j++] = c;
+					ws[j++] = blocker;
+					continue;
+				}
+
+				//make the false literal the second watch
+				int[] lits = clauses[c];
+				if(lits[0] == falseLit){
+					lits[0] = lits[1];
+					lits[1] = falseLit;
+				}
+				int first = lits[0];
+				if(first != blocker && litValue(first) == TRUE){
+					ws[j++] = c;
+					ws[j++] = first;
+					continue;
+				}
+
+				//look for a literal that is not false to watch instead
+				boolean moved = false;
+				for(int k = 2; k < lits.length; k++){
+					if(litValue(lits[k]) != FALSE){
+						lits[1] = lits[k];
+						lits[k] = falseLit;
+						watch(lits[1], c, first);
+						moved = true;
+						break;
+					}
+				}
+				if(moved){
+					continue;
+				}
+
+				//the clause is unit or conflicting
+				ws[j++] = c;
+				ws[j++] = first;
+				if(litValue(first) == FALSE){
+					while(i < n){
+						ws[j++] = ws[i++];
+					}
+					watcherSize[falseLit] = j;
+					propagated = trailSize;
+					return c;
+				}
+				assign(first, c);
+			}
+			watcherSize[falseLit] = j;
+		}
+		return -1;
+	}
+
+	/*
+	* Derives the first-UIP clause of a conflict into learned, asserting literal
+	* first, and bumps the activity of every variable and clause involved.
+	* @param conflict the conflicting clause
+	* @return the size of the learned clause
+	*/
+	private int analyze(int conflict){
+		int pending = 0;
+		int size = 1;             //learned[0] is the asserting literal, set last
+		int lit = -1;
+		int index = trailSize - 1;
+		int c = conflict;
+		do{
+			if(learnt[c]){
+				bumpClause(c);
+			}
+			int[] lits = clauses[c];
+			for(int k = lit < 0 ? 0 : 1; k < lits.length; k++){
+				int q = lits[k];
+				int v = q >> 1;
+				if(!seen[v] && level[v] > 0){
+					bumpVariable(v);
+					seen[v] = true;
+					if(level[v] >= decisionLevel){
+						pending++;
+					}
+					else{
+						learned[size++] = q;
+					}
+				}
+			}
+			//the next literal of this level on the trail to resolve on
+			while(!seen[trail[index] >> 1]){
+				index--;
+			}
+			lit = trail[index--];
+			c = reason[lit >> 1];
+			seen[lit >> 1] = false;
+			pending--;
+		}
+		while(pending > 0);
+		learned[0] = lit ^ 1;
+
+		//drop the literals whose reason consists of other literals of the clause
+		int kept = 1;
+		int removed = 0;
+		for(int k = 1; k < size; k++){
+			int v = learned[k] >> 1;
+			if(reason[v] == NO_REASON || !implied(reason[v])){
+				learned[kept++] = learned[k];
+			}
+			else{
+				dropped[removed++] = v;
+			}
+		}
+		for(int k = 0; k < kept; k++){
+			seen[learned[k] >> 1] = false;
+		}
+		for(int k = 0; k < removed; k++){
+			seen[dropped[k]] = false;
+		}
+		return kept;
+	}
+
+	/*
+	* Determines if every other literal of a reason clause is in the learned
+	* clause or fixed at level 0.
+	*/
+	private boolean implied(int c){
+		int[] lits = clauses[c];
+		for(int k = 1; k < lits.length; k++){
+			int v = lits[k] >> 1;
+			if(!seen[v] && level[v] > 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	* Finds the level to jump back to for a learned clause: the highest level
+	* among its other literals, whose literal is moved to position 1 so it is
+	* watched.
+	* @param size the size of the learned clause
+	* @return the level at which the clause becomes unit
+	*/
+	private int backjumpLevel(int size){
+		if(size == 1){
+			return 0;
+		}
+		int best = 1;
+		for(int k = 2; k < size; k++){
+			if(level[learned[k] >> 1] > level[learned[best] >> 1]){
+				best = k;
+			}
+		}
+		int swap = learned[1];
+		learned[1] = learned[best];
+		learned[best] = swap;
+		return level[learned[1] >> 1];
+	}
+
+	/*
+	* Counts the distinct decision levels of a clause's literals.
+	*/
+	private int levels(int[] lits){
+		stamp++;
+		int count = 0;
+		for(int lit : lits){
+			int l = level[lit >> 1];
+			if(levelStamp[l] != stamp){
+				levelStamp[l] = stamp;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	* Undoes every assignment above a decision level, saving the phases.
+	*/
+	private void backtrack(int target){
+		if(decisionLevel <= target){
+			return;
+		}
+		for(int i = trailSize - 1; i >= levelStart[target + 1]; i--){
+			int v = trail[i] >> 1;
+			phase[v] = value[v] == TRUE;
+			value[v] = UNDEF;
+			reason[v] = NO_REASON;
+			if(heapIndex[v] < 0){
+				heapInsert(v);
+			}
+		}
+		trailSize = levelStart[target + 1];
+		propagated = trailSize;
+		decisionLevel = target;
+	}
+
+	/*
+	* Makes a literal true at the current level.
+	*/
+	private void assign(int lit, int because){
+		int v = lit >> 1;
+		value[v] = (lit & 1) == 0 ? TRUE : FALSE;
+		level[v] = decisionLevel;
+		reason[v] = because;
+		trail[trailSize++] = lit;
+	}
+
+	private byte litValue(int lit){
+		byte v = value[lit >> 1];
+		return (lit & 1) == 0 ? v : (byte) -v;
+	}
+
+	/*
+	* Stores a clause of two or more literals and watches its first two.
+	* @return the clause number
+	*/
+	private int attach(int[] lits, boolean isLearnt){
+		if(clauseCount == clauses.length){
+			int grown = clauseCount * 2;
+			clauses = Arrays.copyOf(clauses, grown);
+			learnt = Arrays.copyOf(learnt, grown);
+			lbd = Arrays.copyOf(lbd, grown);
+			clauseActivity = Arrays.copyOf(clauseActivity, grown);
+		}
+		int c = clauseCount++;
+		clauses[c] = lits;
+		learnt[c] = isLearnt;
+		clauseActivity[c] = 0;
+		if(isLearnt){
+			lbd[c] = levels(lits);
+			learntCount++;
+			bumpClause(c);
+		}
+		watch(lits[0], c, lits[1]);
+		watch(lits[1], c, lits[0]);
+		return c;
+	}
+
+	private void watch(int lit, int c, int blocker){
+		int n = watcherSize[lit];
+		if(n + 2 > watchers[lit].length){
+			watchers[lit] = Arrays.copyOf(watchers[lit], 2 * watchers[lit].length);
+		}
+		watchers[lit][n] = c;
+		watchers[lit][n + 1] = blocker;
+		watcherSize[lit] = n + 2;
+	}
+
+	/*
+	* Deletes the worse half of the learned clauses, keeping those of LBD 2 or
+	* less, and renumbers the rest. Runs at level 0, where no clause is the
+	* reason of an assignment that analysis could reach.
+	*/
+	private void reduce(){
+		Integer[] order = new Integer[learntCount];
+		int n = 0;
+		for(int c = 0; c < clauseCount; c++){
+			if(learnt[c]){
+				order[n++] = c;
+			}
+		}
+		Arrays.sort(order, 0, n, (a, b) -> lbd[a] != lbd[b] ? Integer.compare(lbd[b], lbd[a])
+				: Double.compare(clauseActivity[a], clauseActivity[b]));
+		for(int i = 0; i < n / 2; i++){
+			if(lbd[order[i]] > 2){
+				clauses[order[i]] = null;
+			}
+		}
+
+		//compact the clause numbers and rebuild the watches
+		int kept = 0;
+		learntCount = 0;
+		for(int c = 0; c < clauseCount; c++){
+			if(clauses[c] != null){
+				clauses[kept] = clauses[c];
+				learnt[kept] = learnt[c];
+				lbd[kept] = lbd[c];
+				clauseActivity[kept] = clauseActivity[c];
+				if(learnt[kept]){
+					learntCount++;
+				}
+				kept++;
+			}
+		}
+		Arrays.fill(clauses, kept, clauseCount, null);
+		clauseCount = kept;
+		for(int v = 0; v < vars; v++){
+			reason[v] = NO_REASON;
+		}
+		Arrays.fill(watcherSize, 0);
+		for(int c = 0; c < clauseCount; c++){
+			watch(clauses[c][0], c, clauses[c][1]);
+			watch(clauses[c][1], c, clauses[c][0]);
+		}
+	}
+
+	private void bumpVariable(int v){
+		activity[v] += varInc;
+		if(activity[v] > 1e100){
+			for(int u = 0; u < vars; u++){
+				activity[u] *= 1e-100;
+			}
+			varInc *= 1e-100;
+		}
+		if(heapIndex[v] >= 0){
+			heapUp(heapIndex[v]);
+		}
+	}
+
+	private void bumpClause(int c){
+		clauseActivity[c] += clauseInc;
+		if(clauseActivity[c] > 1e20){
+			for(int d = 0; d < clauseCount; d++){
+				clauseActivity[d] *= 1e-20;
+			}
+			clauseInc *= 1e-20;
+		}
+	}
+
+	/*
+	* Takes the most active unassigned variable off the heap.
+	* @return the variable, or -1 if every variable is assigned
+	*/
+	private int pickBranchVariable(){
+		while(heapSize > 0){
+			int v = heap[0];
+			heapRemoveTop();
+			if(value[v] == UNDEF){
+				return v;
+			}
+		}
+		return -1;
+	}
+
+	private void heapInsert(int v){
+		heap[heapSize] = v;
+		heapIndex[v] = heapSize;
+		heapUp(heapSize++);
+	}
+
+	private void heapRemoveTop(){
+		heapIndex[heap[0]] = -1;
+		heapSize--;
+		if(heapSize > 0){
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			heapDown(0);
+		}
+	}
+
+	private void heapUp(int i){
+		int v = heap[i];
+		while(i > 0){
+			int parent = (i - 1) >> 1;
+			if(activity[heap[parent]] >= activity[v]){
+				break;
+			}
+			heap[i] = heap[parent];
+			heapIndex[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	private void heapDown(int i){
+		int v = heap[i];
+		while(true){
+			int child = 2 * i + 1;
+			if(child >= heapSize){
+				break;
+			}
+			if(child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]){
+				child++;
+			}
+			if(activity[heap[child]] <= activity[v]){
+				break;
+			}
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	/*
+	* Gets the i-th term (from 1) of the Luby sequence 1 1 2 1 1 2 4 1 1 2 ...
+	*/
+	static long luby(int i){
+		int k = 1;
+		while((1L << k) - 1 < i){
+			k++;
+		}
+		while(i != (1L << k) - 1){
+			i -= (1 << (k - 1)) - 1;
+			k = 1;
+			while((1L << k) - 1 < i){
+				k++;
+			}
+		}
+		return 1L << (k - 1);
+	}
+
+	public String toString(){
+		return "vars=" + vars + " clauses=" + (clauseCount - learntCount) + " learnt=" + learntCount + " conflicts="
+				+ conflicts + " decisions=" + decisions + " propagations=" + propagations + " restarts=" + restarts;
+	}
+}
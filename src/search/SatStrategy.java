@@ -0,0 +1,292 @@
+package search;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+* Solves a sudoku puzzle by encoding it as a SAT formula for the CDCL solver
+* (see SatSolver). Unlike chronological backtracking, clause learning never
+* revisits a failing combination it has already analysed, which is what hard
+* and adversarial grids need.
+*
+* There is one boolean variable per candidate (row, col, value), and four
+* families of exactly-one constraints, as in the Dancing Links matrix: every
+* cell holds one value, and every value appears once in every row, column and
+* box. Candidates ruled out by a given in the same unit are left out before
+* encoding, and the constraints a given already settles are skipped, so the
+* formula only covers the open part of the board.
+*
+* Exactly-one is an at-least-one clause plus an at-most-one constraint: the
+* pairwise clauses for short groups and Sinz's sequential counter, with one
+* auxiliary variable per member, for long ones, so the formula stays linear in
+* the board on the much larger boxed grids the other engines cannot represent
+* (N > 25). Branching starts from the cells with the fewest candidates, trying
+* each candidate true, before the solver's own activity scores take over.
+*/
+public class SatStrategy implements SolverStrategy {
+
+	/* Groups up to this size use pairwise at-most-one clauses. */
+	private static final int PAIRWISE_LIMIT = 6;
+	/* The budget is checked every CHECK_INTERVAL + 1 clauses while they are added. */
+	private static final int CHECK_INTERVAL = 1023;
+
+	private final SolveBudget budget;
+
+	/*
+	* Creates the SAT engine with no limits.
+	*/
+	public SatStrategy(){
+		this(SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Creates the SAT engine with a limit on every solve.
+	* @param budget the limits each solve runs under; its node limit counts
+	*			decisions and its depth limit does not apply
+	*/
+	public SatStrategy(SolveBudget budget){
+		this.budget = budget;
+	}
+
+	public int[][] solve(int[][] original){
+		return trySolve(original, budget).getSolution();
+	}
+
+	public SolveResult trySolve(int[][] original){
+		return trySolve(original, budget);
+	}
+
+	/*
+	* Solves a sudoku puzzle within a budget.
+	* @param original the N by N puzzle, with 0 for every unknown value; any box
+	*			order from 2 up
+	* @param budget the limits of this solve
+	* @return how the solve ended
+	* @throws IllegalArgumentException if the board is not a boxed square or
+	*			holds a value outside 0..N
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget){
+		//the timeout covers building the formula, which dominates on large boards
+		long timeout = budget.getTimeoutNanos();
+		long deadline = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeout;
+		Encoding cnf = new Encoding(original, budget, deadline);
+		if(cnf.exhausted){
+			return exhausted(budget, 0);
+		}
+		SatSolver sat = new SatSolver(cnf.vars);
+		for(int var = 0; var < cnf.candidates; var++){
+			sat.prefer(var, true, cnf.priority[var]);
+		}
+		List<int[]> clauses = cnf.clauses;
+		for(int i = 0; i < clauses.size(); i++){
+			if((i & CHECK_INTERVAL) == 0 && SatSolver.expired(budget, deadline)){
+				return exhausted(budget, 0);
+			}
+			if(!sat.addClause(clauses.get(i))){
+				return SolveResult.unsatisfiable(0);
+			}
+		}
+		SolveResult.Status status = cnf.unsatisfiable ? SolveResult.Status.UNSATISFIABLE : sat.solve(budget, deadline);
+		long decisions = sat.getDecisions();
+		switch(status){
+			case SOLVED:
+				return SolveResult.solved(cnf.decode(sat), decisions);
+			case UNSATISFIABLE:
+				return SolveResult.unsatisfiable(decisions);
+			default:
+				return exhausted(budget, decisions);
+		}
+	}
+
+	/*
+	* Reports which limit of a budget ran out.
+	*/
+	private static SolveResult exhausted(SolveBudget budget, long decisions){
+		CancellationToken cancel = budget.getCancellation();
+		return SolveResult.exhausted(cancel != null && cancel.isCancelled() ? SolveResult.Limit.CANCELLED
+				: decisions >= budget.getMaxNodes() ? SolveResult.Limit.NODES : SolveResult.Limit.DEADLINE, decisions);
+	}
+
+	public String toString(){
+		return "sat";
+	}
+
+
+	/*
+	* The CNF formula of one puzzle.
+	*/
+	private static final class Encoding {
+		final int size;
+		final int[] candidate;       //candidate[(row*N+col)*N+value-1] = its variable, or -1
+		final List<int[]> clauses = new ArrayList<>();
+		int vars;
+		int candidates;              //variables 0..candidates-1 are candidates, the rest auxiliary
+		double[] priority;           //of each candidate, higher in cells with fewer candidates
+		boolean unsatisfiable;       //two givens clash, or a constraint has no candidate left
+		boolean exhausted;           //the budget ran out before the formula was built
+
+		/*
+		* Builds the formula, checking the budget once per row of cells and per
+		* unit, and stopping early with exhausted set if it runs out.
+		* @param deadline the System.nanoTime at which to give up, or Long.MAX_VALUE
+		*/
+		Encoding(int[][] original, SolveBudget budget, long deadline){
+			size = original.length;
+			int boxSize = (int) Math.round(Math.sqrt(size));
+			if(boxSize < 2 || boxSize * boxSize != size){
+				throw new IllegalArgumentException("Board of size " + size + " is not a boxed square");
+			}
+
+			//which values the givens have placed in each row, column and box
+			boolean[] inRow = new boolean[size * (size + 1)];
+			boolean[] inCol = new boolean[size * (size + 1)];
+			boolean[] inBox = new boolean[size * (size + 1)];
+			for(int row = 0; row < size; row++){
+				if(original[row].length != size){
+					throw new IllegalArgumentException("Board is not square");
+				}
+				for(int col = 0; col < size; col++){
+					int v = original[row][col];
+					if(v < 0 || v > size){
+						throw new IllegalArgumentException("Value " + v + " out of range at " + row + "," + col);
+					}
+					if(v != 0){
+						int box = row / boxSize * boxSize + col / boxSize;
+						unsatisfiable |= inRow[row * (size + 1) + v] || inCol[col * (size + 1) + v] || inBox[box * (size + 1) + v];
+						inRow[row * (size + 1) + v] = true;
+						inCol[col * (size + 1) + v] = true;
+						inBox[box * (size + 1) + v] = true;
+					}
+				}
+			}
+
+			//number the candidates no given rules out
+			candidate = new int[size * size * size];
+			for(int row = 0; row < size; row++){
+				for(int col = 0; col < size; col++){
+					int box = row / boxSize * boxSize + col / boxSize;
+					int given = original[row][col];
+					for(int v = 1; v <= size; v++){
+						boolean open = given == 0 ? !inRow[row * (size + 1) + v] && !inCol[col * (size + 1) + v]
+								&& !inBox[box * (size + 1) + v] : given == v;
+						candidate[(row * size + col) * size + v - 1] = open ? vars++ : -1;
+					}
+				}
+			}
+
+			candidates = vars;
+			priority = new double[candidates];
+
+			//every cell holds one value; a given cell's one candidate is a unit clause
+			int[] group = new int[size];
+			for(int cell = 0; cell < size * size; cell++){
+				if(cell % size == 0 && SatSolver.expired(budget, deadline)){
+					exhausted = true;
+					return;
+				}
+				int n = 0;
+				for(int v = 1; v <= size; v++){
+					n = add(group, n, candidate[cell * size + v - 1]);
+				}
+				for(int i = 0; i < n; i++){
+					priority[group[i]] = 1.0 / n;
+				}
+				exactlyOne(group, n);
+			}
+
+			//every value missing from a row, column or box goes in exactly one of its cells
+			for(int unit = 0; unit < size; unit++){
+				if(SatSolver.expired(budget, deadline)){
+					exhausted = true;
+					return;
+				}
+				int boxRow = unit / boxSize * boxSize;
+				int boxCol = unit % boxSize * boxSize;
+				for(int v = 1; v <= size; v++){
+					if(!inRow[unit * (size + 1) + v]){
+						int n = 0;
+						for(int col = 0; col < size; col++){
+							n = add(group, n, candidate[(unit * size + col) * size + v - 1]);
+						}
+						exactlyOne(group, n);
+					}
+					if(!inCol[unit * (size + 1) + v]){
+						int n = 0;
+						for(int row = 0; row < size; row++){
+							n = add(group, n, candidate[(row * size + unit) * size + v - 1]);
+						}
+						exactlyOne(group, n);
+					}
+					if(!inBox[unit * (size + 1) + v]){
+						int n = 0;
+						for(int i = 0; i < size; i++){
+							int row = boxRow + i / boxSize;
+							int col = boxCol + i % boxSize;
+							n = add(group, n, candidate[(row * size + col) * size + v - 1]);
+						}
+						exactlyOne(group, n);
+					}
+				}
+			}
+		}
+
+		private static int add(int[] group, int n, int var){
+			if(var >= 0){
+				group[n++] = var;
+			}
+			return n;
+		}
+
+		/*
+		* Adds the clauses that make exactly one of a group of variables true.
+		*/
+		private void exactlyOne(int[] group, int n){
+			if(n == 0){
+				unsatisfiable = true;
+				return;
+			}
+			int[] atLeastOne = new int[n];
+			for(int i = 0; i < n; i++){
+				atLeastOne[i] = SatSolver.positive(group[i]);
+			}
+			clauses.add(atLeastOne);
+
+			if(n <= PAIRWISE_LIMIT){
+				for(int i = 0; i < n; i++){
+					for(int j = i + 1; j < n; j++){
+						clauses.add(new int[]{SatSolver.negative(group[i]), SatSolver.negative(group[j])});
+					}
+				}
+				return;
+			}
+
+			//sequential counter: s_i is true once one of x_1..x_i is
+			int first = vars;
+			vars += n - 1;
+			clauses.add(new int[]{SatSolver.negative(group[0]), SatSolver.positive(first)});
+			for(int i = 1; i < n - 1; i++){
+				int s = first + i;
+				clauses.add(new int[]{SatSolver.negative(group[i]), SatSolver.positive(s)});
+				clauses.add(new int[]{SatSolver.negative(s - 1), SatSolver.positive(s)});
+				clauses.add(new int[]{SatSolver.negative(group[i]), SatSolver.negative(s - 1)});
+			}
+			clauses.add(new int[]{SatSolver.negative(group[n - 1]), SatSolver.negative(first + n - 2)});
+		}
+
+		/*
+		* Reads the board off a model of the formula.
+		*/
+		int[][] decode(SatSolver sat){
+			int[][] board = new int[size][size];
+			for(int cell = 0; cell < size * size; cell++){
+				for(int v = 1; v <= size; v++){
+					int var = candidate[cell * size + v - 1];
+					if(var >= 0 && sat.isTrue(var)){
+						board[cell / size][cell % size] = v;
+						break;
+					}
+				}
+			}
+			return board;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package search;
+import csp.*;
+
+/**
+* The state one backtracking search carries down the tree: the propagation
+* worklists, the undo trail, the heuristics, and the optional rules, counters
+* and budget. A Search belongs to one solve on one thread.
+*/
+final class Search {
+
+	final ArcQueue queue;
+	final Trail trail;
+	final Inference rules;         //null for none
+	final AllDifferent gac;        //null for the binary model
+	SearchStats stats;             //null to skip counting
+	CancellationToken cancel;      //null to always run to the end
+	private final SolverOptions.Selection selection;
+	MrvBuckets buckets;            //null when selection scans the board
+	int[] values;                  //values[depth*N+i] = the i-th value to try at a depth, for LCV
+	SearchListener listener;       //null when nobody watches the search
+	long nodes;                    //counted whether or not there are stats, for the node limit
+	SolveResult.Limit limit;       //the limit the search stopped at, or null while within budget
+	private long deadline;         //System.nanoTime() to stop at
+	private boolean timed;         //false when there is no deadline, to skip reading the clock
+	private long maxNodes = Long.MAX_VALUE;
+	private int maxDepth = Integer.MAX_VALUE;
+	private int polls;             //propagation steps since the clock was last read
+
+	/*
+	* Creates the search state for a board.
+	* @param index the board's peers, arcs and units
+	* @param options the model and rules to propagate with
+	* @param stats receives the counters, or null
+	* @param cancel stops the search when cancelled, or null
+	*/
+	Search(PeerIndex index, SolverOptions options, SearchStats stats, CancellationToken cancel){
+		this(new ArcQueue(index), new Trail(index), options.getRules(),
+				options.getModel() == SolverOptions.Model.ALL_DIFFERENT ? new AllDifferent(index) : null,
+				stats, cancel, options.getSelection());
+		if(options.isLeastConstrainingValue()){
+			values = new int[(index.cells() + 1) * index.size()];
+		}
+	}
+
+	/*
+	* Creates the search state from its parts.
+	*/
+	Search(ArcQueue queue, Trail trail, Inference rules, AllDifferent gac, SearchStats stats, CancellationToken cancel,
+			SolverOptions.Selection selection){
+		this.queue = queue;
+		this.trail = trail;
+		this.rules = rules;
+		this.gac = gac;
+		this.stats = stats;
+		this.cancel = cancel;
+		this.selection = selection;
+	}
+
+	/*
+	* Chooses the next variable to branch on.
+	* @param variables the current board
+	* @return the cell index of an unfixed variable, or -1 if every variable is fixed
+	*/
+	int select(int[] variables){
+		return buckets != null ? buckets.select(variables, trail) : Solver.minimumRemainingValue(variables);
+	}
+
+	/*
+	* Restores every domain changed since a trail mark.
+	* @param mark a value returned by trail.mark()
+	* @param variables the board
+	*/
+	void undo(int mark, int[] variables){
+		if(buckets != null){
+			buckets.undo(trail, mark, variables);
+		}
+		else{
+			trail.undo(mark, variables);
+		}
+	}
+
+	/*
+	* Prepares the variable selection for a search from a propagated board.
+	* @param variables the board the search starts from
+	*/
+	void start(int[] variables){
+		if(buckets != null){
+			buckets.reset(variables, trail);
+		}
+		else if(selection != SolverOptions.Selection.SCAN){
+			buckets = new MrvBuckets(queue.index(), variables, trail, selection == SolverOptions.Selection.MRV_DEGREE);
+		}
+	}
+
+	/*
+	* Readies this search for another board of the same size, keeping every
+	* array it has already allocated (see SolveArena).
+	* @param stats receives the counters of the next solve, or null
+	*/
+	void reset(SearchStats stats){
+		queue.clear();
+		trail.clear();
+		if(gac != null){
+			gac.reset();
+		}
+		this.stats = stats;
+		cancel = null;
+		listener = null;
+		nodes = 0;
+		limit = null;
+		polls = 0;
+		timed = false;
+		maxNodes = Long.MAX_VALUE;
+		maxDepth = Integer.MAX_VALUE;
+	}
+
+	/*
+	* Starts the clock on a budget; the search stops once any of its limits is hit.
+	* @param budget the limits of this solve
+	*/
+	void limit(SolveBudget budget){
+		maxNodes = budget.getMaxNodes();
+		maxDepth = budget.getMaxDepth();
+		if(budget.getCancellation() != null){
+			cancel = budget.getCancellation();
+		}
+		timed = budget.getTimeoutNanos() != Long.MAX_VALUE;
+		if(timed){
+			deadline = System.nanoTime() + budget.getTimeoutNanos();
+		}
+	}
+
+	/*
+	* Counts a search node and checks every limit, once per node.
+	* @param depth the depth of the node
+	* @return true if the search must stop
+	*/
+	boolean exhausted(int depth){
+		if(limit != null){
+			return true;
+		}
+		if(++nodes > maxNodes){
+			limit = SolveResult.Limit.NODES;
+		}
+		else if(depth > maxDepth){
+			limit = SolveResult.Limit.DEPTH;
+		}
+		return limit != null || expired();
+	}
+
+	/*
+	* Checks for cancellation and the deadline from inside a propagation loop.
+	* The clock and the token are only read every 1024 steps, so a step costs an
+	* increment.
+	* @return true if the search must stop
+	*/
+	boolean interrupted(){
+		return limit != null || ((++polls & 1023) == 0 && expired());
+	}
+
+	/*
+	* Checks for cancellation and the deadline.
+	* @return true if the search must stop
+	*/
+	boolean expired(){
+		if(cancel != null && cancel.isCancelled()){
+			limit = SolveResult.Limit.CANCELLED;
+		}
+		else if(timed && System.nanoTime() - deadline >= 0){
+			limit = SolveResult.Limit.DEADLINE;
+		}
+		return limit != null;
+	}
+}
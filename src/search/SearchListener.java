@@ -0,0 +1,19 @@
+package search;
+
+/**
+* Watches a backtracking search as it runs, e.g. to show the board filling in.
+* The search calls the listener on its own thread at every node, so a listener
+* should return quickly and throttle anything expensive itself.
+*/
+public interface SearchListener {
+
+	/*
+	* Called as the search enters a node.
+	* @param variables the board as it stands, one domain bitmask per cell (see
+	*			csp.Variable); it is changed in place as the search goes on, so
+	*			copy it to keep it, and never change it
+	* @param depth the number of assignments made above this node
+	*/
+	void node(int[] variables, int depth);
+
+}
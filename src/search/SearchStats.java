@@ -0,0 +1,92 @@
+package search;
+
+/**
+* Counters for one CSP solve: how much work AC-3 did, how large the search tree
+* grew, and how the wall time split between the AC-3 pre-pass and the search.
+*
+* A solve only collects these when it is handed a SearchStats (see
+* Solver.solve(int[][], SearchStats)); without one, the counting branches in the
+* solver are never taken. One instance belongs to one solve on one thread, so the
+* counters are plain fields.
+*/
+public class SearchStats {
+
+	long arcsDequeued;
+	long revisions;
+	long valuesRemoved;
+	long valuesInferred;
+	long nodes;
+	long deadEnds;
+	int maxDepth;
+	long ac3Nanos;
+	long searchNanos;
+
+	/*
+	* @return the number of arcs taken off the AC-3 queue
+	*/
+	public long getArcsDequeued(){
+		return arcsDequeued;
+	}
+
+	/*
+	* @return the number of arc revisions that pruned a domain
+	*/
+	public long getRevisions(){
+		return revisions;
+	}
+
+	/*
+	* @return the number of values removed from domains by AC-3
+	*/
+	public long getValuesRemoved(){
+		return valuesRemoved;
+	}
+
+	/*
+	* @return the number of values removed by inference rules (see csp.Inference)
+	*/
+	public long getValuesInferred(){
+		return valuesInferred;
+	}
+
+	/*
+	* @return the number of search nodes expanded, counting the root
+	*/
+	public long getNodes(){
+		return nodes;
+	}
+
+	/*
+	* @return the number of assignments that AC-3 or the subtree below refuted
+	*/
+	public long getDeadEnds(){
+		return deadEnds;
+	}
+
+	/*
+	* @return the deepest level the search reached; 0 if AC-3 alone solved the board
+	*/
+	public int getMaxDepth(){
+		return maxDepth;
+	}
+
+	/*
+	* @return the wall time of the AC-3 pre-pass, in nanoseconds
+	*/
+	public long getAc3Nanos(){
+		return ac3Nanos;
+	}
+
+	/*
+	* @return the wall time of the backtracking search, in nanoseconds
+	*/
+	public long getSearchNanos(){
+		return searchNanos;
+	}
+
+	public String toString(){
+		return "arcs=" + arcsDequeued + " revisions=" + revisions + " removed=" + valuesRemoved
+				+ " inferred=" + valuesInferred + " nodes=" + nodes + " deadEnds=" + deadEnds + " maxDepth=" + maxDepth
+				+ " ac3=" + ac3Nanos / 1000 + "us search=" + searchNanos / 1000 + "us";
+	}
+}
@@ -0,0 +1,146 @@
+package search;
+import csp.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+* Enumerates every solution of a puzzle with the CSP engine, one at a time. The
+* backtracking search is unrolled onto an explicit stack of choice points, so it
+* can stop after each solution and resume from the same place on the next call.
+* Each choice point is a variable, a trail mark, and its values in the order
+* they are tried, so memory is bounded by the number of variables no matter how
+* many solutions there are.
+*
+* An iterator is not thread safe; the search runs on the thread calling next.
+*/
+public final class SolutionIterator implements Iterator<int[][]> {
+
+	private final Search search;
+	private final int[] variables;
+	private final int size;
+
+	//the choice points of the current path, indexed by depth
+	private final int[] frameVar;
+	private final int[] frameMark;
+	private final int[] frameCount;
+	private final int[] framePos;
+	private final int[] values; //values[depth*N+i] = the i-th value to try at a depth
+	private int depth;
+
+	private boolean started;
+	private boolean ready;     //a solution is on the board and not yet returned
+	private boolean exhausted;
+
+	/*
+	* Creates an iterator; nothing is searched until the first solution is asked for.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param options the model, rules and heuristics to search with
+	*/
+	public SolutionIterator(int[][] original, SolverOptions options){
+		variables = Variable.fromInts(original);
+		PeerIndex index = PeerIndex.forSize(original.length);
+		search = new Search(index, options, null, null);
+		size = index.size();
+		int frames = index.cells() + 1;
+		frameVar = new int[frames];
+		frameMark = new int[frames];
+		frameCount = new int[frames];
+		framePos = new int[frames];
+		values = new int[frames * size];
+		depth = -1;
+	}
+
+	public boolean hasNext(){
+		if(!ready && !exhausted){
+			ready = advance();
+			exhausted = !ready;
+		}
+		return ready;
+	}
+
+	/*
+	* @return the next solution, as a new N by N board
+	* @throws NoSuchElementException if every solution has been returned
+	*/
+	public int[][] next(){
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		ready = false;
+		return Solver.varToInt(variables);
+	}
+
+	/*
+	* Searches on from the last solution to the next one, leaving it on the board.
+	* @return false once there are no more solutions
+	*/
+	boolean advance(){
+		if(exhausted){
+			return false;
+		}
+		if(!started){
+			started = true;
+			if(!Solver.propagate(search, variables, -1)){
+				return false;
+			}
+			search.start(variables);
+			int var = search.select(variables);
+			if(var < 0){
+				//propagation alone solved the puzzle; the next call finds depth -1
+				return true;
+			}
+			push(var);
+		}
+
+		while(depth >= 0){
+			int f = depth;
+
+			//take back the value tried last at this choice point
+			search.undo(frameMark[f], variables);
+			if(framePos[f] == frameCount[f]){
+				depth--;
+				continue;
+			}
+
+			int var = frameVar[f];
+			int d = values[f * size + framePos[f]++];
+			search.trail.push(var, variables[var]);
+			variables[var] = Variable.single(d);
+			if(!Solver.propagate(search, variables, var)){
+				continue;
+			}
+
+			int next = search.select(variables);
+			if(next < 0){
+				return true;
+			}
+			push(next);
+		}
+		exhausted = true;
+		return false;
+	}
+
+	/*
+	* Opens a choice point on a variable, with its values in the order to try them.
+	*/
+	private void push(int var){
+		depth++;
+		frameVar[depth] = var;
+		frameMark[depth] = search.trail.mark();
+		framePos[depth] = 0;
+		int base = depth * size;
+		if(search.values != null){
+			frameCount[depth] = Solver.leastConstrainingValues(search.queue.index(), variables, var, values, base);
+		}
+		else{
+			int domain = variables[var];
+			int count = 0;
+			while(domain != 0){
+				int d = Variable.getSingle(domain);
+				domain = Variable.remove(domain, d);
+				values[base + count++] = d;
+			}
+			frameCount[depth] = count;
+		}
+	}
+}
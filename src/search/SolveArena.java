@@ -0,0 +1,114 @@
+package search;
+import csp.*;
+
+/**
+* Pre-sized, reusable storage for solving one board after another on a thread.
+* The board, the trail that every search frame indexes into, the propagation
+* worklists, the AllDifferent matchings and the MRV buckets are allocated once
+* and reset between solves, so a solve through an arena allocates nothing on
+* the heap once the arena exists; the solution is written into a board the
+* caller owns.
+*
+* An arena is not thread safe. A BacktrackingStrategy keeps one per thread and
+* board size for its own options, so threads shared by several strategies, such
+* as a portfolio's racers, never rebuild one.
+*/
+public final class SolveArena {
+
+	private final PeerIndex index;
+	private final Search search;
+	private final int[] board;
+	private final int full;
+
+	/*
+	* Creates an arena for boards of one size.
+	* @param index the peers and units of the board
+	* @param options the model, rules and heuristics every solve uses
+	*/
+	public SolveArena(PeerIndex index, SolverOptions options){
+		this.index = index;
+		search = new Search(index, options, null, null);
+		board = new int[index.cells()];
+		full = Variable.full(index.size());
+	}
+
+	/*
+	* @return the board size N this arena solves
+	*/
+	public int size(){
+		return index.size();
+	}
+
+	/*
+	* Solves a puzzle into a board the caller owns.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param solution receives the solved board; left unchanged unless the
+	*			status is SOLVED
+	* @param budget the limits on the solve's time and search
+	* @param stats receives the counters and timings, or null
+	* @return how the solve ended
+	* @throws IllegalArgumentException if the puzzle is not of this arena's size
+	*			or holds a value outside 0..N
+	*/
+	public SolveResult.Status solve(int[][] original, int[][] solution, SolveBudget budget, SearchStats stats){
+		int size = index.size();
+		if(original.length != size){
+			throw new IllegalArgumentException("Board of size " + original.length + " in an arena for " + size);
+		}
+		for(int row = 0; row < size; row++){
+			if(original[row].length != size){
+				throw new IllegalArgumentException("Board is not square");
+			}
+			for(int col = 0; col < size; col++){
+				int v = original[row][col];
+				if(v < 0 || v > size){
+					throw new IllegalArgumentException("Value " + v + " out of range at " + row + "," + col);
+				}
+				board[row * size + col] = v != 0 ? Variable.single(v) : full;
+			}
+		}
+
+		SolveResult.Status status = run(budget, stats);
+		if(status == SolveResult.Status.SOLVED){
+			for(int row = 0; row < size; row++){
+				for(int col = 0; col < size; col++){
+					solution[row][col] = Variable.getSingle(board[row * size + col]);
+				}
+			}
+		}
+		return status;
+	}
+
+	/*
+	* Solves a puzzle into a new board, reporting how the solve ended.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param budget the limits on the solve's time and search
+	* @param stats receives the counters and timings, or null
+	* @return the solution, a proof there is none, or the limit that was hit
+	* @throws IllegalArgumentException if the puzzle is not of this arena's size
+	*			or holds a value outside 0..N
+	*/
+	public SolveResult trySolve(int[][] original, SolveBudget budget, SearchStats stats){
+		int[][] solution = new int[index.size()][index.size()];
+		switch(solve(original, solution, budget, stats)){
+			case SOLVED:
+				return SolveResult.solved(solution, search.nodes);
+			case UNSATISFIABLE:
+				return SolveResult.unsatisfiable(search.nodes);
+			default:
+				return SolveResult.exhausted(search.limit, search.nodes);
+		}
+	}
+
+	/*
+	* Solves the arena's board in place.
+	*/
+	private SolveResult.Status run(SolveBudget budget, SearchStats stats){
+		search.reset(stats);
+		search.limit(budget);
+		if(Solver.solve(search, board)){
+			return SolveResult.Status.SOLVED;
+		}
+		return search.limit != null ? SolveResult.Status.EXHAUSTED : SolveResult.Status.UNSATISFIABLE;
+	}
+}
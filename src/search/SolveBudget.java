@@ -0,0 +1,146 @@
+package search;
+import java.time.Duration;
+
+/**
+* Limits on how much work one solve may do: a wall-clock timeout, a maximum
+* number of search nodes, a maximum search depth, and a cancellation token. A
+* solve that runs into any of them stops and reports which one (see
+* SolveResult). Budgets are immutable; the with methods return a changed copy,
+* so one instance can be shared by every solve, and the timeout starts afresh
+* for each.
+*
+* The search works on one board in place with a fixed-size trail, so its memory
+* is already bounded by the board; the depth limit bounds the open choices on
+* the search path instead.
+*/
+public final class SolveBudget {
+
+	/* No limits: run until the puzzle is solved or shown unsatisfiable. */
+	public static final SolveBudget UNLIMITED = new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, null);
+
+	private final long timeoutNanos;
+	private final long maxNodes;
+	private final int maxDepth;
+	private final CancellationToken cancel;
+
+	private SolveBudget(long timeoutNanos, long maxNodes, int maxDepth, CancellationToken cancel){
+		this.timeoutNanos = timeoutNanos;
+		this.maxNodes = maxNodes;
+		this.maxDepth = maxDepth;
+		this.cancel = cancel;
+	}
+
+	/*
+	* Reads a budget from the search.timeout (milliseconds) and search.maxNodes
+	* system properties, so every entry point takes the same -D flags.
+	* @return the budget, UNLIMITED if neither property is set
+	*/
+	public static SolveBudget fromSystemProperties(){
+		SolveBudget budget = UNLIMITED;
+		Long timeout = Long.getLong("search.timeout");
+		if(timeout != null){
+			budget = budget.withTimeout(Duration.ofMillis(timeout));
+		}
+		Long maxNodes = Long.getLong("search.maxNodes");
+		if(maxNodes != null){
+			budget = budget.withMaxNodes(maxNodes);
+		}
+		return budget;
+	}
+
+	/*
+	* @param timeout the longest a solve may run, counted from when it starts
+	* @return this budget with the given timeout
+	* @throws IllegalArgumentException if the timeout is negative
+	*/
+	public SolveBudget withTimeout(Duration timeout){
+		if(timeout.isNegative()){
+			throw new IllegalArgumentException("Negative timeout " + timeout);
+		}
+		long nanos;
+		try{
+			nanos = timeout.toNanos();
+		}
+		catch(ArithmeticException e){
+			nanos = Long.MAX_VALUE;
+		}
+		return new SolveBudget(nanos, maxNodes, maxDepth, cancel);
+	}
+
+	/*
+	* @param maxNodes the most search nodes a solve may visit
+	* @return this budget with the given node limit
+	* @throws IllegalArgumentException if maxNodes is negative
+	*/
+	public SolveBudget withMaxNodes(long maxNodes){
+		if(maxNodes < 0){
+			throw new IllegalArgumentException("Negative node limit " + maxNodes);
+		}
+		return new SolveBudget(timeoutNanos, maxNodes, maxDepth, cancel);
+	}
+
+	/*
+	* @param maxDepth the most assignments the search may stack up on one path
+	* @return this budget with the given depth limit
+	* @throws IllegalArgumentException if maxDepth is negative
+	*/
+	public SolveBudget withMaxDepth(int maxDepth){
+		if(maxDepth < 0){
+			throw new IllegalArgumentException("Negative depth limit " + maxDepth);
+		}
+		return new SolveBudget(timeoutNanos, maxNodes, maxDepth, cancel);
+	}
+
+	/*
+	* @param cancel stops the solve when cancelled, or null for none
+	* @return this budget with the given cancellation token
+	*/
+	public SolveBudget withCancellation(CancellationToken cancel){
+		return new SolveBudget(timeoutNanos, maxNodes, maxDepth, cancel);
+	}
+
+	/*
+	* @return the timeout in nanoseconds, or Long.MAX_VALUE for none
+	*/
+	public long getTimeoutNanos(){
+		return timeoutNanos;
+	}
+
+	/*
+	* @return the node limit, or Long.MAX_VALUE for none
+	*/
+	public long getMaxNodes(){
+		return maxNodes;
+	}
+
+	/*
+	* @return the depth limit, or Integer.MAX_VALUE for none
+	*/
+	public int getMaxDepth(){
+		return maxDepth;
+	}
+
+	/*
+	* @return the cancellation token, or null for none
+	*/
+	public CancellationToken getCancellation(){
+		return cancel;
+	}
+
+	public String toString(){
+		StringBuilder s = new StringBuilder("budget[");
+		if(timeoutNanos != Long.MAX_VALUE){
+			s.append(" timeout=").append(timeoutNanos / 1000000).append("ms");
+		}
+		if(maxNodes != Long.MAX_VALUE){
+			s.append(" nodes=").append(maxNodes);
+		}
+		if(maxDepth != Integer.MAX_VALUE){
+			s.append(" depth=").append(maxDepth);
+		}
+		if(cancel != null){
+			s.append(" cancellable");
+		}
+		return s.append(" ]").toString();
+	}
+}
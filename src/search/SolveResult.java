@@ -0,0 +1,101 @@
+package search;
+
+/**
+* The outcome of a solve under a SolveBudget: a solution, a proof that there is
+* none, or the limit the solve ran into before it could tell.
+*/
+public final class SolveResult {
+
+	/*
+	* How a solve ended.
+	*/
+	public enum Status {
+		/* A solution was found. */
+		SOLVED,
+		/* The search space was exhausted: the puzzle has no solution. */
+		UNSATISFIABLE,
+		/* The solve stopped at a limit before it could tell. */
+		EXHAUSTED
+	}
+
+	/*
+	* The limit an exhausted solve ran into.
+	*/
+	public enum Limit {
+		DEADLINE,
+		NODES,
+		DEPTH,
+		CANCELLED
+	}
+
+	private final Status status;
+	private final int[][] solution;
+	private final Limit limit;
+	private final long nodes;
+
+	private SolveResult(Status status, int[][] solution, Limit limit, long nodes){
+		this.status = status;
+		this.solution = solution;
+		this.limit = limit;
+		this.nodes = nodes;
+	}
+
+	/*
+	* @param solution the solved board
+	* @param nodes the search nodes visited
+	* @return the result of a solve that found a solution
+	*/
+	public static SolveResult solved(int[][] solution, long nodes){
+		return new SolveResult(Status.SOLVED, solution, null, nodes);
+	}
+
+	/*
+	* @param nodes the search nodes visited
+	* @return the result of a solve that proved there is no solution
+	*/
+	public static SolveResult unsatisfiable(long nodes){
+		return new SolveResult(Status.UNSATISFIABLE, null, null, nodes);
+	}
+
+	/*
+	* @param limit the limit the solve ran into
+	* @param nodes the search nodes visited
+	* @return the result of a solve that stopped before it could tell
+	*/
+	public static SolveResult exhausted(Limit limit, long nodes){
+		return new SolveResult(Status.EXHAUSTED, null, limit, nodes);
+	}
+
+	/*
+	* @return how the solve ended
+	*/
+	public Status getStatus(){
+		return status;
+	}
+
+	/*
+	* @return the solved board, or null unless the status is SOLVED
+	*/
+	public int[][] getSolution(){
+		return solution;
+	}
+
+	/*
+	* @return the limit the solve ran into, or null unless the status is EXHAUSTED
+	*/
+	public Limit getLimit(){
+		return limit;
+	}
+
+	/*
+	* @return the search nodes visited
+	*/
+	public long getNodes(){
+		return nodes;
+	}
+
+	public String toString(){
+		return status == Status.EXHAUSTED ? status + "(" + limit + ") after " + nodes + " nodes"
+				: status + " after " + nodes + " nodes";
+	}
+}
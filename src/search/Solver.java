@@ -1,12 +1,9 @@
 package search;
 import csp.*;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Iterator;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Stack;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
 * Solves a sudoku puzzle
@@ -16,52 +13,271 @@ public class Solver {
 	public static final int BOARD_SIZE = 9;
 
 
+	/*
+	* Solves a sudoku puzzle of any box order: 9x9, 16x16 or 25x25 (see PeerIndex).
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @return the solved board, or null if the puzzle has no solution
+	*/
 	public static int[][] solve(int[][] original){
+		return solve(original, null);
+	}
+
+
+	/*
+	* Solves a sudoku puzzle, counting the work done on the way.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param stats receives the AC-3 and search counters and timings, or null
+	*			to solve without counting
+	* @return the solved board, or null if the puzzle has no solution
+	*/
+	public static int[][] solve(int[][] original, SearchStats stats){
+		return solve(original, SolverOptions.DEFAULT, stats);
+	}
+
+
+	/*
+	* Solves a sudoku puzzle, running inference rules to a fixpoint together with
+	* AC-3 before and during the search.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param rules the inference rules to run alongside AC-3, or null for AC-3 only
+	* @param stats receives the AC-3 and search counters and timings, or null
+	*			to solve without counting
+	* @return the solved board, or null if the puzzle has no solution
+	*/
+	public static int[][] solve(int[][] original, Inference rules, SearchStats stats){
+		return solve(original, SolverOptions.DEFAULT.withRules(rules), stats);
+	}
+
+
+	/*
+	* Solves a sudoku puzzle with a given constraint model and inference rules.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param options the model to propagate and the rules to run with it
+	* @param stats receives the propagation and search counters and timings, or
+	*			null to solve without counting
+	* @return the solved board, or null if the puzzle has no solution
+	*/
+	public static int[][] solve(int[][] original, SolverOptions options, SearchStats stats){
+		return solve(original, options, SolveBudget.UNLIMITED, stats).getSolution();
+	}
+
+
+	/*
+	* Solves a sudoku puzzle within a budget. Cancellation and the deadline are
+	* checked in the propagation loops as well as at every search node, so a
+	* solve stops promptly even inside a long propagation.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param options the model to propagate and the rules to run with it
+	* @param budget the limits on the solve's time and search
+	* @param stats receives the propagation and search counters and timings, or
+	*			null to solve without counting
+	* @return the solution, a proof there is none, or the limit that was hit
+	*/
+	public static SolveResult solve(int[][] original, SolverOptions options, SolveBudget budget, SearchStats stats){
+		return solve(original, options, budget, stats, null);
+	}
+
+
+	/*
+	* Solves a sudoku puzzle within a budget, showing every search node to a
+	* listener.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param options the model to propagate and the rules to run with it
+	* @param budget the limits on the solve's time and search
+	* @param stats receives the propagation and search counters and timings, or
+	*			null to solve without counting
+	* @param listener is called at every search node, or null
+	* @return the solution, a proof there is none, or the limit that was hit
+	*/
+	public static SolveResult solve(int[][] original, SolverOptions options, SolveBudget budget, SearchStats stats,
+			SearchListener listener){
 
 		//GENERATE THE CSP
 
-		//generate variables
-		Variable[][] variables = new Variable[BOARD_SIZE][BOARD_SIZE];
-		for(int row = 0; row < BOARD_SIZE; row++){
-			for (int col = 0; col < BOARD_SIZE; col++){
-				if(original[row][col] != 0){
-					//variable is given in original problem
-					variables[row][col] = new Variable(original[row][col]);
-				}
-				else{
-					//variable not given, so create variable with fill 1-9 domain
-					variables[row][col] = new Variable();
-				}
-			}
-		}
+		//generate variables, one domain bitmask per cell
+		int[] variables = Variable.fromInts(original);
+
+		//the constraints are the shared peer index for this board size; each solve
+		//only needs its own worklists
+		PeerIndex index = PeerIndex.forSize(original.length);
+		Search search = new Search(index, options, stats, null);
+		search.limit(budget);
+		search.listener = listener;
+
+		boolean solved = solve(search, variables);
+		return result(search, solved ? variables : null);
+	}
 
-		//generate constraints
-		Constraints constraints = new Constraints();
 
+	/*
+	* Runs the propagation pre-pass and then, unless that settles the puzzle, the
+	* backtracking search. Allocates nothing once the search's arrays exist.
+	* @param search the state of the solve, with its budget set
+	* @param variables the board, solved in place
+	* @return true if the board now holds a solution; otherwise search.limit
+	*			tells a budget that ran out from a puzzle with no solution
+	*/
+	static boolean solve(Search search, int[] variables){
+		SearchStats stats = search.stats;
 
 		//TRY TO SOLVE USING AC-3 ALGORITHM
-		Variable[][] ac3VariableSolution = AC3(constraints, variables);
-
-		//convert AC3 result to a node and check whether it is a solution
-		Node root = new Node(ac3VariableSolution);
-		if(root.isSolution()){
-			//if AC3 solved the sudoku, return the solution.
-			int[][] ac3Solution = varToInt(ac3VariableSolution);
-			return ac3Solution;
+		long start = stats != null ? System.nanoTime() : 0;
+		boolean consistent = propagate(search, variables, -1);
+		if(stats != null){
+			stats.ac3Nanos = System.nanoTime() - start;
+		}
+		if(!consistent){
+			//the given values already contradict each other, unless propagation was cut short
+			countConstraints(search);
+			return false;
+		}
+
+		//check whether AC3 alone solved the sudoku
+		if(isSolved(variables)){
+			countConstraints(search);
+			return true;
 		}
 
 		//TRY TO SOLVE USING BACKTRACKING ALGORITHM
-		Stack<Node> frontier = new Stack<Node>();
-		Node backtrackingNodeSolution = backtracking(constraints, root, frontier);
-		Variable[][] backtrackingVariableSolution = backtrackingNodeSolution.getVariables();
-		int[][] backtrackingSolution = varToInt(backtrackingVariableSolution);
-		if(backtrackingSolution != null){
-			//sudoku was solved by backtracking!
-			return backtrackingSolution;
+		start = stats != null ? System.nanoTime() : 0;
+		search.start(variables);
+		boolean solved = backtracking(search, variables, 0);
+		if(stats != null){
+			stats.searchNanos = System.nanoTime() - start;
+		}
+		countConstraints(search);
+
+		//either solved by backtracking, or backtracking with AC-3 unable to solve sudoku
+		return solved;
+	}
+
+
+	/*
+	* Determines if every variable of a board is fixed.
+	*/
+	private static boolean isSolved(int[] variables){
+		for(int i = 0; i < variables.length; i++){
+			if(!Variable.isSingle(variables[i])){
+				return false;
+			}
 		}
+		return true;
+	}
+
+
+	/*
+	* Reports how a search ended.
+	* @param search the finished search
+	* @param solution the solved board, or null if none was found
+	*/
+	private static SolveResult result(Search search, int[] solution){
+		if(solution != null){
+			return SolveResult.solved(varToInt(solution), search.nodes);
+		}
+		if(search.limit != null){
+			return SolveResult.exhausted(search.limit, search.nodes);
+		}
+		return SolveResult.unsatisfiable(search.nodes);
+	}
+
+
+	/*
+	* Counts the solutions of a puzzle, stopping as soon as the limit is reached.
+	* A limit of 2 tells a proper puzzle (exactly one solution) from one with no
+	* solution or several.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param limit the most solutions to look for
+	* @return the number of solutions, at most limit
+	*/
+	public static int countSolutions(int[][] original, int limit){
+		return countSolutions(original, SolverOptions.DEFAULT, limit);
+	}
+
+
+	/*
+	* Counts the solutions of a puzzle with a given model and heuristics,
+	* stopping as soon as the limit is reached.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @param options the model, rules and heuristics to search with
+	* @param limit the most solutions to look for
+	* @return the number of solutions, at most limit
+	*/
+	public static int countSolutions(int[][] original, SolverOptions options, int limit){
+		SolutionIterator solutions = new SolutionIterator(original, options);
+		int count = 0;
+		while(count < limit && solutions.advance()){
+			count++;
+		}
+		return count;
+	}
+
+
+	/*
+	* Determines if a board of domains has any solution. Unlike solve, this takes
+	* arbitrary domains, so it can ask questions such as "is there a solution in
+	* which this cell is not 5", by leaving 5 out of that cell's domain.
+	* @param variables the board, one domain bitmask per cell (see Variable); it
+	*			is not changed
+	* @param options the model, rules and heuristics to search with
+	* @return true if some assignment of the domains is a solution
+	*/
+	public static boolean isSatisfiable(int[] variables, SolverOptions options){
+		PeerIndex index = PeerIndex.forSize((int) Math.round(Math.sqrt(variables.length)));
+		Search search = new Search(index, options, null, null);
+		int[] board = variables.clone();
+		if(!propagate(search, board, -1)){
+			return false;
+		}
+		search.start(board);
+		return backtracking(search, board, 0);
+	}
+
+
+	/*
+	* Determines if a puzzle has exactly one solution.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @return true if the puzzle has one solution, false if it has none or several
+	*/
+	public static boolean hasUniqueSolution(int[][] original){
+		return countSolutions(original, 2) == 1;
+	}
+
+
+	/*
+	* Enumerates the solutions of a puzzle lazily: each one is searched for only
+	* when it is asked for, and memory stays bounded by the search depth however
+	* many solutions there are.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @return an iterator over the solutions, in search order
+	*/
+	public static SolutionIterator solutions(int[][] original){
+		return new SolutionIterator(original, SolverOptions.DEFAULT);
+	}
 
-		//Backtracking with AC-3 unable to solve sudoku.
-		return null;
+
+	/*
+	* Streams the solutions of a puzzle lazily, e.g. to take the first few of an
+	* under-constrained grid with limit(). The stream is sequential; the search
+	* behind it runs on the consuming thread.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @return the solutions, in search order
+	*/
+	public static Stream<int[][]> solutionStream(int[][] original){
+		Spliterator<int[][]> spliterator = Spliterators.spliteratorUnknownSize(solutions(original),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+		return StreamSupport.stream(spliterator, false);
+	}
+
+
+	/*
+	* Copies the AllDifferent filtering counts into the stats; under that model
+	* a dequeued "arc" is a whole unit.
+	*/
+	private static void countConstraints(Search search){
+		if(search.stats != null && search.gac != null){
+			search.stats.arcsDequeued += search.gac.dequeued();
+			search.stats.revisions += search.gac.pruned();
+		}
 	}
 
 
@@ -71,86 +287,247 @@ public class Solver {
 	* Runs the AC3 algorithm on the sudoku board to impose arc-consistency for
 	* all input constraints. Returns the arc-consistent board, or null if arc-
 	* consistency is not possible.
-	* @param constraints the 1,944 constraints for sudoku boards
+	* @param queue the worklist to run AC3 with; it is left empty
 	* @param variables the original board given by the problem. Each element in
-	*			the array is a Variable object which holds a domain.
+	*			the array is a domain bitmask (see Variable).
 	* @return An arc-consistent board, or null if arc-consistency isn't possible.
 	*/
-	private static Variable[][] AC3(Constraints constraints, Variable[][] variables){
+	static int[] AC3(ArcQueue queue, int[] variables){
 		//copy the input board
-		Variable[][] copyVariables = new Variable[BOARD_SIZE][BOARD_SIZE];
-		for(int w = 0; w < BOARD_SIZE; w++){
-			for (int q = 0; q < BOARD_SIZE; q++){
-				ArrayList<Integer> oldDomain = variables[w][q].domain;
-				copyVariables[w][q] = new Variable(oldDomain);
+		int[] copyVariables = variables.clone();
+
+		//Add the arcs that can prune anything yet: those into fixed variables
+		addFixed(queue, copyVariables);
+
+		return propagate(queue, copyVariables, null, null, null) ? copyVariables : null;
+	}
+
+
+	/*
+	* Restores arc-consistency to a board that was arc-consistent before a single
+	* variable was assigned (maintaining arc consistency, MAC). Only the arcs
+	* pointing at the assigned variable can have lost support, so AC3 starts from
+	* those instead of from every arc on the board. Works on the board in place.
+	* @param queue the worklist to run AC3 with; it is left empty
+	* @param variables an arc-consistent board except at var
+	* @param var the cell index of the assigned variable
+	* @param trail records the old domain of every changed variable, or null
+	* @return false if arc-consistency isn't possible.
+	*/
+	static boolean AC3(ArcQueue queue, int[] variables, int var, Trail trail){
+		//Add the incoming arcs of the changed variable to the queue
+		addIncoming(queue, var);
+
+		return propagate(queue, variables, trail, null, null);
+	}
+
+
+	/*
+	* Restores consistency under the search's model and rules, either from
+	* scratch or after a single variable was assigned.
+	* @param search the worklists, trail, rules and counters of the solve
+	* @param variables the board, changed in place
+	* @param var the cell index of the assigned variable, or -1 to propagate
+	*			every constraint without recording changes on the trail
+	* @return false if some variable's domain became empty
+	*/
+	static boolean propagate(Search search, int[] variables, int var){
+		Trail trail = var < 0 ? null : search.trail;
+		if(search.gac != null){
+			return propagateAllDifferent(search, variables, var, trail);
+		}
+		if(var < 0){
+			addFixed(search.queue, variables);
+		}
+		else{
+			addIncoming(search.queue, var);
+		}
+		return propagate(search.queue, variables, trail, search.rules, search);
+	}
+
+
+	/*
+	* Filters the AllDifferent constraints and runs the inference rules until
+	* neither removes a value.
+	*/
+	private static boolean propagateAllDifferent(Search search, int[] variables, int var, Trail trail){
+		AllDifferent gac = search.gac;
+		if(var < 0){
+			gac.addAll();
+		}
+		else{
+			gac.changed(var);
+		}
+
+		while(true){
+			if(search.expired()){
+				gac.clear();
+				search.queue.clear();
+				return false;
+			}
+			int removed = gac.propagate(variables, trail);
+			if(removed == AllDifferent.CONTRADICTION){
+				return false;
 			}
+			if(search.stats != null){
+				search.stats.valuesRemoved += removed;
+			}
+			if(search.rules == null){
+				return true;
+			}
+
+			int inferred = search.rules.apply(variables, search.queue, trail);
+			if(inferred == InferenceRule.CONTRADICTION){
+				search.queue.clear();
+				return false;
+			}
+			if(search.stats != null){
+				search.stats.valuesInferred += inferred;
+			}
+			if(inferred == 0){
+				return true;
+			}
+
+			//the rules queue the arcs into each variable they narrow; here it is
+			//that variable's units that need filtering again
+			PeerIndex peers = search.queue.index();
+			while(!search.queue.isEmpty()){
+				gac.changed(peers.target(search.queue.poll()));
+			}
+		}
+	}
+
+
+	/*
+	* Queues the arcs into every fixed variable. An arc (Xi, Xj) can only prune Xi
+	* once Xj is fixed, and a variable fixed later on has its incoming arcs queued
+	* then, so AC-3 reaches the same result as from all arcs with far fewer
+	* revisions.
+	*/
+	private static void addFixed(ArcQueue queue, int[] variables){
+		for(int var = 0; var < variables.length; var++){
+			if(Variable.isSingle(variables[var])){
+				addIncoming(queue, var);
+			}
+		}
+	}
+
+
+	/*
+	* Queues the incoming arcs of a variable.
+	*/
+	private static void addIncoming(ArcQueue queue, int var){
+		PeerIndex peers = queue.index();
+		for (int k = 0; k < peers.peers(); k++){
+			queue.add(peers.incoming(var, k));
 		}
+	}
 
-		LinkedList<BinaryDiffConstraint> queue = new LinkedList<BinaryDiffConstraint>();
-		//Add all constraints to the queue.
-		int constraintSize = constraints.getConstraints().size();
 
-		for (int i = 0; i < constraintSize; i++){
-			//Add twice: once in the form (Xi, Xj) and once in the form (Xj, Xi)
-			BinaryDiffConstraint a = constraints.getConstraints().get(i);
-			BinaryDiffConstraint b = new BinaryDiffConstraint(a.row2, a.col2, a.row1, a.col1);
-			queue.add(a);
-			queue.add(b);
+	/*
+	* Alternates AC-3 with the inference rules until neither removes a value.
+	* AC-3 runs first each round since it is the cheapest; a rule that narrows a
+	* domain queues that variable's incoming arcs for the next round.
+	* @param queue the arcs to revise
+	* @param variables the board to make arc-consistent
+	* @param trail records the old domain of every changed variable, or null
+	* @param rules the inference rules to run, or null
+	* @param search the counters and budget of the solve, or null
+	* @return false if some variable's domain became empty, or the budget ran out
+	*/
+	private static boolean propagate(ArcQueue queue, int[] variables, Trail trail, Inference rules, Search search){
+		SearchStats stats = search != null ? search.stats : null;
+		while(propagate(queue, variables, trail, search)){
+			if(rules == null){
+				return true;
+			}
+			int removed = rules.apply(variables, queue, trail);
+			if(removed == InferenceRule.CONTRADICTION){
+				queue.clear();
+				return false;
+			}
+			if(stats != null){
+				stats.valuesInferred += removed;
+			}
+			if(removed == 0){
+				return true;
+			}
 		}
+		return false;
+	}
+
 
+	/*
+	* Revises the arcs on the queue until it is empty, re-queuing the incoming
+	* arcs of every variable whose domain shrinks. Works on the board in place.
+	* @param queue the arcs to revise
+	* @param variables the board to make arc-consistent
+	* @param trail records the old domain of every changed variable, or null
+	* @param search the counters and budget of the solve, or null
+	* @return false if some variable's domain became empty, or the budget ran out
+	*/
+	private static boolean propagate(ArcQueue queue, int[] variables, Trail trail, Search search){
+		PeerIndex peers = queue.index();
+		SearchStats stats = search != null ? search.stats : null;
 		while(!queue.isEmpty()){
+			if(search != null && search.interrupted()){
+				queue.clear();
+				return false;
+			}
 
-			BinaryDiffConstraint bdc = queue.removeFirst();
+			int arc = queue.poll();
+			int var1 = peers.source(arc);
+			int oldDomain = variables[var1];
+			if(stats != null){
+				stats.arcsDequeued++;
+			}
 
-			//Make bdc var1 arc-consistent with respect to bdc var2
-			if (removeValues(bdc, copyVariables)){
-				//if domain of variable 1 in bdc is empty, this CSP cannot be satisfied
+			//Make var1 arc-consistent with respect to var2
+			if (removeValues(var1, peers.target(arc), variables)){
+				if(trail != null){
+					trail.push(var1, oldDomain);
+				}
+				if(stats != null){
+					stats.revisions++;
+					stats.valuesRemoved += Variable.size(oldDomain ^ variables[var1]);
+				}
+				//if domain of variable 1 is empty, this CSP cannot be satisfied
 
-				if(copyVariables[bdc.row1][bdc.col1].domain.isEmpty()){
+				if(variables[var1] == 0){
 					//return FAILURE
-					return null;
+					queue.clear();
+					return false;
 				}
 
-				//re-queue all incoming arcs bdc var1 (All bdc where var1 is var 2 position)
-				for (int i = 0; i < constraintSize; i++){
-					BinaryDiffConstraint c = constraints.getConstraints().get(i);
-					if(c.row2 == bdc.row1 && c.col2 == bdc.col1){
-						queue.add(c);
-					}
+				//re-queue all incoming arcs of var1 (its 20 peers against var1 on a 9x9 board)
+				for (int k = 0; k < peers.peers(); k++){
+					queue.add(peers.incoming(var1, k));
 				}
 
 			}
 		}
-		return copyVariables;
+		return true;
 	}
 
 
 	/*
 	* Removes elements from variable's domains to makes a given board arc-consistent
 	* for a specified constraint.
-	* @param bdc the constraint to enforce
-	* @return true if the constraint can be enforced, false if it makes any of the domain sizes < 1
+	* @param var1 the cell index of the variable to revise
+	* @param var2 the cell index of the variable it must differ from
+	* @param variables the board
+	* @return true if the domain of var1 was changed
 	*/
-	private static boolean removeValues(BinaryDiffConstraint bdc, Variable[][] variables){
-		boolean modified = false;
-		boolean found = false;
-
-		for (int i = 0; i < variables[bdc.row1][bdc.col1].domain.size(); i++){
-			found = false;
-			for (int j = 0; j < variables[bdc.row2][bdc.col2].domain.size(); j++){
-				if(variables[bdc.row1][bdc.col1].domain.get(i) != variables[bdc.row2][bdc.col2].domain.get(j)){
-					found = true;
-					break;
-				}
-			}
-			if(!found){
-				//constraint is not satisfied, remove d1 from domain1
-				variables[bdc.row1][bdc.col1].domain.remove(variables[bdc.row1][bdc.col1].domain.get(i));
-				modified = true;
-			}
+	static boolean removeValues(int var1, int var2, int[] variables){
+		int domain2 = variables[var2];
+
+		//a value d1 of var1 only lacks support when var2's domain is exactly {d1}
+		if(Variable.isSingle(domain2) && (variables[var1] & domain2) != 0){
+			//constraint is not satisfied, remove d1 from domain1
+			variables[var1] &= ~domain2;
+			return true;
 		}
-
-		return modified;
+		return false;
 	}
 
 	/*
@@ -158,18 +535,19 @@ public class Solver {
 	* @param variables the board to be converted.
 	* @return a board of ints, or null if any variables have a domain size != 1
 	*/
-	private static int[][] varToInt(Variable[][] variables){
-		int[][] ret = new int[BOARD_SIZE][BOARD_SIZE];
+	static int[][] varToInt(int[] variables){
+		int size = variables == null ? BOARD_SIZE : (int) Math.round(Math.sqrt(variables.length));
+		int[][] ret = new int[size][size];
 		if(variables != null){
-			for(int row = 0; row < BOARD_SIZE; row++){
-				for(int col = 0; col < BOARD_SIZE; col++){
-					if(variables[row][col].domain.size() != 1){
+			for(int row = 0; row < size; row++){
+				for(int col = 0; col < size; col++){
+					if(!Variable.isSingle(variables[row * size + col])){
 						//the domain is larger than one so it's not a solution
-						int[][] failure = new int[BOARD_SIZE][BOARD_SIZE];
+						int[][] failure = new int[size][size];
 						return failure;
 					}
 					else{
-						ret[row][col] = variables[row][col].getSingle();
+						ret[row][col] = Variable.getSingle(variables[row * size + col]);
 					}
 				}
 			}
@@ -183,116 +561,152 @@ public class Solver {
 	* Run backtracking search to find board solution. Pick the variable on the board
 	* with the smallest domain, and for each of its possible domain assignments,
 	* assign arc-consistency and use Depth First Search (DFS) to find a board solution.
-	* @param constraints the 1,944 constraints for sudoku boards
-	* @param initialBoard the root board for DFS
-	* @param frontier a stack to contain the nodes yet to be explored
-	* @return a node with the solution to the sudoku.
+	* The search works on the one board in place: every domain change is recorded on
+	* the trail and undone when an assignment fails, and values are tried one at a
+	* time, so memory is bounded by the search depth rather than the nodes explored.
+	* @param search the state of the solve, with its budget set
+	* @param variables an arc-consistent board; holds the solution on success
+	* @return true if a solution was found; otherwise search.limit tells a
+	*			budget that ran out from a board with no solution
 	*/
-	private static Node backtracking(Constraints constraints, Node initialBoard, Stack<Node> frontier){
-		//create explored set and put initial board on frontier
-		Set<Node> explored = new HashSet<Node>();
-		frontier.push(initialBoard);
-
-		//until the frontier is empty, pop a node from the stack to evaluate
-		while(!frontier.isEmpty()){
-			Node board = frontier.pop();
-
-			//if the node has a solution board, return it
-			if(board.isSolution()){
-				return board;
-			}
+	static boolean backtracking(Search search, int[] variables){
+		return backtracking(search, variables, 0);
+	}
 
-			explored.add(board);
 
-			//make a copy of the variable board
-			Variable[][] copyVariables = new Variable[BOARD_SIZE][BOARD_SIZE];
-			for(int w = 0; w < BOARD_SIZE; w++){
-				for (int q = 0; q < BOARD_SIZE; q++){
-					ArrayList<Integer> oldDomain = board.variables[w][q].domain;
-					copyVariables[w][q] = new Variable(oldDomain);
-				}
+	/*
+	* Runs backtracking search with the propagation, counters and budget of a
+	* Search. Once the budget runs out, every level returns false at once.
+	* @param search the state of the solve
+	* @param variables a consistent board; holds the solution on success
+	* @param depth the number of assignments made above this node
+	* @return true if a solution was found
+	*/
+	private static boolean backtracking(Search search, int[] variables, int depth){
+		if(search.exhausted(depth)){
+			return false;
+		}
+		if(search.listener != null){
+			search.listener.node(variables, depth);
+		}
+		SearchStats stats = search.stats;
+		if(stats != null){
+			stats.nodes++;
+			if(depth > stats.maxDepth){
+				stats.maxDepth = depth;
 			}
+		}
 
-			//Assign arc consistency for board node using AC-3
-			Variable[][] arcConsistent = AC3(constraints, copyVariables);
-
-			//of arc consistency is possible, put all of the node's children on the frontier
-			if(arcConsistent != null){
+		//if every variable is fixed, the board is a solution
+		Trail trail = search.trail;
+		int var = search.select(variables);
+		if(var < 0){
+			return true;
+		}
 
-				// assign arcConsistent to Node's board
-				board.setBoard(arcConsistent);
+		//try each value of the chosen variable, smallest or least constraining first
+		int domain = variables[var];
+		int count = Variable.size(domain);
+		int base = -1;
+		if(search.values != null){
+			base = depth * search.queue.index().size();
+			leastConstrainingValues(search.queue.index(), variables, var, search.values, base);
+		}
+		for(int i = 0; i < count; i++){
+			int d;
+			if(base >= 0){
+				d = search.values[base + i];
+			}
+			else{
+				d = Variable.getSingle(domain);
+				domain = Variable.remove(domain, d);
+			}
 
-				//push children onto the stack
-				int[] varCoords = minimumRemainingValue(board.getVariables());
-				int varRow = varCoords[0];
-				int varCol = varCoords[1];
+			int mark = trail.mark();
+			trail.push(var, variables[var]);
+			variables[var] = Variable.single(d);
 
-				Node[] children = board.getChildren(varRow, varCol);
-				int numChildren = children.length;
+			if(propagate(search, variables, var) && backtracking(search, variables, depth + 1)){
+				return true;
+			}
 
-				//put all the children on the board
-				for(int i = 0; i < numChildren; i++){
-					frontier.push(children[i]);
-				}
+			//dead end: restore the board and try the next value, unless the budget ran out
+			search.undo(mark, variables);
+			if(search.limit != null){
+				return false;
+			}
+			if(stats != null){
+				stats.deadEnds++;
 			}
 		}
-		return null;
+		return false;
 	}
 
 
+	/*
+	* Orders the values of a variable least constraining first: by how many of
+	* its unfixed peers could also take the value, fewest first, so the choice
+	* leaves the most options open for the rest of the board.
+	* @param peers the peers of the board
+	* @param variables the board
+	* @param var the cell index of the variable
+	* @param out receives the values, in order
+	* @param offset where in out the values start
+	* @return the number of values
+	*/
+	static int leastConstrainingValues(PeerIndex peers, int[] variables, int var, int[] out, int offset){
+		//sort keys conflicts << 5 | value, so ties keep the smallest value first
+		int domain = variables[var];
+		int count = 0;
+		while(domain != 0){
+			int d = Variable.getSingle(domain);
+			domain = Variable.remove(domain, d);
+			int conflicts = 0;
+			for(int k = 0; k < peers.peers(); k++){
+				int peer = variables[peers.peer(var, k)];
+				if(!Variable.isSingle(peer) && Variable.contains(peer, d)){
+					conflicts++;
+				}
+			}
 
-/*
- * Returns whether the explored set contains a specified node.
- * @param set to explore
- * @param node to search for
- * @return true if set contains node, otherwise false
- */
-	private static boolean containsNode(Set<Node> set, Node node){
-		Iterator<Node> itr = set.iterator();
-		while(itr.hasNext()){
-			if(itr.next().equalNode(node)){
-				return false;
+			//insertion sort: a variable has at most 25 values
+			int key = conflicts << 5 | d;
+			int i = offset + count;
+			while(i > offset && out[i - 1] > key){
+				out[i] = out[i - 1];
+				i--;
 			}
+			out[i] = key;
+			count++;
 		}
-		return true;
+		for(int i = offset; i < offset + count; i++){
+			out[i] &= 31;
+		}
+		return count;
 	}
 
 
 	/*
 	* Fins the board variable with the smallest un fixed (greater than 1) domain size.
 	* @param variables the baord of variables to search
-	* @return an int array with the row and column of the chosen variable in the form
-	*			index 1 = [row], index 2 = [column]
+	* @return the cell index (row*N+col) of the chosen variable, or -1 if
+	*			every variable is fixed
 	*/
-	private static int[] minimumRemainingValue(Variable[][] variables){
-		int varRow = 0;
-		int varCol = 0;
-
-		//for any smaller domain sizes, update the returned minimum
-		for(int row = 0; row < BOARD_SIZE; row++){
-			for(int col = 0; col < BOARD_SIZE; col++){
-				//if current var coords are of a fixed val and the [row][col] val is not
-				//fixed, update the var coords
-				if(variables[row][col].domain.size() > 1){
-					if(variables[varRow][varCol].domain.size() <= 1){
-						varRow = row;
-						varCol = col;
-					}
-					//if the [row][col] val is not fixed, but smaller than the current
-					//update the var coords
-					else if(variables[row][col].domain.size() < variables[varRow][varCol].domain.size()){
-						varRow = row;
-						varCol = col;
-					}
-				}
+	static int minimumRemainingValue(int[] variables){
+		int best = -1;
+		int bestSize = Integer.MAX_VALUE;
+
+		//for any smaller unfixed domain sizes, update the returned minimum
+		for(int i = 0; i < variables.length; i++){
+			int size = Variable.size(variables[i]);
+			if(size > 1 && size < bestSize){
+				best = i;
+				bestSize = size;
 			}
 		}
 
-		//return row/col coords of variable with smallest remaining domain size
-		int[] retVal = new int[2];
-		retVal[0] = varRow;
-		retVal[1] = varCol;
-		return retVal;
+		//return the cell index of variable with smallest remaining domain size
+		return best;
 	}
 
 }
@@ -0,0 +1,127 @@
+package search;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+* Totals the SearchStats of many solves, for batch runs. Solves on different
+* threads record into the same instance, so the totals are kept in LongAdders
+* and each solve pays one add per counter rather than contending on a lock.
+*
+* Registered with the platform MBean server, the totals can be watched live from
+* JConsole or any other JMX client under search:type=SolverMetrics.
+*/
+public class SolverMetrics implements SolverMetricsMBean {
+
+	private final LongAdder solves = new LongAdder();
+	private final LongAdder arcsDequeued = new LongAdder();
+	private final LongAdder revisions = new LongAdder();
+	private final LongAdder valuesRemoved = new LongAdder();
+	private final LongAdder valuesInferred = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder deadEnds = new LongAdder();
+	private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+	private final LongAdder ac3Nanos = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+
+	/*
+	* Creates metrics and registers them with the platform MBean server.
+	* @param name the name property of the MBean, e.g. the run or strategy name
+	* @return the registered metrics
+	* @throws IllegalStateException if the MBean cannot be registered, for
+	*			example because the name is already taken
+	*/
+	public static SolverMetrics register(String name){
+		SolverMetrics metrics = new SolverMetrics();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try{
+			server.registerMBean(metrics, new ObjectName("search:type=SolverMetrics,name=" + ObjectName.quote(name)));
+		}
+		catch(JMException e){
+			throw new IllegalStateException("Cannot register solver metrics \"" + name + "\"", e);
+		}
+		return metrics;
+	}
+
+	/*
+	* Adds the counters of one finished solve to the totals.
+	* @param stats the solve's counters
+	*/
+	public void record(SearchStats stats){
+		solves.increment();
+		arcsDequeued.add(stats.arcsDequeued);
+		revisions.add(stats.revisions);
+		valuesRemoved.add(stats.valuesRemoved);
+		valuesInferred.add(stats.valuesInferred);
+		nodes.add(stats.nodes);
+		deadEnds.add(stats.deadEnds);
+		maxDepth.accumulate(stats.maxDepth);
+		ac3Nanos.add(stats.ac3Nanos);
+		searchNanos.add(stats.searchNanos);
+	}
+
+	public long getSolves(){
+		return solves.sum();
+	}
+
+	public long getArcsDequeued(){
+		return arcsDequeued.sum();
+	}
+
+	public long getRevisions(){
+		return revisions.sum();
+	}
+
+	public long getValuesRemoved(){
+		return valuesRemoved.sum();
+	}
+
+	public long getValuesInferred(){
+		return valuesInferred.sum();
+	}
+
+	public long getNodes(){
+		return nodes.sum();
+	}
+
+	public long getDeadEnds(){
+		return deadEnds.sum();
+	}
+
+	public int getMaxDepth(){
+		return (int) maxDepth.get();
+	}
+
+	public long getAc3Millis(){
+		return ac3Nanos.sum() / 1000000;
+	}
+
+	public long getSearchMillis(){
+		return searchNanos.sum() / 1000000;
+	}
+
+	/*
+	* Zeroes every total. Solves recording concurrently may be partly counted.
+	*/
+	public void reset(){
+		solves.reset();
+		arcsDequeued.reset();
+		revisions.reset();
+		valuesRemoved.reset();
+		valuesInferred.reset();
+		nodes.reset();
+		deadEnds.reset();
+		maxDepth.reset();
+		ac3Nanos.reset();
+		searchNanos.reset();
+	}
+
+	public String toString(){
+		return "solves=" + getSolves() + " arcs=" + getArcsDequeued() + " revisions=" + getRevisions()
+				+ " removed=" + getValuesRemoved() + " inferred=" + getValuesInferred() + " nodes=" + getNodes()
+				+ " deadEnds=" + getDeadEnds() + " maxDepth=" + getMaxDepth() + " ac3=" + getAc3Millis() + "ms search=" + getSearchMillis() + "ms";
+	}
+}
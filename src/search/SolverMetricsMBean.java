@@ -0,0 +1,29 @@
+package search;
+
+/**
+* The JMX view of SolverMetrics.
+*/
+public interface SolverMetricsMBean {
+
+	long getSolves();
+
+	long getArcsDequeued();
+
+	long getRevisions();
+
+	long getValuesRemoved();
+
+	long getValuesInferred();
+
+	long getNodes();
+
+	long getDeadEnds();
+
+	int getMaxDepth();
+
+	long getAc3Millis();
+
+	long getSearchMillis();
+
+	void reset();
+}
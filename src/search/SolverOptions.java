@@ -0,0 +1,132 @@
+package search;
+import csp.Inference;
+
+/**
+* How the CSP engine propagates and searches: which constraint model it
+* filters, which inference rules it runs alongside, and how it picks variables
+* and orders their values. Options are immutable; the with methods return a
+* changed copy, so one instance can be shared by every solve.
+*/
+public final class SolverOptions {
+
+	/*
+	* The constraint model propagation works on.
+	*/
+	public enum Model {
+		/* Pairwise difference constraints, made arc-consistent with AC-3. */
+		BINARY,
+		/* One AllDifferent constraint per unit, made generalized arc-consistent
+		* by matching (see csp.AllDifferent). */
+		ALL_DIFFERENT
+	}
+
+	/*
+	* How the search picks the variable to branch on.
+	*/
+	public enum Selection {
+		/* Rescan the board for the first smallest domain at every node. */
+		SCAN,
+		/* Keep the variables in buckets by domain size (see MrvBuckets). */
+		MRV,
+		/* Buckets, breaking ties by the most unfixed peers. */
+		MRV_DEGREE
+	}
+
+	/* AC-3 over the binary model, with no inference rules, scanning MRV and
+	* values smallest first. */
+	public static final SolverOptions DEFAULT = new SolverOptions(Model.BINARY, null, Selection.SCAN, false);
+
+	private final Model model;
+	private final Inference rules;
+	private final Selection selection;
+	private final boolean leastConstraining;
+
+	private SolverOptions(Model model, Inference rules, Selection selection, boolean leastConstraining){
+		this.model = model;
+		this.rules = rules == null || rules.isEmpty() ? null : rules;
+		this.selection = selection;
+		this.leastConstraining = leastConstraining;
+	}
+
+	/*
+	* @param model the constraint model to propagate
+	* @return these options with the given model
+	*/
+	public SolverOptions withModel(Model model){
+		return new SolverOptions(model, rules, selection, leastConstraining);
+	}
+
+	/*
+	* @param rules the inference rules to run with propagation, or null for none
+	* @return these options with the given rules
+	*/
+	public SolverOptions withRules(Inference rules){
+		return new SolverOptions(model, rules, selection, leastConstraining);
+	}
+
+	/*
+	* @param selection how to pick the variable to branch on
+	* @return these options with the given variable selection
+	*/
+	public SolverOptions withSelection(Selection selection){
+		return new SolverOptions(model, rules, selection, leastConstraining);
+	}
+
+	/*
+	* @param leastConstraining true to try first the values that the fewest
+	*			unfixed peers could also take
+	* @return these options with the given value ordering
+	*/
+	public SolverOptions withLeastConstrainingValue(boolean leastConstraining){
+		return new SolverOptions(model, rules, selection, leastConstraining);
+	}
+
+	/*
+	* @return the constraint model
+	*/
+	public Model getModel(){
+		return model;
+	}
+
+	/*
+	* @return the inference rules, or null if none are enabled
+	*/
+	public Inference getRules(){
+		return rules;
+	}
+
+	/*
+	* @return how the search picks the variable to branch on
+	*/
+	public Selection getSelection(){
+		return selection;
+	}
+
+	/*
+	* @return true if values are tried least constraining first
+	*/
+	public boolean isLeastConstrainingValue(){
+		return leastConstraining;
+	}
+
+	/*
+	* @return the strategy name these options are selected by, e.g. csp,
+	*			gac:all or csp+degree+lcv:hidden-single (see Strategies)
+	*/
+	public String toString(){
+		StringBuilder name = new StringBuilder(model == Model.BINARY ? "csp" : "gac");
+		if(selection == Selection.MRV){
+			name.append("+mrv");
+		}
+		else if(selection == Selection.MRV_DEGREE){
+			name.append("+degree");
+		}
+		if(leastConstraining){
+			name.append("+lcv");
+		}
+		if(rules != null){
+			name.append(':').append(rules);
+		}
+		return name.toString();
+	}
+}
@@ -0,0 +1,41 @@
+package search;
+
+/**
+* A way of solving a sudoku puzzle. Every strategy takes and returns boards in the
+* same form as Solver.solve, so callers can swap one engine for another.
+*/
+public interface SolverStrategy {
+
+	/*
+	* Solves a sudoku puzzle.
+	* @param original the puzzle, with 0 for every unknown value
+	* @return the solved board, or null if the puzzle has no solution
+	*/
+	int[][] solve(int[][] original);
+
+	/*
+	* Solves a sudoku puzzle within the strategy's own limits, telling an
+	* unsatisfiable puzzle apart from one they were too small for. This default
+	* runs without limits; strategies built with a budget solve within it.
+	* @param original the puzzle, with 0 for every unknown value
+	* @return how the solve ended
+	*/
+	default SolveResult trySolve(int[][] original){
+		return trySolve(original, SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Solves a sudoku puzzle within a budget, telling an unsatisfiable puzzle
+	* apart from one the budget was too small for. Engines that cannot be
+	* stopped part way ignore the budget and run to the end, as this default
+	* does.
+	* @param original the puzzle, with 0 for every unknown value
+	* @param budget the limits of this solve
+	* @return how the solve ended
+	*/
+	default SolveResult trySolve(int[][] original, SolveBudget budget){
+		int[][] solution = solve(original);
+		return solution != null ? SolveResult.solved(solution, 0) : SolveResult.unsatisfiable(0);
+	}
+
+}
@@ -0,0 +1,109 @@
+package search;
+import java.util.ArrayList;
+import java.util.List;
+
+import csp.Inference;
+
+/**
+* Looks up solver strategies by the names used on command lines.
+*/
+public final class Strategies {
+
+	private Strategies(){
+	}
+
+	/* The entrants of the portfolio named "portfolio". */
+	public static final String DEFAULT_PORTFOLIO = "dlx/gac+mrv/sat";
+
+	/*
+	* Creates the strategy with a given name.
+	* @param name csp (AC-3 + backtracking), dlx (Dancing Links), sat (CDCL)
+	*			or parallel (work-stealing backtracking). gac is the CSP engine over the
+	*			AllDifferent model, and csp:rules or gac:rules add inference rules,
+	*			e.g. csp:all or gac:pointing,box-line. Names joined by '/' race
+	*			those strategies as a portfolio, e.g. dlx/gac+mrv/sat, and
+	*			portfolio is DEFAULT_PORTFOLIO. routed classifies each puzzle
+	*			first and sends it to the cheapest engine likely to solve it
+	* @return a new strategy
+	* @throws IllegalArgumentException if there is no strategy by that name
+	*/
+	public static SolverStrategy forName(String name){
+		return forName(name, SolveBudget.UNLIMITED);
+	}
+
+	/*
+	* Creates the strategy with a given name and a limit on every solve.
+	* @param name the strategy's name, as for forName(name)
+	* @param budget the limits of every solve
+	* @return a new strategy
+	* @throws IllegalArgumentException if there is no strategy by that name, or
+	*			if it is parallel and the budget has a node limit
+	*/
+	public static SolverStrategy forName(String name, SolveBudget budget){
+		if(name.equals("portfolio")){
+			name = DEFAULT_PORTFOLIO;
+		}
+		if(name.indexOf('/') >= 0){
+			List<SolverStrategy> entrants = new ArrayList<>();
+			for(String entrant : name.split("/")){
+				entrants.add(forName(entrant));
+			}
+			return new PortfolioStrategy(entrants, budget, PortfolioStrategy.RACERS);
+		}
+		SolverOptions options = options(name);
+		if(options != null){
+			return new BacktrackingStrategy(options, budget, null);
+		}
+		switch(name){
+			case "dlx":
+				return new DancingLinks(budget);
+			case "sat":
+				return new SatStrategy(budget);
+			case "routed":
+				return new RoutingStrategy(budget);
+			case "parallel":
+				return new ParallelSearch(budget);
+			default:
+				throw new IllegalArgumentException("Unknown solver \"" + name + "\"; expected csp, gac, dlx, sat, parallel, routed or a portfolio");
+		}
+	}
+
+	/*
+	* Gets the options of a CSP engine name: csp or gac, then any of the
+	* heuristics +mrv, +degree and +lcv, then optionally :rules. For example
+	* gac+degree+lcv:pointing,box-line.
+	* @param name the engine name
+	* @return the options, or null if the name is not a CSP engine
+	* @throws IllegalArgumentException if a heuristic or rule name is unknown
+	*/
+	public static SolverOptions options(String name){
+		int colon = name.indexOf(':');
+		String[] parts = (colon < 0 ? name : name.substring(0, colon)).split("\\+");
+		SolverOptions options;
+		if(parts[0].equals("csp")){
+			options = SolverOptions.DEFAULT;
+		}
+		else if(parts[0].equals("gac")){
+			options = SolverOptions.DEFAULT.withModel(SolverOptions.Model.ALL_DIFFERENT);
+		}
+		else{
+			return null;
+		}
+		for(int i = 1; i < parts.length; i++){
+			switch(parts[i]){
+				case "mrv":
+					options = options.withSelection(SolverOptions.Selection.MRV);
+					break;
+				case "degree":
+					options = options.withSelection(SolverOptions.Selection.MRV_DEGREE);
+					break;
+				case "lcv":
+					options = options.withLeastConstrainingValue(true);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown heuristic \"" + parts[i] + "\"; expected mrv, degree or lcv");
+			}
+		}
+		return colon < 0 ? options : options.withRules(Inference.parse(name.substring(colon + 1)));
+	}
+}
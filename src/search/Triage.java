@@ -0,0 +1,217 @@
+package search;
+import csp.*;
+
+/**
+* A cheap difficulty classifier run before any engine. It propagates naked and
+* hidden singles only, on domain bitmasks and the shared PeerIndex, with a
+* bounded number of hidden-single sweeps, and routes the puzzle by what is left:
+*
+*   PROPAGATION  singles solved the puzzle, or proved it has no solution
+*   LIGHT        the remaining search space is small: plain backtracking
+*   HEAVY        everything else, and every board larger than 25x25
+*
+* A classification costs a few passes over the units, far less than one AC-3
+* pass, so it pays for itself as soon as it spares a puzzle the engine. The
+* threshold between light and heavy is the log2 size of the search space the
+* singles leave; see RoutingStrategy for how well it routes.
+*/
+public final class Triage {
+
+	/*
+	* The engines a puzzle can be routed to, cheapest first.
+	*/
+	public enum Route {
+		PROPAGATION,
+		LIGHT,
+		HEAVY
+	}
+
+	/* The largest search space, in bits, still routed to light search. */
+	public static final double DEFAULT_LIGHT_MAX_LOG_SPACE = 90;
+	/* The most hidden-single sweeps over the units. */
+	public static final int DEFAULT_MAX_SWEEPS = 8;
+
+	private final double lightMaxLogSpace;
+	private final int maxSweeps;
+
+	/*
+	* Creates a classifier with the default thresholds.
+	*/
+	public Triage(){
+		this(DEFAULT_LIGHT_MAX_LOG_SPACE, DEFAULT_MAX_SWEEPS);
+	}
+
+	/*
+	* Creates a classifier.
+	* @param lightMaxLogSpace the largest log2 search space routed to light search
+	* @param maxSweeps the most hidden-single sweeps, at least 0
+	*/
+	public Triage(double lightMaxLogSpace, int maxSweeps){
+		this.lightMaxLogSpace = lightMaxLogSpace;
+		this.maxSweeps = maxSweeps;
+	}
+
+	/*
+	* Propagates singles on a puzzle and routes it.
+	* @param original the N by N puzzle, with 0 for every unknown value
+	* @return the propagated board, its features and its route
+	* @throws IllegalArgumentException if the board is not a boxed square or
+	*			holds a value outside 0..N
+	*/
+	public PuzzleFeatures classify(int[][] original){
+		int size = original.length;
+		int boxSize = (int) Math.round(Math.sqrt(size));
+		if(boxSize > PeerIndex.MAX_BOX_SIZE && boxSize * boxSize == size){
+			return unpropagated(original);
+		}
+		PeerIndex index = PeerIndex.forSize(size);
+		int[] domains = Variable.fromInts(original);
+		int cells = domains.length;
+		int clues = 0;
+
+		//naked singles: every fixed cell takes its value from its peers
+		int[] stack = new int[cells];
+		int top = 0;
+		for(int cell = 0; cell < cells; cell++){
+			if(Variable.isSingle(domains[cell])){
+				stack[top++] = cell;
+				clues++;
+			}
+		}
+		boolean contradiction = !eliminate(index, domains, stack, top);
+
+		//hidden singles: a value with one place left in a unit goes there
+		int sweeps = 0;
+		int full = Variable.full(size);
+		boolean found = true;
+		while(found && !contradiction && sweeps < maxSweeps){
+			sweeps++;
+			found = false;
+			for(int unit = 0; unit < index.units() && !contradiction; unit++){
+				int once = 0;
+				int twice = 0;
+				int fixed = 0;
+				for(int i = 0; i < size; i++){
+					int d = domains[index.unitCell(unit, i)];
+					twice |= once & d;
+					once |= d;
+					if(Variable.isSingle(d)){
+						fixed |= d;
+					}
+				}
+				if(once != full){
+					contradiction = true;
+					break;
+				}
+				int hidden = once & ~twice & ~fixed;
+				top = 0;
+				for(int i = 0; i < size && hidden != 0; i++){
+					int cell = index.unitCell(unit, i);
+					int bit = domains[cell] & hidden;
+					if(bit != 0){
+						//two values with their only place in one cell is a contradiction
+						domains[cell] = bit;
+						stack[top++] = cell;
+						hidden &= ~bit;
+						contradiction |= !Variable.isSingle(bit);
+					}
+				}
+				if(top > 0){
+					found = true;
+					contradiction |= !eliminate(index, domains, stack, top);
+				}
+			}
+		}
+
+		//the features of what is left
+		int[][] board = new int[size][size];
+		int open = 0;
+		int candidates = 0;
+		double logSpace = 0;
+		for(int cell = 0; cell < cells; cell++){
+			int d = domains[cell];
+			if(Variable.isSingle(d)){
+				board[cell / size][cell % size] = Variable.getSingle(d);
+			}
+			else{
+				open++;
+				candidates += Variable.size(d);
+				logSpace += d == 0 ? 0 : log2(Variable.size(d));
+			}
+		}
+		int completeUnits = 0;
+		for(int unit = 0; unit < index.units(); unit++){
+			int i = 0;
+			while(i < size && Variable.isSingle(domains[index.unitCell(unit, i)])){
+				i++;
+			}
+			if(i == size){
+				completeUnits++;
+			}
+		}
+
+		Route route = contradiction || open == 0 ? Route.PROPAGATION
+				: logSpace <= lightMaxLogSpace ? Route.LIGHT : Route.HEAVY;
+		return new PuzzleFeatures(board, clues, open, candidates, completeUnits, logSpace, sweeps, contradiction, route);
+	}
+
+	/*
+	* Removes the values of fixed cells from their peers, following every cell
+	* that becomes fixed on the way.
+	* @param stack the fixed cells to start from, in stack[0..top-1]
+	* @return false if a cell has no value left
+	*/
+	private static boolean eliminate(PeerIndex index, int[] domains, int[] stack, int top){
+		int peers = index.peers();
+		while(top > 0){
+			int cell = stack[--top];
+			int bit = domains[cell];
+			for(int k = 0; k < peers; k++){
+				int peer = index.peer(cell, k);
+				int d = domains[peer];
+				if((d & bit) != 0){
+					d &= ~bit;
+					domains[peer] = d;
+					if(d == 0){
+						return false;
+					}
+					if(Variable.isSingle(d)){
+						stack[top++] = peer;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	* Describes a board too large for domain bitmasks, with every blank cell
+	* open to every value. Such boards always take the heavy route.
+	*/
+	private static PuzzleFeatures unpropagated(int[][] original){
+		int size = original.length;
+		int clues = 0;
+		int[][] board = new int[size][];
+		for(int row = 0; row < size; row++){
+			if(original[row].length != size){
+				throw new IllegalArgumentException("Board is not square");
+			}
+			for(int col = 0; col < size; col++){
+				if(original[row][col] != 0){
+					clues++;
+				}
+			}
+			board[row] = original[row].clone();
+		}
+		int open = size * size - clues;
+		return new PuzzleFeatures(board, clues, open, open * size, 0, open * log2(size), 0, false, Route.HEAVY);
+	}
+
+	private static double log2(int x){
+		return Math.log(x) / Math.log(2);
+	}
+
+	public String toString(){
+		return "triage(lightMaxLogSpace=" + lightMaxLogSpace + ", maxSweeps=" + maxSweeps + ")";
+	}
+}
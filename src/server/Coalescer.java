@@ -0,0 +1,167 @@
+package server;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import search.BatchSolver;
+
+/**
+* Gathers puzzles from many concurrent requests into batches for a BatchSolver,
+* so a stream of single-puzzle requests keeps every core of the pool busy
+* instead of solving each puzzle on its own. One dispatcher thread takes the
+* first waiting puzzle, waits up to a short linger for more, and hands the
+* batch to the solver's pool without waiting for it, so the next batch forms,
+* and is solved, while the last one is still being solved. A slow puzzle holds
+* back only the other puzzles of its own batch.
+*/
+class Coalescer {
+
+	private final BatchSolver solver;
+	private final int maxBatch;
+	private final long lingerNanos;
+	private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+	private final Thread dispatcher;
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder puzzles = new LongAdder();
+	private volatile boolean running = true;
+
+	/*
+	* Creates a coalescer and starts its dispatcher thread.
+	* @param solver solves each batch
+	* @param maxBatch the most puzzles in one batch
+	* @param lingerNanos how long a batch waits for more puzzles after its first
+	*/
+	Coalescer(BatchSolver solver, int maxBatch, long lingerNanos){
+		this.solver = solver;
+		this.maxBatch = maxBatch;
+		this.lingerNanos = lingerNanos;
+		dispatcher = new Thread(this::dispatch, "coalescer");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/*
+	* Queues a puzzle for the next batch.
+	* @param puzzle the puzzle, with 0 for every unknown value
+	* @return completes with the puzzle's result once its batch is solved
+	*/
+	CompletableFuture<BatchSolver.Result> submit(int[][] puzzle){
+		Pending pending = new Pending(puzzle);
+		if(!running){
+			pending.result.completeExceptionally(new RejectedExecutionException("Server is stopping"));
+			return pending.result;
+		}
+		queue.add(pending);
+		if(!running && queue.remove(pending)){
+			//stop() drained the queue before this puzzle was added
+			pending.result.completeExceptionally(new RejectedExecutionException("Server is stopping"));
+		}
+		return pending.result;
+	}
+
+	/*
+	* @return the number of batches solved so far
+	*/
+	long getBatches(){
+		return batches.sum();
+	}
+
+	/*
+	* @return the number of puzzles solved so far
+	*/
+	long getPuzzles(){
+		return puzzles.sum();
+	}
+
+	/*
+	* Stops the dispatcher. Puzzles still queued fail rather than wait forever;
+	* batches already handed to the solver run to the end.
+	*/
+	void stop(){
+		running = false;
+		dispatcher.interrupt();
+		Pending pending;
+		while((pending = queue.poll()) != null){
+			pending.result.completeExceptionally(new RejectedExecutionException("Server is stopping"));
+		}
+	}
+
+	/*
+	* Takes batches off the queue and starts solving them until stopped.
+	*/
+	private void dispatch(){
+		List<int[][]> boards = new ArrayList<>(maxBatch);
+		while(running){
+			List<Pending> batch = new ArrayList<>(maxBatch);
+			try{
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + lingerNanos;
+				while(batch.size() < maxBatch){
+					//take whatever is already waiting, then linger for stragglers
+					if(queue.drainTo(batch, maxBatch - batch.size()) == 0){
+						long left = deadline - System.nanoTime();
+						Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+						if(next == null){
+							break;
+						}
+						batch.add(next);
+					}
+				}
+			}
+			catch(InterruptedException e){
+				for(Pending pending : batch){
+					pending.result.completeExceptionally(new RejectedExecutionException("Server is stopping"));
+				}
+				return;
+			}
+
+			for(Pending pending : batch){
+				boards.add(pending.puzzle);
+			}
+			try{
+				solver.solveAllAsync(boards).whenComplete((results, failure) -> finish(batch, results, failure));
+			}
+			catch(RuntimeException e){
+				//the pool refused the batch
+				finish(batch, null, e);
+			}
+			boards.clear();
+		}
+	}
+
+	/*
+	* Hands every puzzle of a solved batch its result.
+	* @param results the results, in batch order, or null if the batch failed
+	* @param failure why the batch failed, or null
+	*/
+	private void finish(List<Pending> batch, List<BatchSolver.Result> results, Throwable failure){
+		for(int i = 0; i < batch.size(); i++){
+			if(failure != null){
+				batch.get(i).result.completeExceptionally(failure);
+			}
+			else{
+				batch.get(i).result.complete(results.get(i));
+			}
+		}
+		batches.increment();
+		puzzles.add(batch.size());
+	}
+
+
+	/*
+	* A puzzle waiting for its batch.
+	*/
+	private static final class Pending {
+		final int[][] puzzle;
+		final CompletableFuture<BatchSolver.Result> result = new CompletableFuture<>();
+
+		Pending(int[][] puzzle){
+			this.puzzle = puzzle;
+		}
+	}
+}
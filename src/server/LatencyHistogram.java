@@ -0,0 +1,100 @@
+package server;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+* Records request latencies in log-linear buckets, to report percentiles without
+* keeping every sample. Each power of two of microseconds is split into 16
+* buckets, so a percentile is accurate to within 1/16 of its value, and
+* recording is one atomic increment however many threads record at once.
+*/
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	// 64 powers of two with 16 buckets each covers every long
+	private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/*
+	* Records one latency.
+	* @param nanos the latency in nanoseconds
+	*/
+	public void record(long nanos){
+		long micros = Math.max(nanos / 1000, 0);
+		counts.incrementAndGet(bucket(micros));
+		max.accumulate(micros);
+	}
+
+	/*
+	* Gets a percentile of the recorded latencies.
+	* @param percentile the percentile, from 0 to 100
+	* @return the upper bound of the bucket holding that percentile, in
+	*			microseconds, or 0 if nothing was recorded
+	*/
+	public long percentile(double percentile){
+		long total = count();
+		if(total == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for(int i = 0; i < counts.length(); i++){
+			seen += counts.get(i);
+			if(seen >= rank){
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/*
+	* @return the number of latencies recorded
+	*/
+	public long count(){
+		long total = 0;
+		for(int i = 0; i < counts.length(); i++){
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/*
+	* @return the largest latency recorded, in microseconds
+	*/
+	public long max(){
+		return max.get();
+	}
+
+	/*
+	* Gets the bucket of a value: values below 16 get one bucket each, and above
+	* that the top bit picks the power of two and the next four bits the bucket
+	* within it.
+	*/
+	private static int bucket(long micros){
+		if(micros < SUB_BUCKETS){
+			return (int) micros;
+		}
+		int top = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (top - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (top - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/*
+	* Gets the largest value that falls in a bucket.
+	*/
+	private static long upperBound(int bucket){
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int top = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long low = (1L << top) | (sub << (top - SUB_BITS));
+		return low + (1L << (top - SUB_BITS)) - 1;
+	}
+
+	public String toString(){
+		return "n=" + count() + " p50=" + percentile(50) + "us p99=" + percentile(99) + "us max=" + max() + "us";
+	}
+}
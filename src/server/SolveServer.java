@@ -0,0 +1,346 @@
+package server;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.LineFormat;
+import search.BatchSolver;
+import search.PortfolioStrategy;
+import search.RoutingStrategy;
+import search.SolveBudget;
+import search.SolveResult;
+import search.SolverStrategy;
+import search.Strategies;
+
+/**
+* A headless solver service on the JDK's built-in HTTP server, bound to the
+* loopback address only. Puzzles travel in the one-per-line format (see
+* io.LineFormat):
+*
+*   POST /solve  one puzzle; answers its solution line, 422 if it has none, or
+*                504 if it ran out of budget first
+*   POST /batch  any number of puzzle lines; answers one line per puzzle, in
+*                order, with an all-blank line for each puzzle not solved
+*   GET  /stats  request and batch counts, p50/p99 request latency, and the
+*                wins of each entrant or the routing counts, for a portfolio
+*                or routed strategy
+*
+* The build targets Java 17, which has no virtual threads, so requests are
+* handled on a cached pool of platform threads. Only a server run on a JDK 21+
+* runtime finds virtual threads, by reflection, and handles each request on one.
+* Every puzzle, from either endpoint, goes through
+* one Coalescer, so many small requests are solved together in batches on the
+* solver's fork-join pool.
+*/
+public class SolveServer {
+
+	public static final int DEFAULT_PORT = 8080;
+	/* The most puzzles solved in one batch. */
+	public static final int MAX_BATCH = 256;
+	/* How long a batch waits for more puzzles after its first. */
+	public static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	/* The largest request body accepted, enough for 100,000 9x9 puzzles. */
+	public static final int MAX_BODY = 8 << 20;
+	/* How long a puzzle may take when -Dsearch.timeout does not say. */
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+	private final SolverStrategy strategy;
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final Coalescer coalescer;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	/*
+	* Creates a server on the loopback address. Call start to serve.
+	* @param port the port, or 0 for any free port (see getPort)
+	* @param strategy the engine used for every puzzle
+	* @param pool the pool whose threads solve the puzzles
+	* @throws IOException if the port cannot be bound
+	*/
+	public SolveServer(int port, SolverStrategy strategy, ForkJoinPool pool) throws IOException {
+		this.strategy = strategy;
+		coalescer = new Coalescer(new BatchSolver(strategy, pool), MAX_BATCH, LINGER_NANOS);
+		handlers = handlerExecutor();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(handlers);
+		server.createContext("/solve", exchange -> handle(exchange, false));
+		server.createContext("/batch", exchange -> handle(exchange, true));
+		server.createContext("/stats", this::stats);
+	}
+
+	/*
+	* Starts serving requests.
+	*/
+	public void start(){
+		server.start();
+	}
+
+	/*
+	* Stops serving. Puzzles not yet being solved fail at once, so their
+	* requests are answered 503 while the connections are still open; requests
+	* in progress get up to a second to finish.
+	*/
+	public void stop(){
+		coalescer.stop();
+		server.stop(1);
+		handlers.shutdown();
+	}
+
+	/*
+	* @return the port the server listens on
+	*/
+	public int getPort(){
+		return server.getAddress().getPort();
+	}
+
+	/*
+	* @return the latencies of the requests served so far
+	*/
+	public LatencyHistogram getLatency(){
+		return latency;
+	}
+
+	/*
+	* Gets a cached pool of platform threads for the requests, as on the Java 17
+	* the build targets. On a JDK 21+ runtime, the executor that runs each
+	* request on a new virtual thread is found reflectively and used instead.
+	*/
+	private static ExecutorService handlerExecutor(){
+		try{
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		}
+		catch(ReflectiveOperationException e){
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "solve-server");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/*
+	* Solves the puzzles in a request body.
+	* @param exchange the request
+	* @param batch true for /batch, false for /solve
+	*/
+	private void handle(HttpExchange exchange, boolean batch){
+		long start = System.nanoTime();
+		requests.increment();
+		try{
+			solve(exchange, batch);
+		}
+		catch(IOException e){
+			errors.increment();
+			System.err.println("Error: " + e.getMessage());
+		}
+		finally{
+			//closed only here, after any error response has been written
+			exchange.close();
+			latency.record(System.nanoTime() - start);
+		}
+	}
+
+	/*
+	* Answers a request for /solve or /batch, with an error status if the solve
+	* failed or the server is stopping.
+	* @throws IOException if the response cannot be sent
+	*/
+	private void solve(HttpExchange exchange, boolean batch) throws IOException {
+		try{
+			if(!"POST".equals(exchange.getRequestMethod())){
+				exchange.getResponseHeaders().add("Allow", "POST");
+				respond(exchange, 405, "Use POST\n");
+				return;
+			}
+			byte[] body = read(exchange.getRequestBody());
+			if(body == null){
+				respond(exchange, 413, "Body over " + MAX_BODY + " bytes\n");
+				return;
+			}
+
+			List<int[][]> puzzles;
+			try{
+				puzzles = parse(body);
+			}
+			catch(IllegalArgumentException e){
+				respond(exchange, 400, e.getMessage() + "\n");
+				return;
+			}
+			if(puzzles.size() != 1 && !batch){
+				respond(exchange, 400, "Expected one puzzle, got " + puzzles.size() + "; use /batch\n");
+				return;
+			}
+
+			List<CompletableFuture<BatchSolver.Result>> futures = new ArrayList<>(puzzles.size());
+			for(int[][] puzzle : puzzles){
+				futures.add(coalescer.submit(puzzle));
+			}
+			int bytes = 0;
+			for(int[][] puzzle : puzzles){
+				bytes += puzzle.length * puzzle.length + 1;
+			}
+			if(!batch){
+				BatchSolver.Result result = futures.get(0).get();
+				if(result.getStatus() == null){
+					errors.increment();
+					respond(exchange, 500, "Solve failed: " + result.getFailure().getMessage() + "\n");
+					return;
+				}
+				if(result.getStatus() == SolveResult.Status.UNSATISFIABLE){
+					respond(exchange, 422, "No solution\n");
+					return;
+				}
+				if(result.getStatus() == SolveResult.Status.EXHAUSTED){
+					//not an answer about the puzzle: it may have a solution
+					respond(exchange, 504, "Out of budget\n");
+					return;
+				}
+			}
+			ByteBuffer out = ByteBuffer.allocate(bytes);
+			for(int i = 0; i < puzzles.size(); i++){
+				int[][] solution = futures.get(i).get().getSolution();
+				LineFormat.encode(solution != null ? solution : new int[puzzles.get(i).length][puzzles.get(i).length], out);
+			}
+			exchange.getResponseHeaders().add("Content-Type", "text/plain");
+			exchange.sendResponseHeaders(200, out.position());
+			try(OutputStream response = exchange.getResponseBody()){
+				response.write(out.array(), 0, out.position());
+			}
+		}
+		catch(InterruptedException e){
+			//nothing has been sent yet, so the client can still be told
+			Thread.currentThread().interrupt();
+			errors.increment();
+			respond(exchange, 503, "Server is stopping\n");
+		}
+		catch(ExecutionException e){
+			errors.increment();
+			if(e.getCause() instanceof RejectedExecutionException){
+				respond(exchange, 503, e.getCause().getMessage() + "\n");
+			}
+			else{
+				respond(exchange, 500, "Solve failed: " + e.getCause().getMessage() + "\n");
+			}
+		}
+	}
+
+	/*
+	* Reports the counters and latency percentiles as text.
+	*/
+	private void stats(HttpExchange exchange) throws IOException {
+		try(exchange){
+			respond(exchange, 200, toString() + "\n");
+		}
+	}
+
+	/*
+	* Splits a request body into puzzles, one per non-blank line.
+	* @throws IllegalArgumentException naming the first line that is not a board
+	*/
+	private static List<int[][]> parse(byte[] body){
+		ByteBuffer in = ByteBuffer.wrap(body);
+		List<int[][]> puzzles = new ArrayList<>();
+		int line = 1;
+		int start = 0;
+		for(int i = 0; i <= body.length; i++){
+			if(i == body.length || body[i] == '\n'){
+				int end = i > start && body[i - 1] == '\r' ? i - 1 : i;
+				if(end > start){
+					try{
+						puzzles.add(LineFormat.decode(in, start, end - start));
+					}
+					catch(IllegalArgumentException e){
+						throw new IllegalArgumentException("Line " + line + ": " + e.getMessage());
+					}
+				}
+				start = i + 1;
+				line++;
+			}
+		}
+		if(puzzles.isEmpty()){
+			throw new IllegalArgumentException("No puzzles in the request");
+		}
+		return puzzles;
+	}
+
+	/*
+	* Reads a request body.
+	* @return the body, or null if it is longer than MAX_BODY
+	*/
+	private static byte[] read(InputStream in) throws IOException {
+		byte[] body = in.readNBytes(MAX_BODY + 1);
+		return body.length > MAX_BODY ? null : body;
+	}
+
+	/*
+	* Sends a short text response.
+	*/
+	private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try(OutputStream out = exchange.getResponseBody()){
+			out.write(bytes);
+		}
+	}
+
+	public String toString(){
+		long batches = coalescer.getBatches();
+		long puzzles = coalescer.getPuzzles();
+		return "requests=" + requests.sum() + " errors=" + errors.sum() + " puzzles=" + puzzles + " batches=" + batches
+				+ " avgBatch=" + (batches == 0 ? 0 : puzzles / batches) + " latency " + latency
+				+ (strategy instanceof PortfolioStrategy ? " wins " + ((PortfolioStrategy) strategy).winSummary() : "")
+				+ (strategy instanceof RoutingStrategy ? " routes " + ((RoutingStrategy) strategy).routingSummary() : "");
+	}
+
+	public static void main(String[] args){
+		if(args.length > 2){
+			System.err.println("Usage: java server.SolveServer [port] [csp|gac[:rules]|dlx|sat|parallel|portfolio|routed]");
+			System.exit(-1);
+		}
+		try{
+			int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+			String name = args.length > 1 ? args[1] : "csp";
+			//-Dsearch.timeout=<ms> and -Dsearch.maxNodes=<n> give up on a puzzle past them
+			SolveBudget budget = SolveBudget.fromSystemProperties();
+			if(budget.getTimeoutNanos() == Long.MAX_VALUE){
+				//one hard puzzle must not hold its batch, and every request in it, forever
+				budget = budget.withTimeout(DEFAULT_TIMEOUT);
+			}
+			SolverStrategy strategy = Strategies.forName(name, budget);
+			SolveServer server = new SolveServer(port, strategy, ForkJoinPool.commonPool());
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.stop();
+				System.err.println(server);
+			}));
+			server.start();
+			System.err.println("Solving on http://localhost:" + server.getPort() + "/ with " + strategy);
+		}
+		catch(IOException | IllegalArgumentException e){
+			System.err.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package cache;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import generator.PuzzleGenerator;
+
+/**
+* Checks that isomorphic boards share one canonical form, and that transforms
+* can be undone.
+*/
+class CanonicalizerTest {
+
+	@Test
+	void randomIsomorphsShareOneCanonicalForm(){
+		Random random = new Random(17);
+		for(int[][] board : boards()){
+			Transform transform = Canonicalizer.canonicalize(board);
+			assertNotNull(transform);
+			int[][] canonical = transform.apply(board);
+			for(int i = 0; i < 5; i++){
+				int[][] isomorph = randomTransform(board.length, random).apply(board);
+				assertArrayEquals(canonical, Canonicalizer.canonicalize(isomorph).apply(isomorph));
+			}
+		}
+	}
+
+	@Test
+	void invertUndoesApply(){
+		Random random = new Random(23);
+		for(int[][] board : boards()){
+			Transform transform = randomTransform(board.length, random);
+			assertArrayEquals(board, transform.invert(transform.apply(board)));
+			Transform canonical = Canonicalizer.canonicalize(board);
+			assertArrayEquals(board, canonical.invert(canonical.apply(board)));
+		}
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator().generate(5L, 20)){
+			Transform transform = randomTransform(9, random);
+			assertArrayEquals(puzzle.getSolution(), transform.invert(transform.apply(puzzle.getSolution())));
+		}
+	}
+
+	@Test
+	void unsupportedBoardsAreNotCanonicalized(){
+		int[][] board = new int[9][9];
+		board[0][0] = 5;
+		board[8][0] = 5;
+		assertNull(Canonicalizer.canonicalize(board));
+		assertNull(Canonicalizer.canonicalize(new int[16][16]));
+		//every row of a full grid ties for first, in every order of its digits
+		assertNull(Canonicalizer.canonicalize(new PuzzleGenerator().generate(5L, 0L).getSolution()));
+	}
+
+	/*
+	* Generated 9x9 and 4x4 puzzles, and a few very sparse boards.
+	*/
+	private static List<int[][]> boards(){
+		List<int[][]> boards = new ArrayList<int[][]>();
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator().generate(5L, 100)){
+			boards.add(puzzle.getPuzzle());
+		}
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator(3, 40, ForkJoinPool.commonPool()).generate(5L, 20)){
+			boards.add(puzzle.getPuzzle());
+		}
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator(2, 0, ForkJoinPool.commonPool()).generate(5L, 50)){
+			boards.add(puzzle.getPuzzle());
+		}
+		int[][] one = new int[9][9];
+		one[4][4] = 5;
+		int[][] two = new int[9][9];
+		two[0][0] = 1;
+		two[8][8] = 1;
+		boards.add(one);
+		boards.add(two);
+		boards.add(new int[9][9]);
+		return boards;
+	}
+
+	/*
+	* Picks a Sudoku symmetry at random.
+	*/
+	static Transform randomTransform(int size, Random random){
+		int n = (int) Math.round(Math.sqrt(size));
+		int[] relabel = new int[size + 1];
+		int[] digits = shuffled(size, random);
+		for(int v = 1; v <= size; v++){
+			relabel[v] = digits[v - 1] + 1;
+		}
+		return new Transform(random.nextBoolean(), lineOrder(n, random), lineOrder(n, random), relabel);
+	}
+
+	private static int[] lineOrder(int n, Random random){
+		int[] bands = shuffled(n, random);
+		int[] order = new int[n * n];
+		for(int b = 0; b < n; b++){
+			int[] within = shuffled(n, random);
+			for(int i = 0; i < n; i++){
+				order[b * n + i] = bands[b] * n + within[i];
+			}
+		}
+		return order;
+	}
+
+	private static int[] shuffled(int n, Random random){
+		int[] values = new int[n];
+		for(int i = 0; i < n; i++){
+			values[i] = i;
+		}
+		for(int i = n - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			int t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+		return values;
+	}
+}
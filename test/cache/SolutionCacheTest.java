@@ -0,0 +1,123 @@
+package cache;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import generator.PuzzleGenerator;
+import search.SolveBudget;
+import search.SolveResult;
+import search.Solver;
+import search.SolverStrategy;
+
+/**
+* Checks that the cache answers isomorphic puzzles with valid solutions, counts
+* its evictions, and only remembers answers.
+*/
+class SolutionCacheTest {
+
+	@Test
+	void isomorphsAreAnsweredWithValidSolutions(){
+		AtomicInteger solves = new AtomicInteger();
+		SolutionCache cache = new SolutionCache(counting(solves));
+		Random random = new Random(31);
+		List<PuzzleGenerator.Puzzle> puzzles = new PuzzleGenerator().generate(11L, 50);
+		for(PuzzleGenerator.Puzzle puzzle : puzzles){
+			cache.solve(puzzle.getPuzzle());
+		}
+		for(PuzzleGenerator.Puzzle puzzle : puzzles){
+			int[][] isomorph = CanonicalizerTest.randomTransform(9, random).apply(puzzle.getPuzzle());
+			SolveResult result = cache.trySolve(isomorph);
+			assertEquals(SolveResult.Status.SOLVED, result.getStatus());
+			assertEquals(0, result.getNodes());
+			assertTrue(solves(isomorph, result.getSolution()));
+		}
+		assertEquals(puzzles.size(), solves.get());
+		assertEquals(puzzles.size(), cache.getStats().getHits());
+		assertEquals(puzzles.size(), cache.getStats().getMisses());
+	}
+
+	@Test
+	void evictionsAreCounted(){
+		SolutionCache cache = new SolutionCache(counting(new AtomicInteger()), 16);
+		List<PuzzleGenerator.Puzzle> puzzles = new PuzzleGenerator().generate(13L, 40);
+		for(PuzzleGenerator.Puzzle puzzle : puzzles){
+			cache.solve(puzzle.getPuzzle());
+		}
+		//each solved puzzle is stored under its raw and its canonical key
+		CacheStats stats = cache.getStats();
+		assertTrue(stats.getSize() <= 16, stats.toString());
+		assertEquals(2 * puzzles.size() - stats.getSize(), stats.getEvictions());
+	}
+
+	@Test
+	void unsatisfiablePuzzlesAreCached(){
+		AtomicInteger solves = new AtomicInteger();
+		SolutionCache cache = new SolutionCache(counting(solves));
+		int[][] puzzle = new int[9][9];
+		puzzle[0][0] = 5;
+		puzzle[0][8] = 5;
+		assertEquals(SolveResult.Status.UNSATISFIABLE, cache.trySolve(puzzle).getStatus());
+		assertEquals(SolveResult.Status.UNSATISFIABLE, cache.trySolve(puzzle).getStatus());
+		assertEquals(1, solves.get());
+		assertEquals(1, cache.getStats().getHits());
+	}
+
+	@Test
+	void exhaustedSolvesAreNotCached(){
+		AtomicInteger solves = new AtomicInteger();
+		SolutionCache cache = new SolutionCache(new SolverStrategy(){
+			public int[][] solve(int[][] original){
+				throw new AssertionError("solve is not used");
+			}
+
+			public SolveResult trySolve(int[][] original, SolveBudget budget){
+				solves.incrementAndGet();
+				return SolveResult.exhausted(SolveResult.Limit.DEADLINE, 1);
+			}
+		});
+		int[][] puzzle = new PuzzleGenerator().generate(3L, 0L).getPuzzle();
+		assertEquals(SolveResult.Status.EXHAUSTED, cache.trySolve(puzzle).getStatus());
+		assertEquals(SolveResult.Status.EXHAUSTED, cache.trySolve(puzzle).getStatus());
+		assertEquals(2, solves.get());
+		assertEquals(0, cache.getStats().getHits());
+		assertEquals(0, cache.getStats().getSize());
+	}
+
+	private static SolverStrategy counting(AtomicInteger solves){
+		return original -> {
+			solves.incrementAndGet();
+			return Solver.solve(original);
+		};
+	}
+
+	/*
+	* Tells whether a board is a solution that keeps a puzzle's givens.
+	*/
+	private static boolean solves(int[][] puzzle, int[][] solution){
+		int size = puzzle.length;
+		int n = (int) Math.round(Math.sqrt(size));
+		for(int i = 0; i < size; i++){
+			int inRow = 0;
+			int inCol = 0;
+			int inBox = 0;
+			for(int j = 0; j < size; j++){
+				if(puzzle[i][j] != 0 && puzzle[i][j] != solution[i][j]){
+					return false;
+				}
+				inRow |= 1 << solution[i][j];
+				inCol |= 1 << solution[j][i];
+				inBox |= 1 << solution[i / n * n + j / n][i % n * n + j % n];
+			}
+			int all = (1 << (size + 1)) - 2;
+			if(inRow != all || inCol != all || inBox != all){
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,63 @@
+package generator;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import search.Solver;
+
+/**
+* Checks that generated puzzles are proper: each has exactly one solution, and
+* it is the one the generator reports.
+*/
+class PuzzleGeneratorTest {
+
+	@Test
+	void twoThousandPuzzlesAreUnique(){
+		List<PuzzleGenerator.Puzzle> puzzles = new PuzzleGenerator().generate(431L, 2000);
+		assertEquals(2000, puzzles.size());
+		for(PuzzleGenerator.Puzzle puzzle : puzzles){
+			assertProper(puzzle);
+		}
+	}
+
+	@Test
+	void fourByFourPuzzlesAreUnique(){
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator(2, 0, ForkJoinPool.commonPool()).generate(7L, 200)){
+			assertProper(puzzle);
+		}
+	}
+
+	@Test
+	void removalStopsAtTheMinimumClues(){
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator(3, 40, ForkJoinPool.commonPool()).generate(7L, 50)){
+			assertEquals(40, puzzle.getClues());
+			assertProper(puzzle);
+		}
+	}
+
+	@Test
+	void sameSeedGivesSamePuzzles(){
+		PuzzleGenerator generator = new PuzzleGenerator();
+		List<PuzzleGenerator.Puzzle> run = generator.generate(99L, 20);
+		for(int i = 0; i < run.size(); i++){
+			assertArrayEquals(run.get(i).getPuzzle(), generator.generate(99L, (long) i).getPuzzle());
+		}
+	}
+
+	private static void assertProper(PuzzleGenerator.Puzzle puzzle){
+		int[][] clues = puzzle.getPuzzle();
+		int[][] solution = puzzle.getSolution();
+		assertTrue(Solver.hasUniqueSolution(clues));
+		assertArrayEquals(solution, Solver.solve(clues));
+		for(int row = 0; row < clues.length; row++){
+			for(int col = 0; col < clues.length; col++){
+				assertTrue(clues[row][col] == 0 || clues[row][col] == solution[row][col]);
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package search;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import generator.PuzzleGenerator;
+
+/**
+* Checks the SAT engine against Dancing Links, on puzzles without a solution,
+* and under budgets that run out.
+*/
+class SatStrategyTest {
+
+	@Test
+	void solutionsMatchDancingLinks(){
+		SatStrategy sat = new SatStrategy();
+		DancingLinks dlx = new DancingLinks();
+		check(sat, dlx, new PuzzleGenerator(2, 0, ForkJoinPool.commonPool()), 100);
+		check(sat, dlx, new PuzzleGenerator(), 100);
+		check(sat, dlx, new PuzzleGenerator(4, 120, ForkJoinPool.commonPool()), 10);
+	}
+
+	@Test
+	void clashingGivensAreUnsatisfiable(){
+		int[][] puzzle = new int[9][9];
+		puzzle[0][0] = 5;
+		puzzle[0][8] = 5;
+		assertEquals(SolveResult.Status.UNSATISFIABLE, new SatStrategy().trySolve(puzzle).getStatus());
+	}
+
+	@Test
+	void plantedWrongGivensAreUnsatisfiable(){
+		//a wrong value that clashes with no given leaves a unique puzzle without a solution
+		for(PuzzleGenerator.Puzzle generated : new PuzzleGenerator().generate(41L, 20)){
+			int[][] puzzle = generated.getPuzzle();
+			int[][] solution = generated.getSolution();
+			int[] cell = wrongValue(puzzle, solution);
+			puzzle[cell[0]][cell[1]] = cell[2];
+			assertEquals(SolveResult.Status.UNSATISFIABLE, new SatStrategy().trySolve(puzzle).getStatus());
+		}
+	}
+
+	@Test
+	void largeBoardStopsAtTheDeadline(){
+		//building the formula for an empty 64x64 board alone takes longer than this
+		SolveBudget budget = SolveBudget.UNLIMITED.withTimeout(Duration.ofMillis(20));
+		long start = System.nanoTime();
+		SolveResult result = new SatStrategy(budget).trySolve(new int[64][64]);
+		long elapsed = System.nanoTime() - start;
+		assertEquals(SolveResult.Status.EXHAUSTED, result.getStatus());
+		assertEquals(SolveResult.Limit.DEADLINE, result.getLimit());
+		assertTrue(elapsed < Duration.ofMillis(500).toNanos(), "took " + elapsed / 1000000 + " ms");
+	}
+
+	@Test
+	void cancelledSolveStopsBeforeEncoding(){
+		CancellationToken cancel = new CancellationToken();
+		cancel.cancel();
+		SolveResult result = new SatStrategy(SolveBudget.UNLIMITED.withCancellation(cancel)).trySolve(new int[64][64]);
+		assertEquals(SolveResult.Status.EXHAUSTED, result.getStatus());
+		assertEquals(SolveResult.Limit.CANCELLED, result.getLimit());
+	}
+
+	private static void check(SatStrategy sat, DancingLinks dlx, PuzzleGenerator generator, int count){
+		for(PuzzleGenerator.Puzzle puzzle : generator.generate(19L, count)){
+			SolveResult result = sat.trySolve(puzzle.getPuzzle());
+			assertEquals(SolveResult.Status.SOLVED, result.getStatus());
+			assertArrayEquals(dlx.solve(puzzle.getPuzzle()), result.getSolution());
+			assertArrayEquals(puzzle.getSolution(), result.getSolution());
+		}
+	}
+
+	/*
+	* Finds an open cell and a value other than its solution that no given in its
+	* row, column or box rules out.
+	* @return {row, col, value}
+	*/
+	private static int[] wrongValue(int[][] puzzle, int[][] solution){
+		int size = puzzle.length;
+		int n = (int) Math.round(Math.sqrt(size));
+		for(int row = 0; row < size; row++){
+			for(int col = 0; col < size; col++){
+				if(puzzle[row][col] != 0){
+					continue;
+				}
+				for(int v = 1; v <= size; v++){
+					boolean clash = v == solution[row][col];
+					for(int i = 0; i < size && !clash; i++){
+						int boxRow = row / n * n + i / n;
+						int boxCol = col / n * n + i % n;
+						clash = puzzle[row][i] == v || puzzle[i][col] == v || puzzle[boxRow][boxCol] == v;
+					}
+					if(!clash){
+						return new int[]{row, col, v};
+					}
+				}
+			}
+		}
+		throw new AssertionError("no open cell takes a wrong value");
+	}
+}
@@ -0,0 +1,102 @@
+package search;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import io.PuzzFormat;
+
+/**
+* Counts and enumerates solutions of grids whose solution counts are known.
+*/
+class SolutionCountTest {
+
+	@Test
+	void emptyFourByFourHas288Solutions(){
+		assertEquals(288, Solver.countSolutions(new int[4][4], 1000));
+	}
+
+	@Test
+	void enumeratesEveryEmptyFourByFourGridOnce(){
+		Set<String> seen = new HashSet<String>();
+		SolutionIterator solutions = Solver.solutions(new int[4][4]);
+		while(solutions.hasNext()){
+			int[][] solution = solutions.next();
+			assertTrue(isSolution(solution), Arrays.deepToString(solution));
+			assertTrue(seen.add(Arrays.deepToString(solution)), "repeated " + Arrays.deepToString(solution));
+		}
+		assertEquals(288, seen.size());
+	}
+
+	@Test
+	void mediumHas48Solutions() throws IOException {
+		int[][] medium = load("medium");
+		assertEquals(48, Solver.countSolutions(medium, 1000));
+		assertEquals(48, Solver.solutionStream(medium).filter(SolutionCountTest::isSolution)
+				.map(Arrays::deepToString).distinct().count());
+		assertFalse(Solver.hasUniqueSolution(medium));
+	}
+
+	@Test
+	void bundledHardPuzzlesAreUnique() throws IOException {
+		assertTrue(Solver.hasUniqueSolution(load("hard")));
+		assertTrue(Solver.hasUniqueSolution(load("evil")));
+	}
+
+	@Test
+	void clashingGivensHaveNoSolution(){
+		int[][] puzzle = new int[9][9];
+		puzzle[0][0] = 5;
+		puzzle[0][8] = 5;
+		assertEquals(0, Solver.countSolutions(puzzle, 2));
+		assertFalse(Solver.hasUniqueSolution(puzzle));
+		assertFalse(Solver.solutions(puzzle).hasNext());
+	}
+
+	@Test
+	void countingStopsAtTheLimit(){
+		//the empty 9x9 grid has about 6.7e21 solutions, so only a cutoff returns
+		assertEquals(2, Solver.countSolutions(new int[9][9], 2));
+		assertEquals(5, Solver.countSolutions(new int[9][9], 5));
+		assertEquals(3, Solver.solutionStream(new int[9][9]).limit(3).count());
+	}
+
+	static int[][] load(String name) throws IOException {
+		try(Reader in = new InputStreamReader(SolutionCountTest.class.getResourceAsStream("/puzzles/" + name + ".puzz"),
+				StandardCharsets.US_ASCII)){
+			return PuzzFormat.read(in);
+		}
+	}
+
+	/*
+	* Checks that every row, column and box of a full board holds 1..N once.
+	*/
+	static boolean isSolution(int[][] board){
+		int size = board.length;
+		int boxSize = (int) Math.round(Math.sqrt(size));
+		for(int i = 0; i < size; i++){
+			int row = 0;
+			int col = 0;
+			int box = 0;
+			for(int j = 0; j < size; j++){
+				row |= 1 << board[i][j];
+				col |= 1 << board[j][i];
+				box |= 1 << board[i / boxSize * boxSize + j / boxSize][i % boxSize * boxSize + j % boxSize];
+			}
+			int full = (1 << (size + 1)) - 2;
+			if(row != full || col != full || box != full){
+				return false;
+			}
+		}
+		return true;
+	}
+}
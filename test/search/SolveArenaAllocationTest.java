@@ -0,0 +1,102 @@
+package search;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import csp.PeerIndex;
+import generator.PuzzleGenerator;
+
+/**
+* Checks that solving through a warmed-up SolveArena allocates nothing, by the
+* bytes the JVM counts as allocated by the test thread.
+*/
+class SolveArenaAllocationTest {
+
+	private static final String[] OPTIONS = { "csp", "csp+degree+lcv:all", "gac+mrv" };
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static List<int[][]> corpus;
+
+	@BeforeAll
+	static void generate() throws Exception {
+		corpus = new ArrayList<int[][]>();
+		corpus.add(SolutionCountTest.load("easy"));
+		corpus.add(SolutionCountTest.load("medium"));
+		corpus.add(SolutionCountTest.load("hard"));
+		corpus.add(SolutionCountTest.load("evil"));
+		for(PuzzleGenerator.Puzzle puzzle : new PuzzleGenerator().generate(431L, 2000)){
+			corpus.add(puzzle.getPuzzle());
+		}
+		assertTrue(THREADS.isThreadAllocatedMemorySupported());
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	void arenaSolvesAllocateNothing(){
+		for(String name : OPTIONS){
+			SolveArena arena = new SolveArena(PeerIndex.SUDOKU, Strategies.options(name));
+			int[][] solution = new int[9][9];
+			SolveResult.Status[] statuses = new SolveResult.Status[corpus.size()];
+
+			//warm up, so the measured pass runs compiled code
+			for(int round = 0; round < 3; round++){
+				solveAll(arena, solution, statuses);
+			}
+
+			long before = allocated();
+			solveAll(arena, solution, statuses);
+			long bytes = allocated() - before - overhead();
+			assertEquals(0, bytes, name + " allocated " + bytes + " bytes over " + corpus.size() + " solves");
+			for(SolveResult.Status status : statuses){
+				assertEquals(SolveResult.Status.SOLVED, status, name);
+			}
+		}
+	}
+
+	@Test
+	void strategiesSharingAThreadKeepTheirArenas(){
+		//alternating engines on one thread, as a portfolio's racers do, must not
+		//rebuild an arena per solve: only the solution boards are new
+		BacktrackingStrategy csp = new BacktrackingStrategy(Strategies.options("csp"), null);
+		BacktrackingStrategy gac = new BacktrackingStrategy(Strategies.options("gac+mrv"), null);
+		int solves = 200;
+		for(int round = 0; round < 3; round++){
+			alternate(csp, gac, solves);
+		}
+		long before = allocated();
+		alternate(csp, gac, solves);
+		long perSolve = (allocated() - before - overhead()) / solves;
+		//a 9x9 solution board takes about 500 bytes; a new arena tens of kilobytes
+		assertTrue(perSolve < 1024, perSolve + " bytes per solve");
+	}
+
+	private static void solveAll(SolveArena arena, int[][] solution, SolveResult.Status[] statuses){
+		for(int i = 0; i < statuses.length; i++){
+			statuses[i] = arena.solve(corpus.get(i), solution, SolveBudget.UNLIMITED, null);
+		}
+	}
+
+	private static void alternate(SolverStrategy a, SolverStrategy b, int solves){
+		for(int i = 0; i < solves; i++){
+			assertTrue((i % 2 == 0 ? a : b).solve(corpus.get(i)) != null);
+		}
+	}
+
+	private static long allocated(){
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	//what reading the counter itself allocates
+	private static long overhead(){
+		long before = allocated();
+		return allocated() - before;
+	}
+}
@@ -0,0 +1,52 @@
+package search;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+* Checks that every strategy made by name keeps to the budget it was made with.
+*/
+class StrategiesTest {
+
+	private static final String[] NAMES = {"csp", "gac+mrv", "dlx", "sat", "parallel", "routed", "portfolio"};
+
+	@Test
+	void everyStrategyStopsWhenCancelled(){
+		CancellationToken cancel = new CancellationToken();
+		cancel.cancel();
+		SolveBudget budget = SolveBudget.UNLIMITED.withCancellation(cancel);
+		for(String name : NAMES){
+			SolveResult result = Strategies.forName(name, budget).trySolve(new int[9][9]);
+			assertEquals(SolveResult.Status.EXHAUSTED, result.getStatus(), name);
+			assertEquals(SolveResult.Limit.CANCELLED, result.getLimit(), name);
+		}
+	}
+
+	@Test
+	void parallelSearchStopsAtTheDeadline(){
+		//plain backtracking does not finish an empty 25x25 board in any useful time
+		SolverStrategy parallel = Strategies.forName("parallel", SolveBudget.UNLIMITED.withTimeout(Duration.ofMillis(100)));
+		long start = System.nanoTime();
+		SolveResult result = parallel.trySolve(new int[25][25]);
+		long elapsed = System.nanoTime() - start;
+		assertEquals(SolveResult.Status.EXHAUSTED, result.getStatus());
+		assertEquals(SolveResult.Limit.DEADLINE, result.getLimit());
+		assertTrue(elapsed < Duration.ofSeconds(2).toNanos(), "took " + elapsed / 1000000 + " ms");
+	}
+
+	@Test
+	void parallelSearchRefusesANodeLimit(){
+		assertThrows(IllegalArgumentException.class, () -> Strategies.forName("parallel", SolveBudget.UNLIMITED.withMaxNodes(1000)));
+	}
+
+	@Test
+	void dancingLinksKeepsToItsNodeLimit(){
+		SolveResult result = Strategies.forName("dlx", SolveBudget.UNLIMITED.withMaxNodes(10)).trySolve(new int[16][16]);
+		assertEquals(SolveResult.Status.EXHAUSTED, result.getStatus());
+		assertEquals(SolveResult.Limit.NODES, result.getLimit());
+	}
+}